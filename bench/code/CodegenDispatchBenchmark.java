@@ -0,0 +1,100 @@
+package code;
+
+import lexer.Lexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.ErrorHandler;
+import parser.Parser;
+import parser.nodes.ASTNode;
+import parser.variables.SymbolTable;
+import semantic.ScopeResolver;
+import semantic.TypeChecker;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Code generation throughput with visitor dispatch against the instanceof ladder it replaced, from a checked tree
+ * of top-level statements using every kind of expression and statement main can hold, to the bytes of the class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodegenDispatchBenchmark {
+    // Keeps main under the 64k of code a method may have
+    private static final int BLOCKS = 150;
+    private static final String BLOCK = """
+        Int a%1$d = %1$d * 3 + 7;
+        Int b%1$d = a%1$d / 2 - %1$d;
+        Long l%1$d = 40000000000L - %1$dL;
+        Double d%1$d = %1$d.5 * 0.5;
+        Bool c%1$d = a%1$d > b%1$d and !(b%1$d == 0) or a%1$d <= 3;
+        String s%1$d = "a" + a%1$d + " b" + b%1$d + " " + c%1$d;
+        Int[] v%1$d = Int[4];
+        for (Int j = 0; j < len(v%1$d); j++) {
+            v%1$d[j] = a%1$d * j;
+            if (c%1$d) {
+                b%1$d += v%1$d[j];
+            } else {
+                b%1$d--;
+            }
+        }
+        while (b%1$d > 100) {
+            b%1$d = -b%1$d / 2 + 1;
+            if (b%1$d < 0) {
+                break;
+            }
+        }
+        print(s%1$d);
+        print(l%1$d);
+        print(d%1$d);
+        """;
+
+    private ASTNode tree;
+
+    @Setup
+    public void checkProgram() {
+        final StringBuilder program = new StringBuilder();
+        for (int i = 0; i < BLOCKS; i++) {
+            program.append(BLOCK.formatted(i));
+        }
+        final ErrorHandler errorHandler = new ErrorHandler();
+        tree = new Parser(new Lexer(program.toString()), errorHandler).parse();
+        new ScopeResolver(errorHandler, new SymbolTable()).resolve(tree);
+        new TypeChecker(errorHandler).check(tree);
+        if (errorHandler.hasErrors()) {
+            throw new IllegalStateException(errorHandler.getErrors().toString());
+        }
+        if (!Arrays.equals(visitor(), instanceofLadder())) {
+            throw new IllegalStateException("The generators wrote different classes");
+        }
+    }
+
+    @Benchmark
+    public byte[] visitor() {
+        return generate(new CodeGenerator(false, false));
+    }
+
+    @Benchmark
+    public byte[] instanceofLadder() {
+        return generate(new InstanceofCodeGenerator());
+    }
+
+    private byte[] generate(CodeGenerator generator) {
+        generator.startMainMethod();
+        generator.generate(tree);
+        generator.endMainMethod();
+        return generator.generateClass();
+    }
+}
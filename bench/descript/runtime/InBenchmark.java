@@ -0,0 +1,111 @@
+package descript.runtime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a file of Ints, one per line, the way inputInt does, through {@link In}, and through a BufferedReader and
+ * Integer.parseInt, in a JVM of its own with the file as its stdin. In reads the channel of the file descriptor
+ * itself, it cannot be given other input inside the benchmark's JVM. A run with no numbers is the cost of starting
+ * that JVM, which every other run includes. Both readers sum what they read, the sum is checked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InBenchmark {
+    public enum Reader {
+        IN,
+        BUFFERED_READER
+    }
+
+    @Param
+    private Reader reader;
+
+    @Param({"0", "1000000"})
+    private int numbers;
+
+    private Path input;
+    private long sum;
+
+    @Setup
+    public void writeInput() throws IOException {
+        final Random random = new Random(numbers);
+        final StringBuilder builder = new StringBuilder(numbers * 8);
+        sum = 0;
+        for (int i = 0; i < numbers; i++) {
+            // Mostly short numbers with the odd one of full width
+            final int value = i % 10 == 0 ? random.nextInt() : random.nextInt(-100_000, 100_000);
+            builder.append(value).append('\n');
+            sum += value;
+        }
+        input = Files.createTempFile("descript-input", ".txt");
+        Files.writeString(input, builder, StandardCharsets.US_ASCII);
+    }
+
+    @TearDown
+    public void deleteInput() throws IOException {
+        Files.delete(input);
+    }
+
+    @Benchmark
+    public long read() throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), Numbers.class.getName(), reader.name(), String.valueOf(numbers)
+        ).redirectInput(input.toFile()).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0 || !output.equals(String.valueOf(sum))) {
+            throw new IllegalStateException("The reading JVM exited with " + exitCode + " and printed " + output);
+        }
+        return sum;
+    }
+
+    // What runs in the reading JVM, the reader and the number of Ints are its arguments, it prints their sum
+    public static final class Numbers {
+        public static void main(String[] args) throws IOException {
+            final int numbers = Integer.parseInt(args[1]);
+            final long sum = Reader.valueOf(args[0]) == Reader.IN ? readIn(numbers) : readBufferedReader(numbers);
+            System.out.println(sum);
+        }
+
+        private static long readIn(int numbers) {
+            long sum = 0;
+            for (int i = 0; i < numbers; i++) {
+                sum += In.inputInt();
+            }
+            return sum;
+        }
+
+        private static long readBufferedReader(int numbers) throws IOException {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            long sum = 0;
+            for (int i = 0; i < numbers; i++) {
+                sum += Integer.parseInt(reader.readLine());
+            }
+            return sum;
+        }
+    }
+}
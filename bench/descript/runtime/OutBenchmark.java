@@ -0,0 +1,92 @@
+package descript.runtime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints lines the way compiled programs do, through {@link Out}, and the way print used to compile, through
+ * System.out.println, in a JVM of its own whose stdout goes nowhere. Out writes to the file descriptor itself, it
+ * cannot be redirected inside the benchmark's JVM. A run with no lines is the cost of starting that JVM, which every
+ * other run includes. The lines cycle through every type print takes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class OutBenchmark {
+    public enum Printer {
+        OUT,
+        PRINTLN
+    }
+
+    @Param
+    private Printer printer;
+
+    @Param({"0", "1000000"})
+    private int lines;
+
+    @Benchmark
+    public int print() throws IOException, InterruptedException {
+        final Process process = new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), Lines.class.getName(), printer.name(), String.valueOf(lines)
+        ).redirectOutput(ProcessBuilder.Redirect.DISCARD).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        final int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("The printing JVM exited with " + exitCode);
+        }
+        return exitCode;
+    }
+
+    // What runs in the printing JVM, the printer and the number of lines are its arguments
+    public static final class Lines {
+        private static final String TEXT = "a line of text";
+
+        public static void main(String[] args) {
+            final int lines = Integer.parseInt(args[1]);
+            if (Printer.valueOf(args[0]) == Printer.OUT) {
+                printOut(lines);
+            } else {
+                printPrintln(lines);
+            }
+        }
+
+        private static void printOut(int lines) {
+            for (int i = 0; i < lines; i++) {
+                switch (i % 5) {
+                    case 0 -> Out.println(i);
+                    case 1 -> Out.println(i * -1_000_003L);
+                    case 2 -> Out.println(i / 3.0);
+                    case 3 -> Out.println(i % 2 == 0);
+                    default -> Out.println(TEXT);
+                }
+            }
+        }
+
+        private static void printPrintln(int lines) {
+            for (int i = 0; i < lines; i++) {
+                switch (i % 5) {
+                    case 0 -> System.out.println(i);
+                    case 1 -> System.out.println(i * -1_000_003L);
+                    case 2 -> System.out.println(i / 3.0);
+                    case 3 -> System.out.println(i % 2 == 0);
+                    default -> System.out.println(TEXT);
+                }
+            }
+        }
+    }
+}
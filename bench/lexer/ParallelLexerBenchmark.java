@@ -0,0 +1,91 @@
+package lexer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexes a generated multi-megabyte source sequentially and in parallel. The parallel lexer runs on the common
+ * ForkJoinPool, whose size is fixed when the JVM starts, so {@link #main} runs the parallel benchmark once per core
+ * count in a JVM limited to that many cores, 1, 2, 4 and so on up to the cores of the machine. With one core the
+ * parallel mode falls back to the sequential lexer, that run is the baseline the others scale from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelLexerBenchmark {
+    private static final String FUNCTION = """
+        // Sums the values below the limit, leaving out every third one
+        func Int sum%1$d(Int limit) {
+            Int total = 0;
+            for (Int i = 0; i < limit; i++) {
+                /* the values from %1$d on
+                   count twice, less one */
+                if (i / 3 * 3 != i and i >= %1$d) {
+                    total += i * 2 - 1;
+                }
+            }
+            print("sum%1$d of " + limit + " is " + total);
+            return total;
+        }
+        Double ratio%1$d = %1$d.5 / 3.25;
+        """;
+
+    @Param({"1024", "8192"})
+    private int sourceKilobytes;
+
+    private String source;
+
+    public static void main(String[] args) throws RunnerException {
+        final int cores = Runtime.getRuntime().availableProcessors();
+        for (int count = 1; ; count *= 2) {
+            final int limit = Math.min(count, cores);
+            new Runner(new OptionsBuilder()
+                .include(ParallelLexerBenchmark.class.getName() + ".parallel")
+                .jvmArgsAppend(
+                    "-XX:ActiveProcessorCount=" + limit,
+                    "-Djava.util.concurrent.ForkJoinPool.common.parallelism=" + limit
+                )
+                .build()
+            ).run();
+            if (limit == cores) {
+                break;
+            }
+        }
+    }
+
+    @Setup
+    public void generateSource() {
+        final StringBuilder builder = new StringBuilder(sourceKilobytes * 1024 + FUNCTION.length() * 2);
+        for (int i = 0; builder.length() < sourceKilobytes * 1024; i++) {
+            builder.append(FUNCTION.formatted(i));
+        }
+        source = builder.toString();
+    }
+
+    @Benchmark
+    public TokenBuffer sequential() {
+        return Lexer.tokenize(source, false);
+    }
+
+    @Benchmark
+    public TokenBuffer parallel() {
+        return Lexer.tokenize(source, true);
+    }
+}
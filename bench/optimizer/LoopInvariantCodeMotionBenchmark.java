@@ -0,0 +1,136 @@
+package optimizer;
+
+import code.CodeGenerator;
+import compiler.Programs;
+import lexer.Lexer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.ErrorHandler;
+import parser.Parser;
+import parser.nodes.ASTNode;
+import parser.variables.SymbolTable;
+import semantic.ScopeResolver;
+import semantic.TypeChecker;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs numeric loops compiled at -O1 with and without loop invariant code motion, the before and after of the
+ * pass. Each loop recomputes an expression over its parameters in every iteration, which the pass moves in front
+ * of the loop. The functions are called straight on the loaded class, main is never run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopInvariantCodeMotionBenchmark {
+    private static final int ITERATIONS = 10_000;
+    private static final String PROGRAM = """
+        func scaledSum(Int n, Int a, Int b) Int {
+            Int total = 0;
+            Int i = 0;
+            while (i < n * 2 - a / b) {
+                total += i * (a * b + a / 3) - b * 7;
+                i++;
+            }
+            return total;
+        }
+
+        func weighted(Int[] values, Int k, Int m) Int {
+            Int sum = 0;
+            for (Int i = 0; i < len(values); i++) {
+                sum += values[i] * (k * m - k / 2) + (m + 1) * (m - 1);
+            }
+            return sum;
+        }
+
+        func polynomial(Double x, Int n) Double {
+            Double total = 0.0;
+            for (Int i = 0; i < n; i++) {
+                total = total + (x * x * x - 2.0 * x + 1.0) * 0.5 + x / 3.0;
+            }
+            return total;
+        }
+
+        func nested(Int n, Int a) Int {
+            Int count = 0;
+            for (Int i = 0; i < n; i++) {
+                for (Int j = 0; j < 100; j++) {
+                    count += (a * a + 3) / (a + 1) + i * 2;
+                }
+            }
+            return count;
+        }
+
+        print(scaledSum(10, 3, 2) + weighted(Int[3], 2, 5) + nested(2, 4));
+        print(polynomial(1.5, 10));
+        """;
+
+    @Param({"false", "true"})
+    private boolean hoisted;
+
+    private MethodHandle scaledSum;
+    private MethodHandle weighted;
+    private MethodHandle polynomial;
+    private MethodHandle nested;
+    private int[] values;
+
+    @Setup
+    public void compile() throws ReflectiveOperationException {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final ASTNode tree = new Parser(new Lexer(PROGRAM), errorHandler).parse();
+        final SymbolTable symbolTable = new SymbolTable();
+        new ScopeResolver(errorHandler, symbolTable).resolve(tree);
+        new TypeChecker(errorHandler).check(tree);
+        if (errorHandler.hasErrors()) {
+            throw new IllegalStateException(errorHandler.getErrors().toString());
+        }
+
+        final CodeGenerator generator = new CodeGenerator(true, false);
+        generator.startMainMethod();
+        generator.generate(new Optimizer(1).optimize(tree, symbolTable, hoisted));
+        generator.endMainMethod();
+        final Class<?> generated = Programs.load(generator.generateClass());
+
+        scaledSum = Programs.function(generated, "scaledSum", int.class, int.class, int.class);
+        weighted = Programs.function(generated, "weighted", int[].class, int.class, int.class);
+        polynomial = Programs.function(generated, "polynomial", double.class, int.class);
+        nested = Programs.function(generated, "nested", int.class, int.class);
+        values = new int[ITERATIONS];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 97;
+        }
+    }
+
+    @Benchmark
+    public int whileLoop() throws Throwable {
+        return (int) scaledSum.invokeExact(ITERATIONS / 2, 7, 3);
+    }
+
+    @Benchmark
+    public int forLoopOverArray() throws Throwable {
+        return (int) weighted.invokeExact(values, 11, 13);
+    }
+
+    @Benchmark
+    public double forLoopOverDoubles() throws Throwable {
+        return (double) polynomial.invokeExact(1.25, ITERATIONS);
+    }
+
+    @Benchmark
+    public int nestedLoops() throws Throwable {
+        return (int) nested.invokeExact(ITERATIONS / 100, 9);
+    }
+}
@@ -0,0 +1,203 @@
+package parser;
+
+import lexer.token.Token;
+import lexer.token.TokenType;
+import parser.nodes.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The recursive expression chain the Pratt parser replaced, parseExpression down to parsePrimary kept verbatim, as
+ * the baseline the parse cost benchmark measures it against. It only parses declarations, the statements the
+ * benchmark programs are made of.
+ */
+class BaselineExpressionParser {
+    private final List<Token> tokens;
+    private int currentPosition;
+    private final ErrorHandler errorHandler;
+
+    // The tokens end with an EOF token
+    BaselineExpressionParser(List<Token> tokens, ErrorHandler errorHandler) {
+        this.tokens = tokens;
+        this.errorHandler = errorHandler;
+    }
+
+    List<ASTNode> parseDeclarations() {
+        final List<ASTNode> declarations = new ArrayList<>();
+        while (isNotEOF()) {
+            final String type = advance().getValue();
+            final String name = consume(TokenType.IDENTIFIER, "Expected variable name.").getValue();
+            consume(TokenType.ASSIGNMENT_OPERATOR, "Expected '=' after variable name.");
+            declarations.add(new VariableDeclarationNode(type, name, parseExpression()));
+            consume(TokenType.SEMICOLON, "Expected ';' after variable declaration.");
+        }
+        return declarations;
+    }
+
+    private ASTNode parseExpression() {
+        return parseLogicalOr();
+    }
+
+    private ASTNode parseLogicalOr() {
+        ASTNode left = parseLogicalAnd();
+
+        while (check(TokenType.OR_KEYWORD)) {
+            final String operator = advance().getValue(); // advance past the operator
+            ASTNode right = parseLogicalAnd(); // Parse the right operand
+            left = new LogicalExpressionNode(left, right, operator);
+        }
+
+        return left;
+    }
+
+    private ASTNode parseLogicalAnd() {
+        ASTNode left = parseEquality();
+
+        while (check(TokenType.AND_KEYWORD)) {
+            final String operator = advance().getValue(); // advance past the operator
+            ASTNode right = parseEquality(); // Parse the right operand
+            left = new LogicalExpressionNode(left, right, operator);
+        }
+
+        return left;
+    }
+
+    private ASTNode parseEquality() {
+        ASTNode left = parseComparison();
+
+        if (check(TokenType.EQUALITY_OPERATOR)) {
+            final String operator = advance().getValue(); // advance past the operator
+            ASTNode right = parseComparison(); // Parse the right operand
+            left = new ComparisonExpressionNode(left, right, operator);
+        }
+
+        return left;
+    }
+
+    private ASTNode parseComparison() {
+        ASTNode left = parseTerm();
+
+        while (check(TokenType.COMPARISON_OPERATOR)) {
+            final String operator = advance().getValue(); // advance past the operator
+            ASTNode right = parseTerm(); // Parse the right operand
+            left = new ComparisonExpressionNode(left, right, operator);
+        }
+
+        return left;
+    }
+
+    private ASTNode parseTerm() {
+        ASTNode left = parseFactor();
+
+        while (check(TokenType.ADDITION_OPERATOR) || check(TokenType.SUBTRACTION_OPERATOR)) {
+            final String operator = advance().getValue(); // advance past the operator
+            ASTNode right = parseFactor(); // Parse the right operand
+            left = new BinaryExpressionNode(left, right, operator);
+        }
+
+        return left;
+    }
+
+    private ASTNode parseFactor() {
+        ASTNode left = parseUnary();
+
+        while (check(TokenType.MULTIPLICATION_OPERATOR) || check(TokenType.DIVISION_OPERATOR)) {
+            final String operator = advance().getValue(); // advance past the operator
+            ASTNode right = parseUnary(); // Parse the right operand
+            left = new BinaryExpressionNode(left, right, operator);
+        }
+
+        return left;
+    }
+
+    private ASTNode parseUnary() {
+        if (check(TokenType.NOT_OPERATOR) || check(TokenType.ADDITION_OPERATOR) || check(TokenType.SUBTRACTION_OPERATOR)
+        ) {
+            final String operator = advance().getValue(); // advance past the current unary
+            final ASTNode operand = parseUnary();
+            return new UnaryExpressionNode(operand, operator);
+        }
+
+        return parsePrimary();
+    }
+
+    private ASTNode parsePrimary() {
+        final Token token = advance();
+
+        return switch (token.getType()) {
+            case IDENTIFIER -> {
+                if (check(TokenType.LEFT_PARENTHESES)) {
+                    advance(); // consume the '('
+                    List<ASTNode> arguments = new ArrayList<>();
+
+                    // Parse arguments until we find a ')'
+                    if (!check(TokenType.RIGHT_PARENTHESES)) {
+                        do {
+                            arguments.add(parseExpression()); // Parse each argument
+                        } while (
+                            peek().getValue().equals(",")
+                            && match(TokenType.PUNCTUATION)
+                        ); // Check for commas between arguments
+                    }
+
+                    consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after function arguments."); // Consume the ')'
+                    yield new FunctionCallNode(token.getValue(), arguments); // Create a FunctionCallNode
+                }
+
+                // Otherwise, treat it as a variable reference
+                yield new VariableReferenceNode(token.getValue());
+            }
+            case LEFT_PARENTHESES -> {
+                ASTNode expression = parseExpression(); // Parse the expression inside the parentheses
+                consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after expression.");
+                yield expression;
+            }
+            case NUMBER_LITERAL -> new NumberLiteral(Integer.parseInt(token.getValue()));
+            case STRING_LITERAL -> new StringLiteral(token.getValue());
+            case BOOLEAN_LITERAL -> {
+                final boolean value = token.getValue().equals("true");
+                yield new BooleanLiteral(value);
+            }
+            default -> new ErrorNode("Unexpected token: " + token.getValue());
+        };
+    }
+
+    private Token consume(TokenType type, String error) throws RuntimeException {
+        if (!check(type)) {
+            errorHandler.logError(error, peek().getLine());
+        }
+        return advance();
+    }
+
+    // check for EOF, the end of the tokens list
+    private boolean isNotEOF() {
+        return currentPosition != tokens.size() - 1;
+    }
+
+    // advance to the next token while returning the current token
+    private Token advance() {
+        if (isNotEOF()) {
+            return tokens.get(currentPosition++);
+        }
+        return tokens.get(currentPosition);
+    }
+
+    // peek the current token
+    private Token peek() {
+        return tokens.get(currentPosition);
+    }
+
+    // check if the current token is a certain type
+    private boolean check(TokenType type) {
+        return peek().getType() == type;
+    }
+
+    private boolean match(TokenType type) {
+        if (check(type)) {
+            advance();
+            return true;
+        }
+        return false;
+    }
+}
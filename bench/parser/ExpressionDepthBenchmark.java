@@ -0,0 +1,62 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.nodes.ASTNode;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses one declaration whose expression is nested the given number of levels deep, with a 512k stack, less than
+ * the recursive chain needed for a thousand levels of parentheses. Each shape keeps a different operator stack
+ * growing: a chain of additions, of prefix operators, and parentheses. The time should grow linearly with the depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss512k")
+public class ExpressionDepthBenchmark {
+    public enum Shape {
+        ADDITIONS,
+        NOTS,
+        NEGATIONS,
+        PARENTHESES
+    }
+
+    @Param({"100", "1000", "10000"})
+    private int depth;
+
+    @Param
+    private Shape shape;
+
+    private TokenBuffer tokens;
+
+    @Setup
+    public void generateExpression() {
+        final String expression = switch (shape) {
+            case ADDITIONS -> "1 + ".repeat(depth) + "1";
+            case NOTS -> "!".repeat(depth) + "true";
+            case NEGATIONS -> "- ".repeat(depth) + "1";
+            case PARENTHESES -> "(".repeat(depth) + "1" + ")".repeat(depth);
+        };
+        tokens = Lexer.tokenize("Int x = " + expression + ";", false);
+    }
+
+    @Benchmark
+    public ASTNode parse() {
+        return new Parser(tokens.stream(), new ErrorHandler()).parse();
+    }
+}
@@ -0,0 +1,100 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import lexer.token.Token;
+import lexer.token.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.nodes.ASTNode;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse cost per expression of the Pratt parser against the recursive chain it replaced, on the same random
+ * declarations with the kind of expressions programs are made of: arithmetic, comparisons, logic, calls and
+ * parentheses, a few levels deep. Both parse tokens lexed in the setup, each the way its parser takes them, the
+ * Pratt parser from a TokenBuffer and the chain from a list of Tokens. The score is the time per expression.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionParserBenchmark {
+    private static final int EXPRESSIONS = 10_000;
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "<", ">=", "==", "!=", "and", "or"};
+    private static final String[] OPERANDS = {"x", "total", "7", "42", "true", "\"text\""};
+
+    private TokenBuffer tokens;
+    private List<Token> tokenList;
+
+    @Setup
+    public void generateDeclarations() {
+        final Random random = new Random(EXPRESSIONS);
+        final StringBuilder source = new StringBuilder();
+        for (int i = 0; i < EXPRESSIONS; i++) {
+            source.append("Int v").append(i).append(" = ");
+            appendExpression(source, random, 3);
+            source.append(";\n");
+        }
+        tokens = Lexer.tokenize(source, false);
+        tokenList = new Lexer(source.toString()).tokenize();
+        tokenList.add(new Token(TokenType.EOF, "", tokens.line(tokens.size() - 1)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXPRESSIONS)
+    public ASTNode pratt() {
+        return new Parser(tokens.stream(), new ErrorHandler()).parse();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXPRESSIONS)
+    public List<ASTNode> recursiveDescent() {
+        return new BaselineExpressionParser(tokenList, new ErrorHandler()).parseDeclarations();
+    }
+
+    private static void appendExpression(StringBuilder source, Random random, int depth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            appendOperand(source, random, depth);
+            return;
+        }
+        appendExpression(source, random, depth - 1);
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            source.append(' ').append(OPERATORS[random.nextInt(OPERATORS.length)]).append(' ');
+            appendExpression(source, random, depth - 1);
+        }
+    }
+
+    private static void appendOperand(StringBuilder source, Random random, int depth) {
+        switch (random.nextInt(depth == 0 ? 2 : 5)) {
+            case 0 -> source.append(OPERANDS[random.nextInt(OPERANDS.length)]);
+            case 1 -> source.append(random.nextBoolean() ? "-" : "!").append(OPERANDS[random.nextInt(2)]);
+            case 2 -> {
+                source.append('(');
+                appendExpression(source, random, depth - 1);
+                source.append(')');
+            }
+            default -> {
+                source.append("f(");
+                appendExpression(source, random, depth - 1);
+                source.append(", ");
+                appendExpression(source, random, depth - 1);
+                source.append(')');
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package code;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import semantic.Type;
+
+/**
+ * Bytecode of the functions every program has without declaring them, shared by both code generators.
+ */
+final class Builtins {
+    // Bundled into the jar of every program, see descript.runtime.Out and In
+    private static final String OUT = "descript/runtime/Out";
+    private static final String IN = "descript/runtime/In";
+
+    private Builtins() { }
+
+    // Whether the call is to a builtin rather than to a function of the program
+    static boolean isBuiltin(String name) {
+        return "print".equals(name) || "len".equals(name) || isInput(name);
+    }
+
+    // input, inputInt and inputDouble, which read a String, an Int and a Double from stdin
+    static boolean isInput(String name) {
+        return "input".equals(name) || "inputInt".equals(name) || "inputDouble".equals(name);
+    }
+
+    // Prints the value of the type on the stack, arrays as their elements in brackets
+    static void print(MethodVisitor method, Type type) {
+        Type printed = type;
+        if (type.isArray()) {
+            final String element = type == Type.STRING_ARRAY ? "[Ljava/lang/Object;" : type.getDescriptor();
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/util/Arrays", "toString", "(" + element + ")Ljava/lang/String;", false);
+            printed = Type.STRING;
+        }
+        // The argument's type picks the println overload
+        final String descriptor = "(" + printed.getDescriptor() + ")V";
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, OUT, "println", descriptor, false);
+    }
+
+    // Pushes what the input builtin of the name and type reads, the runtime method has the same name
+    static void input(MethodVisitor method, String name, Type type) {
+        method.visitMethodInsn(Opcodes.INVOKESTATIC, IN, name, "()" + type.getDescriptor(), false);
+    }
+
+    // Replaces the array on the stack with its length
+    static void len(MethodVisitor method) {
+        method.visitInsn(Opcodes.ARRAYLENGTH);
+    }
+}
@@ -1,23 +1,55 @@
 package code;
 
+import ir.IrFunction;
+import ir.IrModule;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
 import parser.nodes.*;
-import parser.variables.SymbolTable;
-import parser.variables.VariableInfo;
+import parser.variables.Symbol;
+import semantic.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Generates the class for a program: the top-level statements go into main and every function becomes a private
+ * static method. Methods are built as ASM trees and only written to the class once they are complete, so the
+ * {@link PeepholeOptimizer} can go over their instructions first. A function's method is independent of everything
+ * else, so functions can be generated concurrently; they are still written in source order, which keeps the class
+ * file byte for byte the same from run to run.
+ */
+public class CodeGenerator implements ASTVisitor<Void> {
+    static final String CLASS_NAME = "GeneratedClass";
 
-public class CodeGenerator {
     private final ClassWriter classWriter;
+    private final boolean optimize;
+    private final boolean parallel;
+    // Methods of the functions in source order, the tasks may still be running
+    private final List<ForkJoinTask<MethodNode>> functions = new ArrayList<>();
+    private MethodNode method;
     private MethodVisitor methodVisitor;
-    private int currentVariableIndex = 1;
-    private final SymbolTable symbolTable;
-
-    public CodeGenerator(SymbolTable symbolTable) {
-        this.symbolTable = symbolTable;
+    // The function being generated and the start of its body, null while generating main
+    private final FunctionDeclarationNode function;
+    private final Label entryLabel;
+    // Jump targets of the loops around the code being generated, innermost first
+    private final Deque<Label> breakLabels = new ArrayDeque<>();
+    private final Deque<Label> continueLabels = new ArrayDeque<>();
+
+    // Without optimization the instructions are written as they are generated
+    public CodeGenerator(boolean optimize, boolean parallel) {
+        this.optimize = optimize;
+        this.parallel = parallel;
+        this.function = null;
+        this.entryLabel = null;
         classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
-        classWriter.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "GeneratedClass", null, "java/lang/Object", null);
+        classWriter.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, CLASS_NAME, null, "java/lang/Object", null);
 
         MethodVisitor constructor = classWriter.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
         constructor.visitCode();
@@ -28,91 +60,101 @@ public class CodeGenerator {
         constructor.visitEnd();
     }
 
+    // Generates the body of one function into its method
+    private CodeGenerator(boolean optimize, MethodNode method, FunctionDeclarationNode function) {
+        this.optimize = optimize;
+        this.parallel = false;
+        this.classWriter = null;
+        this.method = method;
+        this.methodVisitor = method;
+        this.function = function;
+        this.entryLabel = new Label();
+    }
+
     public void startMainMethod() {
-        methodVisitor = classWriter.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+        method = new MethodNode(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+        methodVisitor = method;
         methodVisitor.visitCode();
     }
 
     public void endMainMethod() {
         methodVisitor.visitInsn(Opcodes.RETURN);
-        methodVisitor.visitMaxs(1, currentVariableIndex);
+        methodVisitor.visitMaxs(0, 0); // computed by the ClassWriter
         methodVisitor.visitEnd();
+
+        if (optimize) {
+            new PeepholeOptimizer().optimize(method);
+        }
+        method.accept(classWriter);
     }
 
     public void generate(ASTNode node) {
-        if (node instanceof VariableDeclarationNode) {
-            generateVariableDeclaration((VariableDeclarationNode) node);
-        } else if (node instanceof FunctionCallNode) {
-            generateFunctionCall((FunctionCallNode) node);
-        } else if (node instanceof NumberLiteral) {
-            generateNumberLiteral((NumberLiteral) node);
-        } else if (node instanceof StringLiteral) {
-            generateStringLiteral((StringLiteral) node);
-        } else if (node instanceof BooleanLiteral) {
-            generateBooleanLiteral((BooleanLiteral) node);
-        } else if (node instanceof BinaryExpressionNode) {
-            generateBinaryExpression((BinaryExpressionNode) node);
-        } else if (node instanceof ComparisonExpressionNode) {
-            generateComparisonExpression((ComparisonExpressionNode) node);
-        } else if (node instanceof IfStatementNode) {
-            generateIfStatement((IfStatementNode) node);
-        } else if (node instanceof WhileStatementNode) {
-            generateWhileStatement((WhileStatementNode) node);
-        } else if (node instanceof BlockNode) {
-            generateBlock((BlockNode) node);
-        } else if (node instanceof VariableReferenceNode) {
-            generateVariableReference((VariableReferenceNode) node);
-        } else if (node instanceof VariableAssignmentNode) {
-            generateVariableAssignment((VariableAssignmentNode) node);
-        } else if (node instanceof CompoundAssignmentNode) {
-            generateCompoundAssignment((CompoundAssignmentNode) node);
-        } else if (node instanceof IncrementDecrementNode) {
-            generateIncrementDecrement((IncrementDecrementNode) node);
-        } else {
-            throw new UnsupportedOperationException("Unsupported AST Node: " + node.getClass().getSimpleName());
+        node.accept(this);
+    }
+
+    /**
+     * Generates a whole program from its IR instead of its tree, main method included, so neither startMainMethod
+     * nor endMainMethod is needed.
+     */
+    public void generate(IrModule module) {
+        for (IrFunction function : module.getFunctions()) {
+            final ForkJoinTask<MethodNode> task = ForkJoinTask.adapt(() -> {
+                final MethodNode method = IrEmitter.emit(function);
+                if (optimize) {
+                    new PeepholeOptimizer().optimize(method);
+                }
+                return method;
+            });
+            if (parallel) {
+                ForkJoinPool.commonPool().execute(task);
+            } else {
+                task.invoke();
+            }
+            functions.add(task);
         }
     }
 
-    private void generateVariableAssignment(VariableAssignmentNode node) {
-        // Retrieve variable information from SymbolTable
-        VariableInfo entry = symbolTable.getVariable(node.getVariableName());
-        if (entry == null) {
-            throw new RuntimeException("Variable not declared: " + node.getVariableName());
+    // An expression used as a statement, a call made for its effects or any other, leaves its value on the stack, a
+    // statement must not. Only expressions have a resolved type
+    private void generateStatement(ASTNode statement) {
+        generate(statement);
+        if (statement.getResolvedType() != null && statement.getResolvedType() != Type.VOID) {
+            methodVisitor.visitInsn(TypedOpcodes.pop(statement.getResolvedType()));
         }
+    }
 
+    @Override
+    public Void visit(VariableAssignmentNode node) {
         // Generate code for the new value (right-hand side of the assignment)
         generate(node.getValue());
 
-        // Determine the correct opcode based on the variable's type
-        String varType = entry.getType();
-        int index = entry.getIndex();
-        switch (varType) {
-            case "Int", "Bool":
-                methodVisitor.visitVarInsn(Opcodes.ISTORE, index);
-                break;
-            case "String":
-                methodVisitor.visitVarInsn(Opcodes.ASTORE, index);
-                break;
-            default:
-                throw new UnsupportedOperationException("Unsupported variable type: " + varType);
-        }
+        // The type checker made sure the value has the variable's type
+        methodVisitor.visitVarInsn(storeOpcode(node.getValue().getResolvedType()), node.getSymbol().getSlot());
+        return null;
     }
 
-    private void generateCompoundAssignment(CompoundAssignmentNode node) {
-        VariableInfo entry = symbolTable.getVariable(node.getVariableName());
-        if (entry == null) {
-            throw new RuntimeException("Variable not declared: " + node.getVariableName());
-        }
-
-        int index = entry.getIndex();
+    @Override
+    public Void visit(CompoundAssignmentNode node) {
+        int index = node.getSymbol().getSlot();
         String op = node.getCompoundOp();
 
+        // Strings only support +=, which appends
+        if (node.getSymbol().getType() == Type.STRING) {
+            final StringConcat concat = new StringConcat(methodVisitor);
+            concat.argument(Type.STRING);
+            methodVisitor.visitVarInsn(Opcodes.ALOAD, index);
+            generateConcatParts(concat, node.getValue());
+            concat.finish();
+            methodVisitor.visitVarInsn(Opcodes.ASTORE, index);
+            return null;
+        }
+
         // Load the current value of the variable
-        if ("Int".equals(entry.getType()) || "Bool".equals(entry.getType())) {
-            methodVisitor.visitVarInsn(Opcodes.ILOAD, index);
-        } else {
-            throw new UnsupportedOperationException("Unsupported type for compound assignment: " + entry.getType());
+        final Type type = node.getValue().getResolvedType();
+        if (!type.isNumeric()) {
+            throw new UnsupportedOperationException("Unsupported type for compound assignment: " + type);
         }
+        methodVisitor.visitVarInsn(TypedOpcodes.of(type, Opcodes.ILOAD), index);
 
         // Generate the right-hand side expression
         generate(node.getValue());
@@ -120,253 +162,563 @@ public class CodeGenerator {
         // Apply the compound operation
         switch (op) {
             case "+=":
-                methodVisitor.visitInsn(Opcodes.IADD);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IADD));
                 break;
             case "-=":
-                methodVisitor.visitInsn(Opcodes.ISUB);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.ISUB));
                 break;
             case "*=":
-                methodVisitor.visitInsn(Opcodes.IMUL);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IMUL));
                 break;
             case "/=":
-                methodVisitor.visitInsn(Opcodes.IDIV);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IDIV));
                 break;
             default:
                 throw new UnsupportedOperationException("Unsupported compound operator: " + op);
         }
 
         // Store the result back in the variable
-        methodVisitor.visitVarInsn(Opcodes.ISTORE, index);
+        methodVisitor.visitVarInsn(TypedOpcodes.of(type, Opcodes.ISTORE), index);
+        return null;
     }
 
-    private void generateIncrementDecrement(IncrementDecrementNode node) {
-        VariableInfo entry = symbolTable.getVariable(node.getVariableName());
-        if (entry == null) {
-            throw new RuntimeException("Variable not declared: " + node.getVariableName());
-        }
-
-        int index = entry.getIndex();
+    @Override
+    public Void visit(IncrementDecrementNode node) {
+        int index = node.getSymbol().getSlot();
         String op = node.getOp();
+        final Type type = node.getSymbol().getType();
 
         // Load the current value of the variable
-        methodVisitor.visitVarInsn(Opcodes.ILOAD, index);
+        methodVisitor.visitVarInsn(TypedOpcodes.of(type, Opcodes.ILOAD), index);
 
         // Apply the increment or decrement
         if ("++".equals(op)) {
-            methodVisitor.visitInsn(Opcodes.ICONST_1);
-            methodVisitor.visitInsn(Opcodes.IADD);
+            methodVisitor.visitInsn(TypedOpcodes.one(type));
+            methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IADD));
         } else if ("--".equals(op)) {
-            methodVisitor.visitInsn(Opcodes.ICONST_1);
-            methodVisitor.visitInsn(Opcodes.ISUB);
+            methodVisitor.visitInsn(TypedOpcodes.one(type));
+            methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.ISUB));
         } else {
             throw new UnsupportedOperationException("Unsupported increment/decrement operator: " + op);
         }
 
         // Store the result back in the variable
-        methodVisitor.visitVarInsn(Opcodes.ISTORE, index);
+        methodVisitor.visitVarInsn(TypedOpcodes.of(type, Opcodes.ISTORE), index);
+        return null;
     }
 
-    private void generateComparisonExpression(ComparisonExpressionNode node) {
-        Label trueLabel = new Label();
-        Label endLabel = new Label();
+    @Override
+    public Void visit(ComparisonExpressionNode node) {
+        // Strings are compared by content, the type checker only allows == and != on them
+        if (node.getLeft().getResolvedType() == Type.STRING) {
+            generate(node.getLeft());
+            generate(node.getRight());
+            methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false);
+            if ("!=".equals(node.getOperator())) {
+                methodVisitor.visitInsn(Opcodes.ICONST_1);
+                methodVisitor.visitInsn(Opcodes.IXOR);
+            }
+            return null;
+        }
+
+        generateBoolean(node);
+        return null;
+    }
 
-        generate(node.getLeft());  // Generate bytecode for the left operand
-        generate(node.getRight()); // Generate bytecode for the right operand
+    @Override
+    public Void visit(LogicalExpressionNode node) {
+        generateBoolean(node);
+        return null;
+    }
 
-        // Use appropriate jump instruction based on the comparison operator
+    @Override
+    public Void visit(UnaryExpressionNode node) {
+        generate(node.getOperand());
         switch (node.getOperator()) {
-            case "<":
-                methodVisitor.visitJumpInsn(Opcodes.IF_ICMPLT, trueLabel);
-                break;
-            case "<=":
-                methodVisitor.visitJumpInsn(Opcodes.IF_ICMPLE, trueLabel);
-                break;
-            case ">":
-                methodVisitor.visitJumpInsn(Opcodes.IF_ICMPGT, trueLabel);
-                break;
-            case ">=":
-                methodVisitor.visitJumpInsn(Opcodes.IF_ICMPGE, trueLabel);
-                break;
-            case "==":
-                methodVisitor.visitJumpInsn(Opcodes.IF_ICMPEQ, trueLabel);
-                break;
-            case "!=":
-                methodVisitor.visitJumpInsn(Opcodes.IF_ICMPNE, trueLabel);
-                break;
-            default:
-                throw new UnsupportedOperationException("Unsupported comparison operator: " + node.getOperator());
+            case "!" -> {
+                methodVisitor.visitInsn(Opcodes.ICONST_1);
+                methodVisitor.visitInsn(Opcodes.IXOR);
+            }
+            case "-" -> methodVisitor.visitInsn(TypedOpcodes.of(node.getResolvedType(), Opcodes.INEG));
+            case "+" -> { }
+            default -> throw new UnsupportedOperationException("Unsupported unary operator: " + node.getOperator());
         }
+        return null;
+    }
 
-        // If the condition fails, push 0 (false) onto the stack and jump to end
-        methodVisitor.visitInsn(Opcodes.ICONST_0);
-        methodVisitor.visitJumpInsn(Opcodes.GOTO, endLabel);
+    // A condition used as a value, 1 if it holds and 0 if not
+    private void generateBoolean(ASTNode condition) {
+        Label falseLabel = new Label();
+        Label endLabel = new Label();
 
-        // If the condition is true, push 1 (true) onto the stack
-        methodVisitor.visitLabel(trueLabel);
+        generateCondition(condition, falseLabel, false);
         methodVisitor.visitInsn(Opcodes.ICONST_1);
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, endLabel);
 
-        // Mark the end label
+        methodVisitor.visitLabel(falseLabel);
+        methodVisitor.visitInsn(Opcodes.ICONST_0);
         methodVisitor.visitLabel(endLabel);
     }
 
-    private void generateVariableDeclaration(VariableDeclarationNode node) {
-        // Determine the variable type and assign a slot index
-        String type = node.getType();
-        int index = currentVariableIndex++;
-
-        // Store variable info in SymbolTable
-        symbolTable.addVariable(node.getName(), type, index);
-
-        // Generate code for the variable's initialization value
-        generate(node.getValue());
+    /**
+     * Jumps to the target if the condition evaluates to jumpWhen and falls through otherwise, without computing
+     * the condition as a value first. A comparison is a single compare-and-branch, and `and` and `or` only
+     * evaluate their right operand when the left one does not decide.
+     */
+    private void generateCondition(ASTNode condition, Label target, boolean jumpWhen) {
+        if (condition instanceof BooleanLiteral literal) {
+            if (literal.getValue() == jumpWhen) {
+                methodVisitor.visitJumpInsn(Opcodes.GOTO, target);
+            }
+        } else if (condition instanceof UnaryExpressionNode unary && "!".equals(unary.getOperator())) {
+            generateCondition(unary.getOperand(), target, !jumpWhen);
+        } else if (condition instanceof LogicalExpressionNode logical) {
+            // A false operand decides `and` and a true one decides `or`
+            final boolean and = "and".equals(logical.getOperator());
+            if (and != jumpWhen) {
+                // Jumping on the deciding value, either operand can take the jump
+                generateCondition(logical.getLeft(), target, jumpWhen);
+                generateCondition(logical.getRight(), target, jumpWhen);
+            } else {
+                // Otherwise a deciding left operand skips the right one, which then decides alone
+                Label skipLabel = new Label();
+                generateCondition(logical.getLeft(), skipLabel, !jumpWhen);
+                generateCondition(logical.getRight(), target, jumpWhen);
+                methodVisitor.visitLabel(skipLabel);
+            }
+        } else if (condition instanceof ComparisonExpressionNode comparison
+            && comparison.getLeft().getResolvedType() != Type.STRING) {
+            generateComparisonJump(comparison, target, jumpWhen);
+        } else {
+            generate(condition);
+            methodVisitor.visitJumpInsn(jumpWhen ? Opcodes.IFNE : Opcodes.IFEQ, target);
+        }
+    }
 
-        // Store the variable in the correct slot based on type
-        if ("Int".equals(type)) {
-            methodVisitor.visitVarInsn(Opcodes.ISTORE, index);
-        } else if ("String".equals(type)) {
-            methodVisitor.visitVarInsn(Opcodes.ASTORE, index);
-        } else if ("Bool".equals(type)) {
-            methodVisitor.visitVarInsn(Opcodes.ISTORE, index);
+    private void generateComparisonJump(ComparisonExpressionNode comparison, Label target, boolean jumpWhen) {
+        int opcode = switch (comparison.getOperator()) {
+            case "<" -> Opcodes.IF_ICMPLT;
+            case "<=" -> Opcodes.IF_ICMPLE;
+            case ">" -> Opcodes.IF_ICMPGT;
+            case ">=" -> Opcodes.IF_ICMPGE;
+            case "==" -> Opcodes.IF_ICMPEQ;
+            case "!=" -> Opcodes.IF_ICMPNE;
+            default -> throw new UnsupportedOperationException("Unsupported comparison operator: " + comparison.getOperator());
+        };
+
+        generate(comparison.getLeft());
+        // Against an Int 0 the single operand form does
+        final boolean againstZero = comparison.getRight() instanceof NumberLiteral literal && literal.getValue() == 0;
+        if (!againstZero) {
+            generate(comparison.getRight());
         }
+        opcode = TypedOpcodes.compare(methodVisitor, comparison.getLeft().getResolvedType(), opcode, againstZero);
+        methodVisitor.visitJumpInsn(jumpWhen ? opcode : TypedOpcodes.negate(opcode), target);
     }
 
-    private void generateVariableReference(VariableReferenceNode node) {
-        VariableInfo varInfo = symbolTable.getVariable(node.getName());
-        if (varInfo == null) {
-            throw new RuntimeException("Undefined variable: " + node.getName());
+    @Override
+    public Void visit(VariableDeclarationNode node) {
+        final Symbol symbol = node.getSymbol();
+
+        // Generate code for the variable's initialization value, slots are reused so there always is one
+        if (node.getValue() != null) {
+            generate(node.getValue());
+        } else {
+            TypedOpcodes.pushDefault(methodVisitor, symbol.getType());
         }
 
-        int index = varInfo.getIndex();
-        String type = varInfo.getType();
+        // Store the variable in the correct slot based on type
+        methodVisitor.visitVarInsn(storeOpcode(symbol.getType()), symbol.getSlot());
+        return null;
+    }
 
+    @Override
+    public Void visit(VariableReferenceNode node) {
         // Load the variable based on its type
-        if ("Int".equals(type) || "Bool".equals(type)) {
-            methodVisitor.visitVarInsn(Opcodes.ILOAD, index);
-        } else if ("String".equals(type)) {
-            methodVisitor.visitVarInsn(Opcodes.ALOAD, index);
-        }
+        methodVisitor.visitVarInsn(loadOpcode(node.getResolvedType()), node.getSymbol().getSlot());
+        return null;
     }
 
-    private void generateFunctionCall(FunctionCallNode node) {
+    @Override
+    public Void visit(FunctionCallNode node) {
         if ("print".equals(node.getFunctionName())) {
-            // Load System.out for print
-            methodVisitor.visitFieldInsn(Opcodes.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
-
             // Generate code for the argument of the print function
             ASTNode argument = node.getArguments().get(0);
             generate(argument);  // Generate the argument, it should leave the value on the stack
 
-            // Determine the type of the argument to call the correct println method
-            String argumentType = getArgumentType(argument);
-
-            // Invoke the appropriate println method based on the argument type
-            switch (argumentType) {
-                case "Int":
-                    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(I)V", false);
-                    break;
-                case "String":
-                    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Ljava/lang/String;)V", false);
-                    break;
-                case "Bool":
-                    methodVisitor.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(Z)V", false);
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Unsupported print argument type: " + argumentType);
-            }
+            // The type checker resolved the argument's type, which picks how it is printed
+            Builtins.print(methodVisitor, argument.getResolvedType());
+        } else if ("len".equals(node.getFunctionName())) {
+            generate(node.getArguments().get(0));
+            Builtins.len(methodVisitor);
+        } else if (Builtins.isInput(node.getFunctionName())) {
+            Builtins.input(methodVisitor, node.getFunctionName(), node.getResolvedType());
         } else {
-            throw new UnsupportedOperationException("Unsupported function: " + node.getFunctionName());
+            // The arguments have the parameter types, the type checker made sure of it
+            final StringBuilder descriptor = new StringBuilder("(");
+            for (ASTNode argument : node.getArguments()) {
+                generate(argument);
+                descriptor.append(argument.getResolvedType().getDescriptor());
+            }
+            descriptor.append(')').append(node.getResolvedType().getDescriptor());
+            methodVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, CLASS_NAME, node.getFunctionName(), descriptor.toString(), false);
         }
+        return null;
     }
 
-    // Helper method to determine the argument type for println calls
-    private String getArgumentType(ASTNode argument) {
-        if (argument instanceof VariableReferenceNode) {
-            VariableInfo varInfo = symbolTable.getVariable(((VariableReferenceNode) argument).getName());
-            return varInfo != null ? varInfo.getType() : null;
-        } else if (argument instanceof NumberLiteral) {
-            return "Int";
-        } else if (argument instanceof StringLiteral) {
-            return "String";
-        } else if (argument instanceof BooleanLiteral) {
-            return "Bool";
-        }
-        throw new UnsupportedOperationException("Unsupported argument type for print: " + argument.getClass().getSimpleName());
+    @Override
+    public Void visit(NumberLiteral node) {
+        methodVisitor.visitLdcInsn(node.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(LongLiteral node) {
+        methodVisitor.visitLdcInsn(node.getValue());
+        return null;
     }
 
-    private void generateNumberLiteral(NumberLiteral node) {
+    @Override
+    public Void visit(DoubleLiteral node) {
         methodVisitor.visitLdcInsn(node.getValue());
+        return null;
     }
 
-    private void generateStringLiteral(StringLiteral node) {
+    @Override
+    public Void visit(StringLiteral node) {
         methodVisitor.visitLdcInsn(node.getValue());
+        return null;
     }
 
-    private void generateBooleanLiteral(BooleanLiteral node) {
+    @Override
+    public Void visit(BooleanLiteral node) {
         int value = node.getValue() ? 1 : 0;
         methodVisitor.visitLdcInsn(value);
+        return null;
     }
 
-    private void generateBinaryExpression(BinaryExpressionNode node) {
+    @Override
+    public Void visit(BinaryExpressionNode node) {
+        // The only operator on strings is +, a whole chain of them is joined at once
+        if (node.getResolvedType() == Type.STRING) {
+            final StringConcat concat = new StringConcat(methodVisitor);
+            generateConcatParts(concat, node);
+            concat.finish();
+            return null;
+        }
+
         generate(node.getLeft());
         generate(node.getRight());
 
+        final Type type = node.getResolvedType();
         switch (node.getOperator()) {
             case "+":
-                methodVisitor.visitInsn(Opcodes.IADD);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IADD));
                 break;
             case "-":
-                methodVisitor.visitInsn(Opcodes.ISUB);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.ISUB));
                 break;
             case "*":
-                methodVisitor.visitInsn(Opcodes.IMUL);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IMUL));
                 break;
             case "/":
-                methodVisitor.visitInsn(Opcodes.IDIV);
+                methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IDIV));
                 break;
             default:
                 throw new UnsupportedOperationException("Unsupported operator: " + node.getOperator());
         }
+        return null;
+    }
+
+    @Override
+    public Void visit(ArrayCreationNode node) {
+        generate(node.getLength());
+        TypedOpcodes.newArray(methodVisitor, node.getResolvedType(), true);
+        return null;
     }
 
-    private void generateIfStatement(IfStatementNode node) {
+    @Override
+    public Void visit(ArrayAccessNode node) {
+        generate(node.getArray());
+        generate(node.getIndex());
+        methodVisitor.visitInsn(TypedOpcodes.of(node.getResolvedType(), Opcodes.IALOAD));
+        return null;
+    }
+
+    // An update of an element loads it with the array and index it was stored with, both duplicated
+    @Override
+    public Void visit(ArrayAssignmentNode node) {
+        final Type type = node.getArray().getResolvedType().getElementType();
+        final String operator = node.getOperator();
+        generate(node.getArray());
+        generate(node.getIndex());
+        if ("=".equals(operator)) {
+            generate(node.getValue());
+            methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IASTORE));
+            return null;
+        }
+
+        methodVisitor.visitInsn(Opcodes.DUP2);
+        if (type == Type.STRING) {
+            final StringConcat concat = new StringConcat(methodVisitor);
+            concat.argument(Type.STRING);
+            methodVisitor.visitInsn(Opcodes.AALOAD);
+            generateConcatParts(concat, node.getValue());
+            concat.finish();
+        } else {
+            methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IALOAD));
+            if (node.getValue() == null) {
+                methodVisitor.visitInsn(TypedOpcodes.one(type));
+            } else {
+                generate(node.getValue());
+            }
+            methodVisitor.visitInsn(TypedOpcodes.of(type, switch (operator) {
+                case "+=", "++" -> Opcodes.IADD;
+                case "-=", "--" -> Opcodes.ISUB;
+                case "*=" -> Opcodes.IMUL;
+                case "/=" -> Opcodes.IDIV;
+                default -> throw new UnsupportedOperationException("Unsupported element assignment operator: " + operator);
+            }));
+        }
+        methodVisitor.visitInsn(TypedOpcodes.of(type, Opcodes.IASTORE));
+        return null;
+    }
+
+    @Override
+    public Void visit(IfStatementNode node) {
         Label elseLabel = new Label();
-        Label endLabel = new Label();
 
-        generate(node.getCondition());
-        methodVisitor.visitJumpInsn(Opcodes.IFEQ, elseLabel);
+        generateCondition(node.getCondition(), elseLabel, false);
+        generateStatement(node.getTrueBranch());
+        if (node.getFalseBranch() == null) {
+            methodVisitor.visitLabel(elseLabel);
+            return null;
+        }
 
-        generate(node.getTrueBranch());
+        Label endLabel = new Label();
         methodVisitor.visitJumpInsn(Opcodes.GOTO, endLabel);
-
         methodVisitor.visitLabel(elseLabel);
-        if (node.getFalseBranch() != null) {
-            generate(node.getFalseBranch());
-        }
+        generateStatement(node.getFalseBranch());
+        methodVisitor.visitLabel(endLabel);
+        return null;
+    }
+
+    // Loops test their condition after the body, so an iteration takes one conditional jump instead of two jumps
+    @Override
+    public Void visit(WhileStatementNode node) {
+        Label bodyLabel = new Label();
+        Label conditionLabel = new Label();
+        Label endLabel = new Label();
 
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, conditionLabel);
+        methodVisitor.visitLabel(bodyLabel);
+        generateLoopBody(node.getBody(), endLabel, conditionLabel);
+
+        methodVisitor.visitLabel(conditionLabel);
+        generateCondition(node.getCondition(), bodyLabel, true);
         methodVisitor.visitLabel(endLabel);
+        return null;
     }
 
-    private void generateWhileStatement(WhileStatementNode node) {
-        Label startLabel = new Label();
+    @Override
+    public Void visit(ForStatementNode node) {
+        Label bodyLabel = new Label();
+        Label updateLabel = new Label();
+        Label conditionLabel = new Label();
         Label endLabel = new Label();
 
-        methodVisitor.visitLabel(startLabel);
-        generate(node.getCondition());
-        methodVisitor.visitJumpInsn(Opcodes.IFEQ, endLabel);
+        if (node.getInitialization() != null) {
+            generateStatement(node.getInitialization());
+        }
+        // Without a condition the loop only ends through a break
+        if (node.getCondition() != null) {
+            methodVisitor.visitJumpInsn(Opcodes.GOTO, conditionLabel);
+        }
 
-        generate(node.getBody());
-        methodVisitor.visitJumpInsn(Opcodes.GOTO, startLabel);
+        methodVisitor.visitLabel(bodyLabel);
+        generateLoopBody(node.getBody(), endLabel, updateLabel);
+        methodVisitor.visitLabel(updateLabel);
+        if (node.getUpdate() != null) {
+            generateStatement(node.getUpdate());
+        }
 
+        methodVisitor.visitLabel(conditionLabel);
+        if (node.getCondition() != null) {
+            generateCondition(node.getCondition(), bodyLabel, true);
+        } else {
+            methodVisitor.visitJumpInsn(Opcodes.GOTO, bodyLabel);
+        }
         methodVisitor.visitLabel(endLabel);
+        return null;
+    }
+
+    private void generateLoopBody(ASTNode body, Label breakLabel, Label continueLabel) {
+        breakLabels.push(breakLabel);
+        continueLabels.push(continueLabel);
+        generateStatement(body);
+        breakLabels.pop();
+        continueLabels.pop();
     }
 
-    private void generateBlock(BlockNode node) {
+    @Override
+    public Void visit(BreakNode node) {
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, breakLabels.peek());
+        return null;
+    }
+
+    @Override
+    public Void visit(ContinueNode node) {
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, continueLabels.peek());
+        return null;
+    }
+
+    @Override
+    public Void visit(BlockNode node) {
         for (ASTNode statement : node.getStatements()) {
-            generate(statement);
+            generateStatement(statement);
+        }
+        return null;
+    }
+
+    /**
+     * Adds the operands of a String + and of the ones nested in it to the concatenation, left to right, literals as
+     * constants. An operand that is itself a + of two numbers is added up first, as its own part.
+     */
+    private void generateConcatParts(StringConcat concat, ASTNode node) {
+        if (node instanceof BinaryExpressionNode binary && binary.getResolvedType() == Type.STRING) {
+            generateConcatParts(concat, binary.getLeft());
+            generateConcatParts(concat, binary.getRight());
+        } else if (node instanceof StringLiteral literal) {
+            concat.constant(literal.getValue());
+        } else if (node instanceof NumberLiteral literal) {
+            concat.constant(String.valueOf(literal.getValue()));
+        } else if (node instanceof LongLiteral literal) {
+            concat.constant(String.valueOf(literal.getValue()));
+        } else if (node instanceof DoubleLiteral literal) {
+            concat.constant(String.valueOf(literal.getValue()));
+        } else if (node instanceof BooleanLiteral literal) {
+            concat.constant(String.valueOf(literal.getValue()));
+        } else {
+            concat.argument(node.getResolvedType());
+            generate(node);
+        }
+    }
+
+    private static int loadOpcode(Type type) {
+        if (type == Type.VOID) {
+            throw new UnsupportedOperationException("Unsupported variable type: " + type);
+        }
+        return TypedOpcodes.of(type, Opcodes.ILOAD);
+    }
+
+    private static int storeOpcode(Type type) {
+        if (type == Type.VOID) {
+            throw new UnsupportedOperationException("Unsupported variable type: " + type);
+        }
+        return TypedOpcodes.of(type, Opcodes.ISTORE);
+    }
+
+    @Override
+    public Void visit(FunctionDeclarationNode node) {
+        final ForkJoinTask<MethodNode> task = ForkJoinTask.adapt(() -> generateFunction(node));
+        if (parallel) {
+            ForkJoinPool.commonPool().execute(task);
+        } else {
+            task.invoke();
         }
+        functions.add(task);
+        return null;
+    }
+
+    private MethodNode generateFunction(FunctionDeclarationNode node) {
+        final MethodNode function = new MethodNode(
+            Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, node.getName(), descriptor(node), null, null
+        );
+        final CodeGenerator generator = new CodeGenerator(optimize, function, node);
+        function.visitCode();
+        function.visitLabel(generator.entryLabel);
+        generator.generate(node.getBody());
+        // The type checker made sure only a Void function can reach the end of its body
+        if (Type.VOID.getName().equals(node.getReturnType())) {
+            function.visitInsn(Opcodes.RETURN);
+        }
+        function.visitMaxs(0, 0);
+        function.visitEnd();
+
+        if (optimize) {
+            new PeepholeOptimizer().optimize(function);
+        }
+        return function;
+    }
+
+    private static String descriptor(FunctionDeclarationNode node) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (ParameterNode parameter : node.getParameters()) {
+            descriptor.append(Type.fromName(parameter.getType()).getDescriptor());
+        }
+        return descriptor.append(')').append(Type.fromName(node.getReturnType()).getDescriptor()).toString();
+    }
+
+    @Override
+    public Void visit(ReturnNode node) {
+        if (node.getReturnValue() instanceof FunctionCallNode call && function != null
+            && call.getFunctionName().equals(function.getName())) {
+            generateTailCall(call);
+            return null;
+        }
+        if (node.getReturnValue() == null) {
+            methodVisitor.visitInsn(Opcodes.RETURN);
+            return null;
+        }
+
+        generate(node.getReturnValue());
+        methodVisitor.visitInsn(TypedOpcodes.of(node.getReturnValue().getResolvedType(), Opcodes.IRETURN));
+        return null;
+    }
+
+    /**
+     * A function returning the result of calling itself can reuse its frame: the arguments become the new parameter
+     * values and the body starts over. Recursion in tail position then runs in constant stack space and costs a jump
+     * instead of a call. This is done at every optimization level, whether a program overflows the stack must not
+     * depend on it.
+     */
+    private void generateTailCall(FunctionCallNode call) {
+        // All arguments are evaluated before any parameter changes, they may read the parameters
+        for (ASTNode argument : call.getArguments()) {
+            generate(argument);
+        }
+        final List<ParameterNode> parameters = function.getParameters();
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            final Symbol parameter = parameters.get(i).getSymbol();
+            methodVisitor.visitVarInsn(storeOpcode(parameter.getType()), parameter.getSlot());
+        }
+        methodVisitor.visitJumpInsn(Opcodes.GOTO, entryLabel);
+    }
+
+    // Nodes the generator has no bytecode for yet
+    @Override
+    public Void visit(ParameterNode node) {
+        throw unsupported(node);
+    }
+
+    @Override
+    public Void visit(NewLineNode node) {
+        throw unsupported(node);
+    }
+
+    @Override
+    public Void visit(ErrorNode node) {
+        throw unsupported(node);
+    }
+
+    private static UnsupportedOperationException unsupported(ASTNode node) {
+        return new UnsupportedOperationException("Unsupported AST Node: " + node.getClass().getSimpleName());
     }
 
     public byte[] generateClass() {
+        for (ForkJoinTask<MethodNode> function : functions) {
+            function.join().accept(classWriter);
+        }
         classWriter.visitEnd();
         return classWriter.toByteArray();
     }
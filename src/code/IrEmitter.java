@@ -0,0 +1,321 @@
+package code;
+
+import ir.BasicBlock;
+import ir.Constant;
+import ir.Instruction;
+import ir.IrFunction;
+import ir.Opcode;
+import ir.Parameter;
+import ir.Value;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+import semantic.Type;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes the method of an IR function. Every value an instruction computes gets a local variable slot of its own,
+ * except for a pure instruction whose only use is later in the same block, or in the phi copies at its end: that one
+ * is computed right where it is used, straight onto the operand stack, so comparisons feed their branch without a
+ * Bool in between. A phi is set by
+ * its predecessors before they jump to its block; all phis of the block are set at once through the operand stack,
+ * so phis that read each other see the values from before the jump.
+ */
+class IrEmitter {
+    private final IrFunction function;
+    private final MethodNode method;
+    private final Map<BasicBlock, Label> labels = new HashMap<>();
+    private final Map<Value, Integer> slots = new HashMap<>();
+    private final Set<Instruction> deferred = new HashSet<>();
+    private int nextSlot;
+
+    private IrEmitter(IrFunction function, MethodNode method) {
+        this.function = function;
+        this.method = method;
+        // The parameters come first, the main method has the command line arguments there
+        nextSlot = function.isMain() ? 1 : 0;
+        for (Parameter parameter : function.getParameters()) {
+            slots.put(parameter, nextSlot);
+            nextSlot += parameter.getType().getSlotSize();
+        }
+    }
+
+    // Splits the critical edges of the function on the way, phi copies need a block of their own
+    static MethodNode emit(IrFunction function) {
+        final MethodNode method = function.isMain()
+            ? new MethodNode(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null)
+            : new MethodNode(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC, function.getName(), descriptor(function), null, null);
+        function.splitCriticalEdges();
+        new IrEmitter(function, method).emit();
+        return method;
+    }
+
+    private static String descriptor(IrFunction function) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (Parameter parameter : function.getParameters()) {
+            descriptor.append(parameter.getType().getDescriptor());
+        }
+        return descriptor.append(')').append(function.getReturnType().getDescriptor()).toString();
+    }
+
+    private void emit() {
+        final List<BasicBlock> order = function.reversePostorder();
+        for (BasicBlock block : order) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (isDeferrable(instruction)) {
+                    deferred.add(instruction);
+                }
+            }
+        }
+
+        method.visitCode();
+        for (int i = 0; i < order.size(); i++) {
+            final BasicBlock block = order.get(i);
+            final BasicBlock next = i + 1 < order.size() ? order.get(i + 1) : null;
+            method.visitLabel(label(block));
+            for (Instruction instruction : block.getInstructions()) {
+                if (deferred.contains(instruction)) {
+                    continue;
+                }
+                compute(instruction);
+                if (instruction.getType() == Type.VOID) {
+                    continue;
+                }
+                if (instruction.getUsers().isEmpty()) {
+                    method.visitInsn(TypedOpcodes.pop(instruction.getType()));
+                } else {
+                    method.visitVarInsn(storeOpcode(instruction.getType()), slot(instruction));
+                }
+            }
+            emitTerminator(block, next);
+        }
+        method.visitMaxs(0, 0); // computed by the ClassWriter
+        method.visitEnd();
+    }
+
+    // Values in slots never change between their definition and a later use in the same block, so computing a pure
+    // instruction late gives the same result
+    private static boolean isDeferrable(Instruction instruction) {
+        if (!instruction.getOpcode().isPure() || instruction.getUsers().size() != 1) {
+            return false;
+        }
+        final Instruction user = instruction.getUsers().get(0);
+        if (user.getOpcode() != Opcode.PHI) {
+            return user.getBlock() == instruction.getBlock();
+        }
+        // The copies into the phis of the block a jump goes to are made at the end of the jumping block
+        final BasicBlock block = instruction.getBlock();
+        final BasicBlock target = user.getBlock();
+        return block.getTerminator().getOpcode() == Opcode.JUMP && block.getSuccessors().get(0) == target
+            && user.getOperand(target.getPredecessors().indexOf(block)) == instruction;
+    }
+
+    private void emitTerminator(BasicBlock block, BasicBlock next) {
+        final Instruction terminator = block.getTerminator();
+        switch (terminator.getOpcode()) {
+            case JUMP -> {
+                final BasicBlock target = terminator.getTargets().get(0);
+                copyIntoPhis(block, target);
+                if (target != next) {
+                    method.visitJumpInsn(Opcodes.GOTO, label(target));
+                }
+            }
+            case BRANCH -> {
+                final BasicBlock whenTrue = terminator.getTargets().get(0);
+                final BasicBlock whenFalse = terminator.getTargets().get(1);
+                // Jump on whichever way does not fall through
+                if (whenTrue == next) {
+                    emitConditionalJump(terminator.getOperand(0), label(whenFalse), false);
+                } else {
+                    emitConditionalJump(terminator.getOperand(0), label(whenTrue), true);
+                    if (whenFalse != next) {
+                        method.visitJumpInsn(Opcodes.GOTO, label(whenFalse));
+                    }
+                }
+            }
+            case RETURN -> {
+                if (terminator.getOperands().isEmpty()) {
+                    method.visitInsn(Opcodes.RETURN);
+                } else {
+                    final Value value = terminator.getOperand(0);
+                    push(value);
+                    method.visitInsn(TypedOpcodes.of(value.getType(), Opcodes.IRETURN));
+                }
+            }
+            default -> throw new UnsupportedOperationException("Not a terminator: " + terminator.getOpcode());
+        }
+    }
+
+    // All operands are pushed before the first phi is stored, which makes the copies parallel
+    private void copyIntoPhis(BasicBlock predecessor, BasicBlock target) {
+        final List<Instruction> phis = target.getPhis();
+        if (phis.isEmpty()) {
+            return;
+        }
+        final int index = target.getPredecessors().indexOf(predecessor);
+        for (Instruction phi : phis) {
+            push(phi.getOperand(index));
+        }
+        for (int i = phis.size() - 1; i >= 0; i--) {
+            method.visitVarInsn(storeOpcode(phis.get(i).getType()), slot(phis.get(i)));
+        }
+    }
+
+    private void emitConditionalJump(Value condition, Label target, boolean jumpWhen) {
+        if (condition instanceof Instruction instruction && deferred.contains(instruction)) {
+            if (instruction.getOpcode() == Opcode.NOT) {
+                emitConditionalJump(instruction.getOperand(0), target, !jumpWhen);
+                return;
+            }
+            if (instruction.getOpcode().isComparison()) {
+                push(instruction.getOperand(0));
+                // Against an Int 0 the single operand form does
+                final boolean againstZero = instruction.getOperand(1) instanceof Constant constant
+                    && Integer.valueOf(0).equals(constant.getValue());
+                if (!againstZero) {
+                    push(instruction.getOperand(1));
+                }
+                final int opcode = TypedOpcodes.compare(
+                    method, instruction.getOperand(0).getType(), comparisonJump(instruction.getOpcode()), againstZero
+                );
+                method.visitJumpInsn(jumpWhen ? opcode : TypedOpcodes.negate(opcode), target);
+                return;
+            }
+        }
+        push(condition);
+        method.visitJumpInsn(jumpWhen ? Opcodes.IFNE : Opcodes.IFEQ, target);
+    }
+
+    private static int comparisonJump(Opcode opcode) {
+        return switch (opcode) {
+            case LT -> Opcodes.IF_ICMPLT;
+            case LE -> Opcodes.IF_ICMPLE;
+            case GT -> Opcodes.IF_ICMPGT;
+            case GE -> Opcodes.IF_ICMPGE;
+            case EQ -> Opcodes.IF_ICMPEQ;
+            case NE -> Opcodes.IF_ICMPNE;
+            default -> throw new UnsupportedOperationException("Not a comparison: " + opcode);
+        };
+    }
+
+    // Puts a value on the operand stack
+    private void push(Value value) {
+        if (value instanceof Constant constant && constant.getType().isArray()) {
+            TypedOpcodes.pushDefault(method, constant.getType());
+        } else if (value instanceof Constant constant) {
+            final Object literal = constant.getValue();
+            method.visitLdcInsn(literal instanceof Boolean bool ? (bool ? 1 : 0) : literal);
+        } else if (value instanceof Instruction instruction && deferred.contains(instruction)) {
+            compute(instruction);
+        } else {
+            // Parameters have their slots from the start
+            method.visitVarInsn(loadOpcode(value.getType()), slot(value));
+        }
+    }
+
+    // Leaves the result of the instruction on the operand stack, if it has one
+    private void compute(Instruction instruction) {
+        final Opcode opcode = instruction.getOpcode();
+        if (opcode.isComparison()) {
+            // A comparison used as a value, 1 if it holds and 0 if not
+            final Label trueLabel = new Label();
+            final Label endLabel = new Label();
+            push(instruction.getOperand(0));
+            push(instruction.getOperand(1));
+            method.visitJumpInsn(
+                TypedOpcodes.compare(method, instruction.getOperand(0).getType(), comparisonJump(opcode), false), trueLabel
+            );
+            method.visitInsn(Opcodes.ICONST_0);
+            method.visitJumpInsn(Opcodes.GOTO, endLabel);
+            method.visitLabel(trueLabel);
+            method.visitInsn(Opcodes.ICONST_1);
+            method.visitLabel(endLabel);
+            return;
+        }
+        if (opcode == Opcode.CONCAT) {
+            concat(instruction);
+            return;
+        }
+
+        for (Value operand : instruction.getOperands()) {
+            push(operand);
+        }
+        switch (opcode) {
+            case ADD -> method.visitInsn(TypedOpcodes.of(instruction.getType(), Opcodes.IADD));
+            case SUB -> method.visitInsn(TypedOpcodes.of(instruction.getType(), Opcodes.ISUB));
+            case MUL -> method.visitInsn(TypedOpcodes.of(instruction.getType(), Opcodes.IMUL));
+            case DIV -> method.visitInsn(TypedOpcodes.of(instruction.getType(), Opcodes.IDIV));
+            case NEG -> method.visitInsn(TypedOpcodes.of(instruction.getType(), Opcodes.INEG));
+            case NOT -> {
+                method.visitInsn(Opcodes.ICONST_1);
+                method.visitInsn(Opcodes.IXOR);
+            }
+            case STRING_EQUALS -> method.visitMethodInsn(
+                Opcodes.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z", false
+            );
+            case PRINT -> Builtins.print(method, instruction.getOperand(0).getType());
+            case NEW_ARRAY -> TypedOpcodes.newArray(method, instruction.getType(), true);
+            case ARRAY_LENGTH -> Builtins.len(method);
+            case INPUT -> Builtins.input(method, instruction.getCallee(), instruction.getType());
+            case ARRAY_LOAD -> method.visitInsn(TypedOpcodes.of(instruction.getType(), Opcodes.IALOAD));
+            case ARRAY_STORE -> method.visitInsn(TypedOpcodes.of(instruction.getOperand(2).getType(), Opcodes.IASTORE));
+            case CALL -> {
+                final StringBuilder descriptor = new StringBuilder("(");
+                for (Value argument : instruction.getOperands()) {
+                    descriptor.append(argument.getType().getDescriptor());
+                }
+                descriptor.append(')').append(instruction.getType().getDescriptor());
+                method.visitMethodInsn(
+                    Opcodes.INVOKESTATIC, CodeGenerator.CLASS_NAME, instruction.getCallee(), descriptor.toString(), false
+                );
+            }
+            default -> throw new UnsupportedOperationException("Unsupported instruction: " + opcode);
+        }
+    }
+
+    // Constant operands go into the recipe rather than onto the stack
+    private void concat(Instruction instruction) {
+        final StringConcat concat = new StringConcat(method);
+        for (Value operand : instruction.getOperands()) {
+            if (operand instanceof Constant constant) {
+                concat.constant(String.valueOf(constant.getValue()));
+            } else {
+                concat.argument(operand.getType());
+                push(operand);
+            }
+        }
+        concat.finish();
+    }
+
+    private Label label(BasicBlock block) {
+        return labels.computeIfAbsent(block, key -> new Label());
+    }
+
+    // Long and Double values take two slots
+    private int slot(Value value) {
+        return slots.computeIfAbsent(value, key -> {
+            final int slot = nextSlot;
+            nextSlot += key.getType().getSlotSize();
+            return slot;
+        });
+    }
+
+    private static int loadOpcode(Type type) {
+        if (type == Type.VOID) {
+            throw new UnsupportedOperationException("Unsupported variable type: " + type);
+        }
+        return TypedOpcodes.of(type, Opcodes.ILOAD);
+    }
+
+    private static int storeOpcode(Type type) {
+        if (type == Type.VOID) {
+            throw new UnsupportedOperationException("Unsupported variable type: " + type);
+        }
+        return TypedOpcodes.of(type, Opcodes.ISTORE);
+    }
+}
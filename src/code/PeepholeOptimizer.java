@@ -0,0 +1,375 @@
+package code;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Rewrites short instruction sequences of a generated method into cheaper ones with the same effect: the smallest
+ * instruction for every int constant, `iinc` for adding a constant to a local, shifts for multiplying by a power of
+ * two, jumps to jumps and jumps over jumps threaded, and loads and stores that cancel out removed. Rules run until
+ * none applies, since one rewrite often exposes the next. Stack map frames are left to the ClassWriter.
+ */
+public class PeepholeOptimizer {
+    public void optimize(MethodNode method) {
+        final InsnList instructions = method.instructions;
+        boolean changed;
+        do {
+            changed = false;
+            for (AbstractInsnNode instruction = instructions.getFirst(); instruction != null; ) {
+                // Rewrites only touch the instruction and the ones after it, so the one before is still in place
+                final AbstractInsnNode previous = instruction.getPrevious();
+                if (rewrite(instructions, instruction)) {
+                    changed = true;
+                    instruction = previous != null ? previous.getNext() : instructions.getFirst();
+                } else {
+                    instruction = instruction.getNext();
+                }
+            }
+            changed |= removeUnreachable(method);
+        } while (changed);
+    }
+
+    private boolean rewrite(InsnList instructions, AbstractInsnNode instruction) {
+        return selectConstant(instructions, instruction)
+            || fuseIncrement(instructions, instruction)
+            || reduceArithmetic(instructions, instruction)
+            || removeCancellingPair(instructions, instruction)
+            || threadJump(instructions, instruction);
+    }
+
+    // `ldc 5` becomes `iconst_5`, `bipush` and `sipush` cover the rest of the short range, Long and Double 0 and 1
+    // have constant instructions too
+    private static boolean selectConstant(InsnList instructions, AbstractInsnNode instruction) {
+        if (!(instruction instanceof LdcInsnNode ldc)) {
+            return false;
+        }
+        if (ldc.cst instanceof Integer value && value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            instructions.set(instruction, pushInt(value));
+            return true;
+        }
+        if (ldc.cst instanceof Long value && (value == 0 || value == 1)) {
+            instructions.set(instruction, new InsnNode(Opcodes.LCONST_0 + value.intValue()));
+            return true;
+        }
+        // Double.equals compares the bits, -0.0 keeps its ldc
+        if (Double.valueOf(0.0).equals(ldc.cst) || Double.valueOf(1.0).equals(ldc.cst)) {
+            instructions.set(instruction, new InsnNode(Opcodes.DCONST_0 + ((Double) ldc.cst).intValue()));
+            return true;
+        }
+        return false;
+    }
+
+    // `iload x, <c>, iadd, istore x` is `iinc x c`, and so is the subtraction of -c
+    private static boolean fuseIncrement(InsnList instructions, AbstractInsnNode instruction) {
+        if (instruction.getOpcode() != Opcodes.ILOAD) {
+            return false;
+        }
+        final AbstractInsnNode constant = instruction.getNext();
+        final AbstractInsnNode operation = next(constant);
+        final AbstractInsnNode store = next(operation);
+        final Integer value = intConstant(constant);
+        if (value == null || store == null || store.getOpcode() != Opcodes.ISTORE
+            || ((VarInsnNode) store).var != ((VarInsnNode) instruction).var) {
+            return false;
+        }
+
+        final int increment;
+        if (operation.getOpcode() == Opcodes.IADD) {
+            increment = value;
+        } else if (operation.getOpcode() == Opcodes.ISUB && value != Integer.MIN_VALUE) {
+            increment = -value;
+        } else {
+            return false;
+        }
+        if (increment < Short.MIN_VALUE || increment > Short.MAX_VALUE) {
+            return false;
+        }
+
+        // Adding 0 leaves nothing to do at all
+        if (increment != 0) {
+            instructions.insertBefore(instruction, new IincInsnNode(((VarInsnNode) instruction).var, increment));
+        }
+        remove(instructions, instruction, constant, operation, store);
+        return true;
+    }
+
+    /**
+     * Arithmetic with a constant right operand: multiplying by a power of two shifts, adding or subtracting 0 and
+     * multiplying or dividing by 1 go away. Division by a power of two stays, a shift rounds negative numbers the
+     * wrong way.
+     */
+    private static boolean reduceArithmetic(InsnList instructions, AbstractInsnNode instruction) {
+        final Integer value = intConstant(instruction);
+        final AbstractInsnNode operation = next(instruction);
+        if (value == null || operation == null) {
+            return false;
+        }
+
+        switch (operation.getOpcode()) {
+            case Opcodes.ILOAD -> {
+                // `2 * x` is `x * 2`, with the constant on the right the cases below apply
+                if (value != 0 && (value & (value - 1)) == 0 && next(operation) != null
+                    && next(operation).getOpcode() == Opcodes.IMUL) {
+                    instructions.remove(instruction);
+                    instructions.insert(operation, instruction);
+                    return true;
+                }
+                return false;
+            }
+            case Opcodes.IMUL -> {
+                if (value == 1) {
+                    remove(instructions, instruction, operation);
+                    return true;
+                }
+                if (value != 0 && (value & (value - 1)) == 0) {
+                    instructions.set(instruction, pushInt(Integer.numberOfTrailingZeros(value)));
+                    instructions.set(operation, new InsnNode(Opcodes.ISHL));
+                    return true;
+                }
+                return false;
+            }
+            case Opcodes.IADD, Opcodes.ISUB -> {
+                if (value == 0) {
+                    remove(instructions, instruction, operation);
+                    return true;
+                }
+                return false;
+            }
+            case Opcodes.IDIV -> {
+                if (value == 1) {
+                    remove(instructions, instruction, operation);
+                    return true;
+                }
+                return false;
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    // A value pushed and popped right away, and a local stored back into itself, do nothing
+    private static boolean removeCancellingPair(InsnList instructions, AbstractInsnNode instruction) {
+        final AbstractInsnNode next = next(instruction);
+        if (next == null) {
+            return false;
+        }
+
+        final int opcode = instruction.getOpcode();
+        final boolean pushOnly = intConstant(instruction) != null || instruction instanceof LdcInsnNode
+            || opcode == Opcodes.ILOAD || opcode == Opcodes.ALOAD || opcode == Opcodes.DUP;
+        // Long and Double values take two stack words, pop2 drops them
+        final boolean pushOnlyWide = opcode == Opcodes.LLOAD || opcode == Opcodes.DLOAD
+            || opcode == Opcodes.LCONST_0 || opcode == Opcodes.LCONST_1
+            || opcode == Opcodes.DCONST_0 || opcode == Opcodes.DCONST_1 || opcode == Opcodes.DUP2
+            || instruction instanceof LdcInsnNode ldc && (ldc.cst instanceof Long || ldc.cst instanceof Double);
+        if (pushOnly && next.getOpcode() == Opcodes.POP || pushOnlyWide && next.getOpcode() == Opcodes.POP2) {
+            remove(instructions, instruction, next);
+            return true;
+        }
+
+        // istore..astore are in the same order as iload..aload
+        if (instruction instanceof VarInsnNode load && next instanceof VarInsnNode store && load.var == store.var
+            && opcode >= Opcodes.ILOAD && opcode <= Opcodes.ALOAD && store.getOpcode() == opcode + Opcodes.ISTORE - Opcodes.ILOAD) {
+            remove(instructions, instruction, next);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean threadJump(InsnList instructions, AbstractInsnNode instruction) {
+        if (!(instruction instanceof JumpInsnNode jump)) {
+            return false;
+        }
+
+        // A jump to a goto can go where the goto goes
+        final LabelNode destination = finalDestination(jump.label);
+        if (destination != jump.label) {
+            jump.label = destination;
+            return true;
+        }
+        final AbstractInsnNode target = firstAfter(jump.label);
+
+        // A goto to a return can return right away
+        if (jump.getOpcode() == Opcodes.GOTO && target != null && isReturn(target.getOpcode())) {
+            instructions.set(jump, new InsnNode(target.getOpcode()));
+            return true;
+        }
+
+        // A jump to the instruction that follows anyway
+        if (firstAfter(jump) == target && target != null) {
+            if (jump.getOpcode() == Opcodes.GOTO) {
+                instructions.remove(jump);
+                return true;
+            }
+            return false;
+        }
+
+        // `if<cond> a; goto b; a:` is `if<!cond> b; a:`
+        final AbstractInsnNode following = jump.getNext();
+        final int inverted = invert(jump.getOpcode());
+        if (inverted >= 0 && following instanceof JumpInsnNode jumpOver && jumpOver.getOpcode() == Opcodes.GOTO
+            && firstAfter(jumpOver) == target) {
+            jump.setOpcode(inverted);
+            jump.label = jumpOver.label;
+            instructions.remove(jumpOver);
+            return true;
+        }
+        return false;
+    }
+
+    // Follows a chain of gotos to its end, or stays put if the chain is a loop
+    private static LabelNode finalDestination(LabelNode label) {
+        final Set<LabelNode> seen = new HashSet<>();
+        LabelNode destination = label;
+        while (seen.add(destination)) {
+            if (!(firstAfter(destination) instanceof JumpInsnNode next) || next.getOpcode() != Opcodes.GOTO) {
+                return destination;
+            }
+            destination = next.label;
+        }
+        return label;
+    }
+
+    // Drops the instructions after a goto, return or throw that no jump reaches, and the labels nothing refers to
+    private static boolean removeUnreachable(MethodNode method) {
+        final Set<LabelNode> referenced = referencedLabels(method);
+        final InsnList instructions = method.instructions;
+        boolean changed = false;
+        boolean reachable = true;
+        for (AbstractInsnNode instruction = instructions.getFirst(); instruction != null; ) {
+            final AbstractInsnNode next = instruction.getNext();
+            if (instruction instanceof LabelNode label) {
+                if (referenced.contains(label)) {
+                    reachable = true;
+                } else {
+                    instructions.remove(label);
+                    changed = true;
+                }
+            } else if (!reachable && instruction.getOpcode() >= 0) {
+                instructions.remove(instruction);
+                changed = true;
+            } else if (instruction.getOpcode() == Opcodes.GOTO || instruction.getOpcode() == Opcodes.ATHROW
+                || isReturn(instruction.getOpcode())) {
+                reachable = false;
+            }
+            instruction = next;
+        }
+        return changed;
+    }
+
+    private static Set<LabelNode> referencedLabels(MethodNode method) {
+        final Set<LabelNode> referenced = new HashSet<>();
+        for (AbstractInsnNode instruction : method.instructions) {
+            if (instruction instanceof JumpInsnNode jump) {
+                referenced.add(jump.label);
+            } else if (instruction instanceof TableSwitchInsnNode tableSwitch) {
+                referenced.add(tableSwitch.dflt);
+                referenced.addAll(tableSwitch.labels);
+            } else if (instruction instanceof LookupSwitchInsnNode lookupSwitch) {
+                referenced.add(lookupSwitch.dflt);
+                referenced.addAll(lookupSwitch.labels);
+            } else if (instruction instanceof LineNumberNode lineNumber) {
+                referenced.add(lineNumber.start);
+            }
+        }
+        if (method.tryCatchBlocks != null) {
+            for (TryCatchBlockNode block : method.tryCatchBlocks) {
+                referenced.add(block.start);
+                referenced.add(block.end);
+                referenced.add(block.handler);
+            }
+        }
+        if (method.localVariables != null) {
+            for (LocalVariableNode variable : method.localVariables) {
+                referenced.add(variable.start);
+                referenced.add(variable.end);
+            }
+        }
+        return referenced;
+    }
+
+    // The next node if it is a real instruction, patterns never reach across a label
+    private static AbstractInsnNode next(AbstractInsnNode instruction) {
+        if (instruction == null) {
+            return null;
+        }
+        final AbstractInsnNode next = instruction.getNext();
+        return next != null && next.getOpcode() >= 0 ? next : null;
+    }
+
+    // The first real instruction after a node, skipping labels, line numbers and frames
+    private static AbstractInsnNode firstAfter(AbstractInsnNode node) {
+        AbstractInsnNode next = node.getNext();
+        while (next != null && next.getOpcode() < 0) {
+            next = next.getNext();
+        }
+        return next;
+    }
+
+    private static Integer intConstant(AbstractInsnNode instruction) {
+        if (instruction == null) {
+            return null;
+        }
+        final int opcode = instruction.getOpcode();
+        if (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) {
+            return opcode - Opcodes.ICONST_0;
+        }
+        if (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH) {
+            return ((IntInsnNode) instruction).operand;
+        }
+        if (instruction instanceof LdcInsnNode ldc && ldc.cst instanceof Integer value) {
+            return value;
+        }
+        return null;
+    }
+
+    static AbstractInsnNode pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            return new InsnNode(Opcodes.ICONST_0 + value);
+        }
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return new IntInsnNode(Opcodes.BIPUSH, value);
+        }
+        if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return new IntInsnNode(Opcodes.SIPUSH, value);
+        }
+        return new LdcInsnNode(value);
+    }
+
+    private static boolean isReturn(int opcode) {
+        return opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN;
+    }
+
+    // The jump taken exactly when the given one is not, or -1 for goto and other jumps
+    private static int invert(int opcode) {
+        return switch (opcode) {
+            case Opcodes.IFEQ -> Opcodes.IFNE;
+            case Opcodes.IFNE -> Opcodes.IFEQ;
+            case Opcodes.IFLT -> Opcodes.IFGE;
+            case Opcodes.IFGE -> Opcodes.IFLT;
+            case Opcodes.IFGT -> Opcodes.IFLE;
+            case Opcodes.IFLE -> Opcodes.IFGT;
+            case Opcodes.IF_ICMPEQ -> Opcodes.IF_ICMPNE;
+            case Opcodes.IF_ICMPNE -> Opcodes.IF_ICMPEQ;
+            case Opcodes.IF_ICMPLT -> Opcodes.IF_ICMPGE;
+            case Opcodes.IF_ICMPGE -> Opcodes.IF_ICMPLT;
+            case Opcodes.IF_ICMPGT -> Opcodes.IF_ICMPLE;
+            case Opcodes.IF_ICMPLE -> Opcodes.IF_ICMPGT;
+            case Opcodes.IF_ACMPEQ -> Opcodes.IF_ACMPNE;
+            case Opcodes.IF_ACMPNE -> Opcodes.IF_ACMPEQ;
+            case Opcodes.IFNULL -> Opcodes.IFNONNULL;
+            case Opcodes.IFNONNULL -> Opcodes.IFNULL;
+            default -> -1;
+        };
+    }
+
+    private static void remove(InsnList instructions, AbstractInsnNode... removed) {
+        for (AbstractInsnNode instruction : removed) {
+            instructions.remove(instruction);
+        }
+    }
+}
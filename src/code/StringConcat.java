@@ -0,0 +1,100 @@
+package code;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import semantic.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the parts of a concatenation and joins them with a single invokedynamic call to
+ * StringConcatFactory.makeConcatWithConstants, which sizes the result once and copies every part straight into it.
+ * Constant parts go into the recipe, every other part is an argument of the call, pushed by the caller right after
+ * announcing it with {@link #argument}. A call takes at most 200 argument slots, a longer concatenation is joined in
+ * pieces, each one the first argument of the next.
+ */
+final class StringConcat {
+    private static final Handle BOOTSTRAP = new Handle(
+        Opcodes.H_INVOKESTATIC,
+        "java/lang/invoke/StringConcatFactory",
+        "makeConcatWithConstants",
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;"
+            + "[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;",
+        false
+    );
+    private static final int MAX_SLOTS = 200;
+    // Tags of the recipe, a constant that contains one of them is passed separately
+    private static final char ARGUMENT = '\1';
+    private static final char CONSTANT = '\2';
+
+    private final MethodVisitor method;
+    private final StringBuilder recipe = new StringBuilder();
+    private final StringBuilder descriptor = new StringBuilder("(");
+    private final List<Object> constants = new ArrayList<>();
+    // The constant parts joined, what the result is when there are no arguments
+    private final StringBuilder constantText = new StringBuilder();
+    private int slots;
+    private boolean hasArguments;
+
+    StringConcat(MethodVisitor method) {
+        this.method = method;
+    }
+
+    // A part known at compile time
+    void constant(String value) {
+        constantText.append(value);
+        if (value.indexOf(ARGUMENT) >= 0 || value.indexOf(CONSTANT) >= 0) {
+            recipe.append(CONSTANT);
+            constants.add(value);
+        } else {
+            recipe.append(value);
+        }
+    }
+
+    // A part of the type the caller pushes next, a Bool shows as true or false
+    void argument(Type type) {
+        if (type == Type.VOID || type.isArray()) {
+            throw new UnsupportedOperationException("Cannot concatenate " + type);
+        }
+        if (slots + type.getSlotSize() > MAX_SLOTS) {
+            finish();
+            argument(Type.STRING);
+        }
+        recipe.append(ARGUMENT);
+        descriptor.append(type.getDescriptor());
+        slots += type.getSlotSize();
+        hasArguments = true;
+    }
+
+    // Replaces the arguments on the stack with the joined String, which is a plain constant without any
+    void finish() {
+        if (hasArguments) {
+            method.visitInvokeDynamicInsn(
+                "makeConcatWithConstants",
+                descriptor.append(")Ljava/lang/String;").toString(),
+                BOOTSTRAP,
+                prepend(recipe.toString(), constants)
+            );
+        } else {
+            method.visitLdcInsn(constantText.toString());
+        }
+        recipe.setLength(0);
+        constantText.setLength(0);
+        descriptor.setLength(0);
+        descriptor.append('(');
+        constants.clear();
+        slots = 0;
+        hasArguments = false;
+    }
+
+    private static Object[] prepend(String recipe, List<Object> constants) {
+        final Object[] arguments = new Object[constants.size() + 1];
+        arguments[0] = recipe;
+        for (int i = 0; i < constants.size(); i++) {
+            arguments[i + 1] = constants.get(i);
+        }
+        return arguments;
+    }
+}
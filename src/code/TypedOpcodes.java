@@ -0,0 +1,98 @@
+package code;
+
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import semantic.Type;
+
+/**
+ * The JVM has an instruction of every kind per primitive type: iadd, ladd, dadd and so on. These pick the one for a
+ * type from the int form, the way ASM's own Type does. Long and Double compare to an int with lcmp and dcmpl/dcmpg
+ * first, and take two local variable slots and two stack words.
+ */
+final class TypedOpcodes {
+    private TypedOpcodes() { }
+
+    // The form of an int opcode like ILOAD, IADD or IRETURN for the type
+    static int of(Type type, int intOpcode) {
+        return org.objectweb.asm.Type.getType(type.getDescriptor()).getOpcode(intOpcode);
+    }
+
+    // Drops a value of the type from the operand stack
+    static int pop(Type type) {
+        return type.getSlotSize() == 2 ? Opcodes.POP2 : Opcodes.POP;
+    }
+
+    // The constant 1 of a numeric type, for ++ and --
+    static int one(Type type) {
+        return switch (type) {
+            case LONG -> Opcodes.LCONST_1;
+            case DOUBLE -> Opcodes.DCONST_1;
+            default -> Opcodes.ICONST_1;
+        };
+    }
+
+    // Pushes the value a variable declared without one starts with, an array variable starts out empty
+    static void pushDefault(MethodVisitor method, Type type) {
+        if (type.isArray()) {
+            method.visitInsn(Opcodes.ICONST_0);
+            newArray(method, type, false);
+            return;
+        }
+        switch (type) {
+            case STRING -> method.visitLdcInsn("");
+            case LONG -> method.visitInsn(Opcodes.LCONST_0);
+            case DOUBLE -> method.visitInsn(Opcodes.DCONST_0);
+            default -> method.visitInsn(Opcodes.ICONST_0);
+        }
+    }
+
+    /**
+     * Replaces the length on the stack with a new array of the type. The JVM fills it with zeros and false, and
+     * with null for String elements, which get the empty string a String variable starts with instead, unless the
+     * array is known to be empty.
+     */
+    static void newArray(MethodVisitor method, Type type, boolean fill) {
+        switch (type) {
+            case INT_ARRAY -> method.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_INT);
+            case LONG_ARRAY -> method.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_LONG);
+            case DOUBLE_ARRAY -> method.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_DOUBLE);
+            case BOOL_ARRAY -> method.visitIntInsn(Opcodes.NEWARRAY, Opcodes.T_BOOLEAN);
+            case STRING_ARRAY -> {
+                method.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/String");
+                if (fill) {
+                    method.visitInsn(Opcodes.DUP);
+                    method.visitLdcInsn("");
+                    method.visitMethodInsn(
+                        Opcodes.INVOKESTATIC, "java/util/Arrays", "fill", "([Ljava/lang/Object;Ljava/lang/Object;)V", false
+                    );
+                }
+            }
+            default -> throw new UnsupportedOperationException("Not an array type: " + type);
+        }
+    }
+
+    /**
+     * Turns the if_icmp jump of a comparison as written into the jump for two operands of the type on the stack, or
+     * one int operand compared against 0. Long and Double are compared first, ifeq..ifle then test the result.
+     * NaN must make every comparison but != false: dcmpg gives 1 for it, which fails < and <=, and dcmpl gives -1,
+     * which fails > and >=.
+     */
+    static int compare(MethodVisitor method, Type type, int jump, boolean againstZero) {
+        switch (type) {
+            case LONG -> method.visitInsn(Opcodes.LCMP);
+            case DOUBLE -> method.visitInsn(jump == Opcodes.IF_ICMPLT || jump == Opcodes.IF_ICMPLE ? Opcodes.DCMPG : Opcodes.DCMPL);
+            default -> {
+                if (!againstZero) {
+                    return jump;
+                }
+            }
+        }
+        // ifeq..ifle are in the same order as if_icmpeq..if_icmple
+        return jump - Opcodes.IF_ICMPEQ + Opcodes.IFEQ;
+    }
+
+    // The jump taken exactly when the given one is not, they come in pairs of opposites: eq/ne, lt/ge, gt/le
+    static int negate(int jump) {
+        return Opcodes.IFEQ + ((jump - Opcodes.IFEQ) ^ 1);
+    }
+}
@@ -1,22 +1,75 @@
 package compiler;
 
 import code.CodeGenerator;
+import descript.runtime.In;
+import descript.runtime.Out;
+import ir.IrBuilder;
+import ir.IrModule;
+import ir.PassManager;
 import lexer.Lexer;
-import lexer.token.Token;
+import lexer.TokenBuffer;
+import optimizer.Optimizer;
 import parser.ErrorHandler;
+import parser.ParallelParser;
 import parser.Parser;
 import parser.variables.SymbolTable;
 import parser.nodes.ASTNode;
+import semantic.ScopeResolver;
+import semantic.TypeChecker;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class DescriptCompiler {
+    // The classes compiled programs call into, copied into every jar from the compiler's own class path
+    private static final List<Class<?>> RUNTIME_CLASSES = List.of(Out.class, In.class);
+    // The parser keeps nested expressions off the call stack, the passes after it still recurse once per level, so
+    // the compiler gets a stack deep enough for generated expressions nested a hundred thousand levels deep
+    private static final long COMPILER_STACK_SIZE = 256L << 20;
+
     public static void run(String[] args) {
+        onCompilerStack(() -> {
+            runCommand(args);
+            return null;
+        });
+    }
+
+    // Runs the work on a thread with the compiler's stack and passes its result or exception on to the caller
+    static <T> T onCompilerStack(Supplier<T> work) {
+        final FutureTask<T> task = new FutureTask<>(work::get);
+        new Thread(null, task, "descript-compiler", COMPILER_STACK_SIZE).start();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while compiling", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void runCommand(String[] args) {
         if (args.length < 1) {
             System.out.println("Usage: Descript <command>");
             return;
@@ -24,18 +77,81 @@ public class DescriptCompiler {
 
         String command = args[0];
         if ("build".equals(command)) {
-            if (args.length != 3) {
-                System.out.println("Usage: Descript build <src.ds> <output_name>");
+            final List<String> options = new ArrayList<>();
+            final List<String> operands = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                (args[i].startsWith("-") ? options : operands).add(args[i]);
+            }
+
+            if (operands.size() != 2) {
+                System.out.println("Usage: Descript build [-O<level>] [--inline-limit=<nodes>] [--explain-opt] [--ir] [--time-passes] [--parallel-lex] [--parallel-parse] [--parallel-codegen] <src.ds> <output_name>");
                 return;
             }
-            final String inputFile = args[1];
+            boolean parallelLexing = false;
+            boolean parallelParsing = false;
+            boolean parallelCodegen = false;
+            boolean explainOptimizations = false;
+            boolean irCodegen = false;
+            boolean timePasses = false;
+            int optimizationLevel = Optimizer.DEFAULT_LEVEL;
+            int inlineLimit = Optimizer.DEFAULT_INLINE_LIMIT;
+            for (String option : options) {
+                if (option.matches("-O\\d+")) {
+                    optimizationLevel = Integer.parseInt(option.substring(2));
+                    if (optimizationLevel > Optimizer.MAX_LEVEL) {
+                        System.out.println("Optimization level must be between 0 and " + Optimizer.MAX_LEVEL);
+                        return;
+                    }
+                } else if (option.matches("--inline-limit=\\d+")) {
+                    inlineLimit = Integer.parseInt(option.substring("--inline-limit=".length()));
+                } else if ("--explain-opt".equals(option)) {
+                    explainOptimizations = true;
+                } else if ("--ir".equals(option)) {
+                    irCodegen = true;
+                } else if ("--time-passes".equals(option)) {
+                    timePasses = true;
+                } else if ("--parallel-lex".equals(option)) {
+                    parallelLexing = true;
+                } else if ("--parallel-parse".equals(option)) {
+                    parallelParsing = true;
+                } else if ("--parallel-codegen".equals(option)) {
+                    parallelCodegen = true;
+                } else {
+                    System.out.println("Unknown option: " + option);
+                    return;
+                }
+            }
+
+            final String inputFile = operands.get(0);
             final String outputClassFile = "GeneratedClass.class";
-            final String outputJarFile = args[2] + ".jar";
+            final String outputJarFile = operands.get(1) + ".jar";
 
+            Path runtimeDirectory = null;
             try {
-                final String sourceCode = Files.readString(Path.of(inputFile));
+                final ErrorHandler errorHandler = new ErrorHandler();
+                final ASTNode tree;
+                if (parallelLexing || parallelParsing) {
+                    // Both need the whole source in memory, to split it or to find the functions in it
+                    final TokenBuffer tokens = Lexer.tokenize(mapSource(inputFile), parallelLexing);
+                    tree = parallelParsing
+                        ? new ParallelParser(tokens, errorHandler).parse()
+                        : new Parser(tokens.stream(), errorHandler).parse();
+                } else {
+                    try (Reader sourceReader = Files.newBufferedReader(Path.of(inputFile))) {
+                        // The lexer pulls characters from the reader as the parser asks for tokens
+                        tree = new Parser(new Lexer(sourceReader), errorHandler).parse();
+                    }
+                }
 
-                Process jarProcess = compileAndCreateJar(sourceCode, outputJarFile);
+                final Optimizer optimizer = new Optimizer(
+                    optimizationLevel,
+                    inlineLimit,
+                    explainOptimizations ? System.out::println : explanation -> { }
+                );
+                runtimeDirectory = Files.createTempDirectory("descript-runtime");
+                final Process jarProcess = compileAndCreateJar(
+                    tree, errorHandler, optimizer, parallelCodegen, irCodegen, timePasses, outputJarFile, runtimeDirectory
+                );
                 if (jarProcess == null)
                     return;
                 jarProcess.waitFor();
@@ -47,6 +163,10 @@ public class DescriptCompiler {
                 System.out.println("JAR file created: " + outputJarFile);
             } catch (IOException | InterruptedException e) {
                 e.printStackTrace();
+            } finally {
+                if (runtimeDirectory != null) {
+                    deleteDirectory(runtimeDirectory);
+                }
             }
         } else if (command.equals("run")) {
             if (args.length != 2) {
@@ -67,7 +187,7 @@ public class DescriptCompiler {
                 e.printStackTrace();
             }
         } else if (command.equals("help")) {
-            System.out.println("Descript build <src.ds> <output_name>");
+            System.out.println("Descript build [-O<level>] [--inline-limit=<nodes>] [--explain-opt] [--ir] [--time-passes] [--parallel-lex] [--parallel-parse] [--parallel-codegen] <src.ds> <output_name>");
             System.out.println("Descript run <file.jar>");
         } else {
             System.out.println("Unknown command: " + command);
@@ -75,34 +195,101 @@ public class DescriptCompiler {
         }
     }
 
-    private static Process compileAndCreateJar(String sourceCode, String outputJarFile) throws IOException {
-        final Lexer lexer = new Lexer(sourceCode);
-        final List<Token> tokens = lexer.tokenize();
-
-        final ErrorHandler errorHandler = new ErrorHandler();
-        final SymbolTable symbolTable = new SymbolTable();
-        final Parser parser = new Parser(tokens, errorHandler, symbolTable);
-        final ASTNode tree = parser.parse();
+    private static CharBuffer mapSource(String inputFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(inputFile))) {
+            return StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
 
-        if (errorHandler.hasErrors()) {
+    private static Process compileAndCreateJar(
+        ASTNode tree,
+        ErrorHandler errorHandler,
+        Optimizer optimizer,
+        boolean parallelCodegen,
+        boolean irCodegen,
+        boolean timePasses,
+        String outputJarFile,
+        Path runtimeDirectory
+    ) throws IOException {
+        final byte[] bytecode = compile(tree, errorHandler, optimizer, parallelCodegen, irCodegen, timePasses);
+        if (bytecode == null) {
             errorHandler.printErrors();
             return null;
         }
 
-        CodeGenerator codeGenerator = new CodeGenerator(symbolTable);
-        codeGenerator.startMainMethod();
-        codeGenerator.generate(tree);
-        codeGenerator.endMainMethod();
-        byte[] bytecode = codeGenerator.generateClass();
-
         try (FileOutputStream fos = new FileOutputStream("GeneratedClass.class")) {
             fos.write(bytecode);
         }
 
+        writeRuntime(runtimeDirectory);
         ProcessBuilder jarProcessBuilder = new ProcessBuilder(
-            "jar", "cfe", outputJarFile, "GeneratedClass", "GeneratedClass.class"
+            "jar", "cfe", outputJarFile, "GeneratedClass", "GeneratedClass.class", "-C", runtimeDirectory.toString(), "descript"
         );
         jarProcessBuilder.inheritIO();
         return jarProcessBuilder.start();
     }
+
+    // Runs the passes after parsing and returns the GeneratedClass class file, or null if the error handler has errors
+    static byte[] compile(
+        ASTNode tree,
+        ErrorHandler errorHandler,
+        Optimizer optimizer,
+        boolean parallelCodegen,
+        boolean irCodegen,
+        boolean timePasses
+    ) {
+        if (errorHandler.hasErrors()) {
+            return null;
+        }
+
+        // Type checking and code generation work on the symbols and types these passes store on the tree
+        final SymbolTable symbolTable = new SymbolTable();
+        new ScopeResolver(errorHandler, symbolTable).resolve(tree);
+        new TypeChecker(errorHandler).check(tree);
+        if (errorHandler.hasErrors()) {
+            return null;
+        }
+
+        CodeGenerator codeGenerator = new CodeGenerator(optimizer.getLevel() >= 1, parallelCodegen);
+        final ASTNode optimized = optimizer.optimize(tree, symbolTable);
+        if (irCodegen) {
+            // The tree is lowered to SSA form, the IR passes run on that and the bytecode is written from it
+            final IrModule module = IrBuilder.build(optimized);
+            final PassManager passes = optimizer.createPassManager();
+            passes.run(module);
+            if (timePasses) {
+                passes.report(System.out::println);
+            }
+            codeGenerator.generate(module);
+        } else {
+            codeGenerator.startMainMethod();
+            codeGenerator.generate(optimized);
+            codeGenerator.endMainMethod();
+        }
+        return codeGenerator.generateClass();
+    }
+
+    // Lays out the runtime classes in their package directories, the way the jar tool takes them
+    static void writeRuntime(Path directory) throws IOException {
+        for (Class<?> runtimeClass : RUNTIME_CLASSES) {
+            final String resource = runtimeClass.getName().replace('.', '/') + ".class";
+            final Path target = directory.resolve(resource);
+            Files.createDirectories(target.getParent());
+            try (InputStream classFile = DescriptCompiler.class.getClassLoader().getResourceAsStream(resource)) {
+                if (classFile == null) {
+                    throw new IOException("Runtime class not found: " + resource);
+                }
+                Files.copy(classFile, target);
+            }
+        }
+    }
+
+    static void deleteDirectory(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            // Contents before the directories that hold them
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.out.println("Could not delete temp files");
+        }
+    }
 }
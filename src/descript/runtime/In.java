@@ -0,0 +1,237 @@
+package descript.runtime;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Standard input of compiled programs, behind the input, inputInt and inputDouble builtins. Reads the channel of
+ * stdin into one reusable byte buffer and parses numbers straight from the bytes. input returns the rest of the
+ * current line. inputInt and inputDouble skip whitespace, read one number and the whitespace character after it, so
+ * a number on a line of its own leaves the next input at the next line. Before blocking on a read, whatever was
+ * printed is flushed, so a prompt shows up before the program waits for its answer. Programs are single threaded,
+ * nothing here is synchronized.
+ */
+public final class In {
+    private static final int CAPACITY = 1 << 16;
+    // Up to this many significant digits, and powers of ten up to 10^22, a Double is exact from a long and a double
+    private static final int EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final FileChannel channel = new FileInputStream(FileDescriptor.in).getChannel();
+    private static final byte[] buffer = new byte[CAPACITY];
+    private static final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+    // The characters of the Double being read, for the numbers that go through Double.parseDouble
+    private static byte[] token = new byte[64];
+    private static int tokenLength;
+    private static int position;
+    private static int limit;
+    // Set once a read found the end of stdin
+    private static boolean ended;
+
+    private In() { }
+
+    // The rest of the current line without its line break, the empty string at the end of the input
+    public static String input() {
+        byte[] line = null;
+        int length = 0;
+        while (fill()) {
+            int end = position;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            // A line that does not end in this buffer is collected across refills
+            final int count = end - position;
+            if (line == null && end < limit) {
+                final String text = decode(buffer, position, stripCarriageReturn(buffer, position, count));
+                position = end + 1;
+                return text;
+            }
+            if (line == null || length + count > line.length) {
+                final byte[] grown = new byte[Math.max(2 * (length + count), 64)];
+                if (line != null) {
+                    System.arraycopy(line, 0, grown, 0, length);
+                }
+                line = grown;
+            }
+            System.arraycopy(buffer, position, line, length, count);
+            length += count;
+            position = end;
+            if (end < limit) {
+                position++;
+                break;
+            }
+        }
+        return line == null ? "" : decode(line, 0, stripCarriageReturn(line, 0, length));
+    }
+
+    public static int inputInt() {
+        skipWhitespace();
+        if (!fill()) {
+            throw new NumberFormatException("No Int left in the input");
+        }
+        // Accumulated negative, which unlike the positive value also holds Integer.MIN_VALUE
+        final boolean negative = buffer[position] == '-';
+        if (negative || buffer[position] == '+') {
+            position++;
+        }
+        int value = 0;
+        int digits = 0;
+        while (fill() && isDigit(buffer[position])) {
+            final int digit = buffer[position++] - '0';
+            if (value < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Int out of range in the input");
+            }
+            value = value * 10 - digit;
+            digits++;
+        }
+        if (digits == 0 || !negative && value == Integer.MIN_VALUE) {
+            throw new NumberFormatException(digits == 0 ? "Expected an Int in the input" : "Int out of range in the input");
+        }
+        endNumber("Int");
+        return negative ? value : -value;
+    }
+
+    /**
+     * Digits, an optional fraction and an optional exponent. Numbers that fit the exact cases of a long mantissa and
+     * a double power of ten are computed from those, anything else, including NaN and Infinity, goes through
+     * Double.parseDouble, which rounds correctly in every case.
+     */
+    public static double inputDouble() {
+        skipWhitespace();
+        if (!fill()) {
+            throw new NumberFormatException("No Double left in the input");
+        }
+        tokenLength = 0;
+        final boolean negative = buffer[position] == '-';
+        if (negative || buffer[position] == '+') {
+            take();
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean point = false;
+        boolean anyDigit = false;
+        while (fill() && (isDigit(buffer[position]) || buffer[position] == '.' && !point)) {
+            final byte c = take();
+            if (c == '.') {
+                point = true;
+                continue;
+            }
+            anyDigit = true;
+            if (mantissa == 0 && c == '0') {
+                // Leading zeros are not significant, after the point they only move it
+                exponent -= point ? 1 : 0;
+                continue;
+            }
+            if (significant < EXACT_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                significant++;
+                exponent -= point ? 1 : 0;
+            } else {
+                exact = false;
+            }
+        }
+        if (fill() && (buffer[position] == 'e' || buffer[position] == 'E')) {
+            exact = false;
+            take();
+            if (fill() && (buffer[position] == '-' || buffer[position] == '+')) {
+                take();
+            }
+        }
+        // The exponent and anything else that is not a plain number goes to the parser, up to the next whitespace
+        while (fill() && !isWhitespace(buffer[position])) {
+            exact = false;
+            take();
+        }
+        endNumber("Double");
+
+        if (exact && anyDigit && -exponent < POWERS_OF_TEN.length) {
+            final double value = mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        final String text = decode(token, 0, tokenLength);
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("Expected a Double in the input but got " + text);
+        }
+    }
+
+    // Moves past the byte at the position and keeps it in the token
+    private static byte take() {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, 2 * tokenLength);
+        }
+        token[tokenLength++] = buffer[position];
+        return buffer[position++];
+    }
+
+    // Takes the whitespace character after a number, and the \n of a \r\n
+    private static void endNumber(String type) {
+        if (!fill()) {
+            return;
+        }
+        if (!isWhitespace(buffer[position])) {
+            throw new NumberFormatException("Expected a whitespace after the " + type + " in the input");
+        }
+        if (buffer[position++] == '\r' && fill() && buffer[position] == '\n') {
+            position++;
+        }
+    }
+
+    private static void skipWhitespace() {
+        while (fill() && isWhitespace(buffer[position])) {
+            position++;
+        }
+    }
+
+    // Whether there is a byte at the position, reading more when the buffer is used up
+    private static boolean fill() {
+        if (position < limit) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        Out.flush();
+        try {
+            int read;
+            do {
+                wrapped.clear();
+                read = channel.read(wrapped);
+            } while (read == 0);
+            position = 0;
+            limit = Math.max(read, 0);
+            ended = read < 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return limit > 0;
+    }
+
+    private static int stripCarriageReturn(byte[] bytes, int offset, int length) {
+        return length > 0 && bytes[offset + length - 1] == '\r' ? length - 1 : length;
+    }
+
+    private static String decode(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+}
@@ -0,0 +1,137 @@
+package descript.runtime;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Standard output of compiled programs, print compiles to its println methods. Lines are encoded into one reusable
+ * byte buffer, numbers and Bools digit by digit without a String in between, and the buffer is written to the file
+ * descriptor when it fills up and when the program exits. With -Ddescript.unbuffered=true every line is written
+ * right away, for programs that talk to a user. Programs are single threaded, nothing here is synchronized.
+ */
+public final class Out {
+    private static final int CAPACITY = 1 << 16;
+    // Room for a Long with its sign and the line break
+    private static final int NUMBER_LENGTH = 21;
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private static final FileOutputStream stream = new FileOutputStream(FileDescriptor.out);
+    private static final byte[] buffer = new byte[CAPACITY];
+    private static final boolean unbuffered = Boolean.getBoolean("descript.unbuffered");
+    private static int position;
+
+    static {
+        // Also runs when the program ends with an uncaught exception or System.exit
+        Runtime.getRuntime().addShutdownHook(new Thread(Out::flush));
+        // What was printed before a runtime error comes before its message, as it did when every line was written.
+        // The message is the one the JVM prints, the thread group would only call this handler again
+        Thread.setDefaultUncaughtExceptionHandler((thread, exception) -> {
+            flush();
+            System.err.print("Exception in thread \"" + thread.getName() + "\" ");
+            exception.printStackTrace(System.err);
+        });
+    }
+
+    private Out() { }
+
+    public static void println(int value) {
+        println((long) value);
+    }
+
+    public static void println(long value) {
+        reserve(NUMBER_LENGTH);
+        // Digits are taken from the value negated, which unlike its absolute value always exists
+        long rest = value;
+        if (value < 0) {
+            buffer[position++] = '-';
+        } else {
+            rest = -value;
+        }
+        final int start = position;
+        do {
+            buffer[position++] = (byte) ('0' - rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        reverse(start, position - 1);
+        endLine();
+    }
+
+    public static void println(double value) {
+        println(Double.toString(value));
+    }
+
+    public static void println(boolean value) {
+        final byte[] text = value ? TRUE : FALSE;
+        reserve(text.length + 1);
+        System.arraycopy(text, 0, buffer, position, text.length);
+        position += text.length;
+        endLine();
+    }
+
+    public static void println(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                reserve(1);
+                buffer[position++] = (byte) c;
+            } else {
+                // Everything else is rare enough to go through the encoder, from the first character that needs it
+                write(value.substring(i).getBytes(StandardCharsets.UTF_8));
+                break;
+            }
+        }
+        reserve(1);
+        endLine();
+    }
+
+    // Writes out everything printed so far
+    public static void flush() {
+        if (position == 0) {
+            return;
+        }
+        try {
+            stream.write(buffer, 0, position);
+        } catch (IOException e) {
+            // Like System.out, a closed or broken stdout does not stop the program
+        }
+        position = 0;
+    }
+
+    private static void write(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            reserve(1);
+            final int count = Math.min(bytes.length - offset, CAPACITY - position);
+            System.arraycopy(bytes, offset, buffer, position, count);
+            position += count;
+            offset += count;
+        }
+    }
+
+    // Makes room for the bytes about to be put into the buffer, at most its capacity
+    private static void reserve(int length) {
+        if (position + length > CAPACITY) {
+            flush();
+        }
+    }
+
+    // The caller reserved room for the line break
+    private static void endLine() {
+        buffer[position++] = '\n';
+        if (unbuffered) {
+            flush();
+        }
+    }
+
+    private static void reverse(int from, int to) {
+        for (int i = from, j = to; i < j; i++, j--) {
+            final byte swapped = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = swapped;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A straight run of instructions that control only enters at the top and leaves through the terminator at the end.
+ * The phis come first, their operands are in the order of the predecessors.
+ */
+public class BasicBlock {
+    private final int id;
+    private final List<Instruction> phis = new ArrayList<>();
+    private final List<Instruction> instructions = new ArrayList<>();
+    private final List<BasicBlock> predecessors = new ArrayList<>();
+    private Instruction terminator;
+
+    BasicBlock(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<Instruction> getPhis() {
+        return Collections.unmodifiableList(phis);
+    }
+
+    public void addPhi(Instruction phi) {
+        phis.add(phi);
+        phi.setBlock(this);
+    }
+
+    public List<Instruction> getInstructions() {
+        return Collections.unmodifiableList(instructions);
+    }
+
+    public void append(Instruction instruction) {
+        instructions.add(instruction);
+        instruction.setBlock(this);
+    }
+
+    // Removes a phi or instruction and its uses of other values, nothing may use it anymore
+    public void remove(Instruction instruction) {
+        if (!phis.remove(instruction)) {
+            instructions.remove(instruction);
+        }
+        instruction.dropOperands();
+        instruction.setBlock(null);
+    }
+
+    public Instruction getTerminator() {
+        return terminator;
+    }
+
+    // Ends the block, it becomes a predecessor of every target
+    public void terminate(Instruction terminator) {
+        setTerminator(terminator);
+        for (BasicBlock target : terminator.getTargets()) {
+            target.predecessors.add(this);
+        }
+    }
+
+    // Ends the block without registering the edges, the caller takes care of the predecessor lists
+    void setTerminator(Instruction terminator) {
+        // Replacing a terminator would silently drop the edges of the old one
+        if (this.terminator != null) {
+            throw new IllegalStateException("Block " + this + " already ends in " + this.terminator.getOpcode());
+        }
+        this.terminator = terminator;
+        terminator.setBlock(this);
+    }
+
+    public boolean isTerminated() {
+        return terminator != null;
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    public List<BasicBlock> getSuccessors() {
+        return terminator != null ? terminator.getTargets() : List.of();
+    }
+
+    void addPredecessor(BasicBlock predecessor) {
+        predecessors.add(predecessor);
+    }
+
+    // Forgets an edge from a predecessor, along with the operands the phis have for it
+    void removePredecessor(BasicBlock predecessor) {
+        final int index = predecessors.indexOf(predecessor);
+        predecessors.remove(index);
+        for (Instruction phi : phis) {
+            phi.removeOperand(index);
+        }
+    }
+
+    // Lets the edge from a predecessor come from another block, the phi operands stay with it
+    void replacePredecessor(BasicBlock predecessor, BasicBlock replacement) {
+        predecessors.set(predecessors.indexOf(predecessor), replacement);
+    }
+
+    @Override
+    public String toString() {
+        return "b" + id;
+    }
+}
@@ -0,0 +1,63 @@
+package ir;
+
+import semantic.Type;
+
+import java.util.List;
+
+/**
+ * A literal Int, Long, Double, Bool or String value, or an empty array: the value an array variable starts with.
+ * Arrays have no other constants.
+ */
+public class Constant extends Value {
+    private final Object value;
+
+    private Constant(Type type, Object value) {
+        super(type);
+        this.value = value;
+    }
+
+    public static Constant of(int value) {
+        return new Constant(Type.INT, value);
+    }
+
+    public static Constant of(long value) {
+        return new Constant(Type.LONG, value);
+    }
+
+    public static Constant of(double value) {
+        return new Constant(Type.DOUBLE, value);
+    }
+
+    public static Constant of(boolean value) {
+        return new Constant(Type.BOOL, value);
+    }
+
+    public static Constant of(String value) {
+        return new Constant(Type.STRING, value);
+    }
+
+    // The value a variable of the type starts with when its declaration has no initializer
+    public static Constant defaultOf(Type type) {
+        if (type.isArray()) {
+            return new Constant(type, List.of());
+        }
+        return switch (type) {
+            case INT -> of(0);
+            case LONG -> of(0L);
+            case DOUBLE -> of(0.0);
+            case BOOL -> of(false);
+            case STRING -> of("");
+            default -> throw new UnsupportedOperationException("No constants of type " + type);
+        };
+    }
+
+    // An Integer, Long, Double, Boolean or String, an empty list for an empty array
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return value instanceof String string ? "\"" + string + "\"" : String.valueOf(value);
+    }
+}
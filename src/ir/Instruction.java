@@ -0,0 +1,95 @@
+package ir;
+
+import semantic.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One operation of a basic block. An instruction with a type other than Void is also the value it computes.
+ * Terminators jump to their targets: a jump to one, a branch on its Bool operand to the first target if it is true
+ * and to the second if not.
+ */
+public class Instruction extends Value {
+    private final Opcode opcode;
+    private final List<Value> operands = new ArrayList<>();
+    private final List<BasicBlock> targets;
+    // The called function, for CALL
+    private final String callee;
+    private BasicBlock block;
+
+    public Instruction(Opcode opcode, Type type, Value... operands) {
+        this(opcode, type, null, List.of(), operands);
+    }
+
+    public Instruction(Opcode opcode, Type type, String callee, List<BasicBlock> targets, Value... operands) {
+        super(type);
+        this.opcode = opcode;
+        this.callee = callee;
+        this.targets = new ArrayList<>(targets);
+        for (Value operand : operands) {
+            addOperand(operand);
+        }
+    }
+
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    public List<Value> getOperands() {
+        return Collections.unmodifiableList(operands);
+    }
+
+    public Value getOperand(int index) {
+        return operands.get(index);
+    }
+
+    public void addOperand(Value operand) {
+        operands.add(operand);
+        operand.addUser(this);
+    }
+
+    void removeOperand(int index) {
+        operands.remove(index).removeUser(this);
+    }
+
+    void replaceOperand(Value operand, Value replacement) {
+        for (int i = 0; i < operands.size(); i++) {
+            if (operands.get(i) == operand) {
+                operands.set(i, replacement);
+                operand.removeUser(this);
+                replacement.addUser(this);
+            }
+        }
+    }
+
+    // Lets go of the operands, for an instruction that is being removed
+    void dropOperands() {
+        for (Value operand : operands) {
+            operand.removeUser(this);
+        }
+        operands.clear();
+    }
+
+    public List<BasicBlock> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    void replaceTarget(int index, BasicBlock target) {
+        targets.set(index, target);
+    }
+
+    public String getCallee() {
+        return callee;
+    }
+
+    // Null for an instruction that was removed from its block
+    public BasicBlock getBlock() {
+        return block;
+    }
+
+    void setBlock(BasicBlock block) {
+        this.block = block;
+    }
+}
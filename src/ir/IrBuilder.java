@@ -0,0 +1,650 @@
+package ir;
+
+import parser.nodes.*;
+import parser.variables.Symbol;
+import semantic.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lowers a resolved and type checked tree to SSA form, one function for the main method and one per declared
+ * function. SSA is built on the fly as described by Braun et al., "Simple and Efficient Construction of Static Single
+ * Assignment Form": reading a variable looks for the last write in the current block and otherwise asks the
+ * predecessors, with a phi where they may disagree. A block is sealed once all its predecessors are known; a read in
+ * a block that is not sealed yet, a loop header, gets a phi whose operands are filled in when it is. Phis that turn
+ * out to merge a single value are removed again.
+ */
+public class IrBuilder implements ASTVisitor<Value> {
+    private final IrFunction function;
+    // The function being lowered, null for the main method
+    private final FunctionDeclarationNode declaration;
+    private BasicBlock block;
+    // Where the body of a function starts, a tail call jumps back to it with new parameter values
+    private BasicBlock start;
+
+    private final Map<BasicBlock, Map<Symbol, Value>> definitions = new HashMap<>();
+    private final Map<BasicBlock, Map<Symbol, Instruction>> incompletePhis = new HashMap<>();
+    private final Set<BasicBlock> sealed = new HashSet<>();
+    // Phis whose operands are being added, they must not be removed halfway
+    private final Set<Instruction> filling = new HashSet<>();
+    // Removed phis and the values that replaced them, earlier definitions may still name them
+    private final Map<Value, Value> replacements = new HashMap<>();
+
+    // Jump targets of the loops around the code being lowered, innermost first
+    private final Deque<BasicBlock> breakTargets = new ArrayDeque<>();
+    private final Deque<BasicBlock> continueTargets = new ArrayDeque<>();
+
+    private IrBuilder(IrFunction function, FunctionDeclarationNode declaration) {
+        this.function = function;
+        this.declaration = declaration;
+        block = function.newBlock();
+        seal(block);
+    }
+
+    // A function that returns the result of calling itself jumps back to its start instead of calling itself
+    public static IrModule build(ASTNode tree) {
+        final List<ASTNode> statements = tree instanceof BlockNode root ? root.getStatements() : List.of(tree);
+        final IrModule module = new IrModule();
+        final IrBuilder main = new IrBuilder(new IrFunction("main", List.of(), Type.VOID, true), null);
+        final List<FunctionDeclarationNode> declarations = new ArrayList<>();
+        for (ASTNode statement : statements) {
+            if (statement instanceof FunctionDeclarationNode function) {
+                declarations.add(function);
+            } else {
+                main.lower(statement);
+            }
+        }
+        module.add(main.finish());
+
+        for (FunctionDeclarationNode declaration : declarations) {
+            module.add(buildFunction(declaration));
+        }
+        return module;
+    }
+
+    private static IrFunction buildFunction(FunctionDeclarationNode declaration) {
+        final List<Parameter> parameters = new ArrayList<>();
+        for (ParameterNode parameter : declaration.getParameters()) {
+            parameters.add(new Parameter(parameter.getSymbol().getType(), parameters.size()));
+        }
+        final IrFunction function = new IrFunction(
+            declaration.getName(), parameters, Type.fromName(declaration.getReturnType()), false
+        );
+
+        final IrBuilder builder = new IrBuilder(function, declaration);
+        for (int i = 0; i < parameters.size(); i++) {
+            builder.write(declaration.getParameters().get(i).getSymbol(), parameters.get(i));
+        }
+        // The start is sealed last, tail calls anywhere in the body are its predecessors
+        builder.start = function.newBlock();
+        builder.jump(builder.start);
+        builder.block = builder.start;
+        builder.lower(declaration.getBody());
+        return builder.finish();
+    }
+
+    private IrFunction finish() {
+        // The type checker made sure only a Void function reaches the end, the return of any other is unreachable
+        if (function.getReturnType() == Type.VOID) {
+            block.terminate(new Instruction(Opcode.RETURN, Type.VOID));
+        } else {
+            block.terminate(new Instruction(Opcode.RETURN, Type.VOID, Constant.defaultOf(function.getReturnType())));
+        }
+        if (start != null) {
+            seal(start);
+        }
+        function.removeUnreachableBlocks();
+        return function;
+    }
+
+    private Value lower(ASTNode node) {
+        return node.accept(this);
+    }
+
+    // Variables
+
+    private void write(Symbol symbol, Value value) {
+        write(symbol, block, value);
+    }
+
+    private void write(Symbol symbol, BasicBlock block, Value value) {
+        definitions.computeIfAbsent(block, key -> new HashMap<>()).put(symbol, value);
+    }
+
+    private Value read(Symbol symbol, BasicBlock block) {
+        final Map<Symbol, Value> local = definitions.get(block);
+        if (local != null && local.containsKey(symbol)) {
+            return resolve(local.get(symbol));
+        }
+        return readRecursive(symbol, block);
+    }
+
+    private Value readRecursive(Symbol symbol, BasicBlock block) {
+        Value value;
+        if (!sealed.contains(block)) {
+            final Instruction phi = newPhi(symbol, block);
+            incompletePhis.computeIfAbsent(block, key -> new HashMap<>()).put(symbol, phi);
+            value = phi;
+        } else if (block.getPredecessors().size() == 1) {
+            value = read(symbol, block.getPredecessors().get(0));
+        } else {
+            // Written before the operands are read, so a loop that leads back here finds the phi
+            final Instruction phi = newPhi(symbol, block);
+            write(symbol, block, phi);
+            value = addPhiOperands(symbol, phi);
+        }
+        write(symbol, block, value);
+        return value;
+    }
+
+    private static Instruction newPhi(Symbol symbol, BasicBlock block) {
+        final Instruction phi = new Instruction(Opcode.PHI, symbol.getType());
+        block.addPhi(phi);
+        return phi;
+    }
+
+    private Value addPhiOperands(Symbol symbol, Instruction phi) {
+        filling.add(phi);
+        for (BasicBlock predecessor : phi.getBlock().getPredecessors()) {
+            phi.addOperand(read(symbol, predecessor));
+        }
+        filling.remove(phi);
+        return tryRemoveTrivialPhi(phi);
+    }
+
+    private Value tryRemoveTrivialPhi(Instruction phi) {
+        Value same = null;
+        for (Value operand : phi.getOperands()) {
+            if (operand == same || operand == phi) {
+                continue;
+            }
+            if (same != null) {
+                return phi;
+            }
+            same = operand;
+        }
+        // No operand at all: the block is unreachable
+        if (same == null) {
+            same = Constant.defaultOf(phi.getType());
+        }
+
+        final List<Instruction> users = new ArrayList<>(phi.getUsers());
+        phi.replaceAllUsesWith(same);
+        phi.getBlock().remove(phi);
+        replacements.put(phi, same);
+        // Phis that used this one may have become trivial in turn
+        for (Instruction user : users) {
+            if (user != phi && user.getOpcode() == Opcode.PHI && user.getBlock() != null && !filling.contains(user)) {
+                tryRemoveTrivialPhi(user);
+            }
+        }
+        return resolve(same);
+    }
+
+    private Value resolve(Value value) {
+        while (replacements.containsKey(value)) {
+            value = replacements.get(value);
+        }
+        return value;
+    }
+
+    // All predecessors of the block are known, the phis that waited for them get their operands
+    private void seal(BasicBlock block) {
+        sealed.add(block);
+        final Map<Symbol, Instruction> phis = incompletePhis.remove(block);
+        if (phis != null) {
+            phis.forEach(this::addPhiOperands);
+        }
+    }
+
+    // Instructions and control flow
+
+    private Instruction emit(Opcode opcode, Type type, Value... operands) {
+        final Instruction instruction = new Instruction(opcode, type, operands);
+        block.append(instruction);
+        return instruction;
+    }
+
+    private void jump(BasicBlock target) {
+        block.terminate(new Instruction(Opcode.JUMP, Type.VOID, null, List.of(target)));
+    }
+
+    private void branch(Value condition, BasicBlock whenTrue, BasicBlock whenFalse) {
+        block.terminate(new Instruction(Opcode.BRANCH, Type.VOID, null, List.of(whenTrue, whenFalse), condition));
+    }
+
+    // Code after a jump is unreachable, it goes into a block without predecessors that is dropped in the end
+    private void startUnreachable() {
+        block = function.newBlock();
+        seal(block);
+    }
+
+    /**
+     * Ends the current block with jumps to whenTrue if the condition holds and to whenFalse if not. `and` and `or`
+     * become jumps as well, so the right operand is only evaluated when the left one does not decide.
+     */
+    private void condition(ASTNode condition, BasicBlock whenTrue, BasicBlock whenFalse) {
+        if (condition instanceof BooleanLiteral literal) {
+            jump(literal.getValue() ? whenTrue : whenFalse);
+        } else if (condition instanceof UnaryExpressionNode unary && "!".equals(unary.getOperator())) {
+            condition(unary.getOperand(), whenFalse, whenTrue);
+        } else if (condition instanceof LogicalExpressionNode logical) {
+            final BasicBlock right = function.newBlock();
+            if ("and".equals(logical.getOperator())) {
+                condition(logical.getLeft(), right, whenFalse);
+            } else {
+                condition(logical.getLeft(), whenTrue, right);
+            }
+            seal(right);
+            block = right;
+            condition(logical.getRight(), whenTrue, whenFalse);
+        } else {
+            branch(lower(condition), whenTrue, whenFalse);
+        }
+    }
+
+    // Statements, they leave the current block open for the next one
+
+    @Override
+    public Value visit(BlockNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            lower(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Value visit(VariableDeclarationNode node) {
+        final Symbol symbol = node.getSymbol();
+        write(symbol, node.getValue() != null ? lower(node.getValue()) : Constant.defaultOf(symbol.getType()));
+        return null;
+    }
+
+    @Override
+    public Value visit(VariableAssignmentNode node) {
+        write(node.getSymbol(), lower(node.getValue()));
+        return null;
+    }
+
+    @Override
+    public Value visit(CompoundAssignmentNode node) {
+        final Value current = read(node.getSymbol(), block);
+        if (node.getSymbol().getType() == Type.STRING) {
+            write(node.getSymbol(), concat(current, node.getValue()));
+            return null;
+        }
+
+        final Value value = lower(node.getValue());
+        final Opcode opcode = switch (node.getCompoundOp()) {
+            case "+=" -> Opcode.ADD;
+            case "-=" -> Opcode.SUB;
+            case "*=" -> Opcode.MUL;
+            case "/=" -> Opcode.DIV;
+            default -> throw new UnsupportedOperationException("Unsupported compound operator: " + node.getCompoundOp());
+        };
+        write(node.getSymbol(), emit(opcode, node.getValue().getResolvedType(), current, value));
+        return null;
+    }
+
+    @Override
+    public Value visit(IncrementDecrementNode node) {
+        final Opcode opcode = switch (node.getOp()) {
+            case "++" -> Opcode.ADD;
+            case "--" -> Opcode.SUB;
+            default -> throw new UnsupportedOperationException("Unsupported increment/decrement operator: " + node.getOp());
+        };
+        final Type type = node.getSymbol().getType();
+        write(node.getSymbol(), emit(opcode, type, read(node.getSymbol(), block), one(type)));
+        return null;
+    }
+
+    // The String appended to by += is the first part of the concatenation
+    private Instruction concat(Value current, ASTNode appended) {
+        final List<Value> parts = new ArrayList<>(List.of(current));
+        lowerConcatParts(appended, parts);
+        return emit(Opcode.CONCAT, Type.STRING, parts.toArray(new Value[0]));
+    }
+
+    // The operands of a String + and of the ones nested in it, left to right
+    private void lowerConcatParts(ASTNode node, List<Value> parts) {
+        if (node instanceof BinaryExpressionNode binary && binary.getResolvedType() == Type.STRING) {
+            lowerConcatParts(binary.getLeft(), parts);
+            lowerConcatParts(binary.getRight(), parts);
+        } else {
+            parts.add(lower(node));
+        }
+    }
+
+    // What ++ and -- add and subtract
+    private static Constant one(Type type) {
+        return switch (type) {
+            case LONG -> Constant.of(1L);
+            case DOUBLE -> Constant.of(1.0);
+            default -> Constant.of(1);
+        };
+    }
+
+    // Updating an element reads it before the value is computed, as the bytecode of the tree does
+    @Override
+    public Value visit(ArrayAssignmentNode node) {
+        final Type type = node.getArray().getResolvedType().getElementType();
+        final Value array = lower(node.getArray());
+        final Value index = lower(node.getIndex());
+        Value value;
+        if ("=".equals(node.getOperator())) {
+            value = lower(node.getValue());
+        } else {
+            final Value current = emit(Opcode.ARRAY_LOAD, type, array, index);
+            if (type == Type.STRING) {
+                emit(Opcode.ARRAY_STORE, Type.VOID, array, index, concat(current, node.getValue()));
+                return null;
+            }
+            final Value operand = node.getValue() != null ? lower(node.getValue()) : one(type);
+            value = emit(switch (node.getOperator()) {
+                case "+=", "++" -> Opcode.ADD;
+                case "-=", "--" -> Opcode.SUB;
+                case "*=" -> Opcode.MUL;
+                case "/=" -> Opcode.DIV;
+                default -> throw new UnsupportedOperationException("Unsupported element assignment operator: " + node.getOperator());
+            }, type, current, operand);
+        }
+        emit(Opcode.ARRAY_STORE, Type.VOID, array, index, value);
+        return null;
+    }
+
+    @Override
+    public Value visit(IfStatementNode node) {
+        final BasicBlock trueBlock = function.newBlock();
+        final BasicBlock join = function.newBlock();
+        final BasicBlock falseBlock = node.getFalseBranch() != null ? function.newBlock() : join;
+        condition(node.getCondition(), trueBlock, falseBlock);
+
+        seal(trueBlock);
+        block = trueBlock;
+        lower(node.getTrueBranch());
+        jump(join);
+        if (falseBlock != join) {
+            seal(falseBlock);
+            block = falseBlock;
+            lower(node.getFalseBranch());
+            jump(join);
+        }
+        seal(join);
+        block = join;
+        return null;
+    }
+
+    @Override
+    public Value visit(WhileStatementNode node) {
+        final BasicBlock header = function.newBlock();
+        final BasicBlock body = function.newBlock();
+        final BasicBlock exit = function.newBlock();
+        jump(header);
+        block = header;
+        condition(node.getCondition(), body, exit);
+
+        seal(body);
+        block = body;
+        lowerLoopBody(node.getBody(), exit, header);
+        jump(header);
+        seal(header);
+        seal(exit);
+        block = exit;
+        return null;
+    }
+
+    @Override
+    public Value visit(ForStatementNode node) {
+        if (node.getInitialization() != null) {
+            lower(node.getInitialization());
+        }
+        final BasicBlock header = function.newBlock();
+        final BasicBlock body = function.newBlock();
+        final BasicBlock update = function.newBlock();
+        final BasicBlock exit = function.newBlock();
+        jump(header);
+        block = header;
+        // Without a condition the loop only ends through a break
+        if (node.getCondition() != null) {
+            condition(node.getCondition(), body, exit);
+        } else {
+            jump(body);
+        }
+
+        seal(body);
+        block = body;
+        lowerLoopBody(node.getBody(), exit, update);
+        jump(update);
+        seal(update);
+        block = update;
+        if (node.getUpdate() != null) {
+            lower(node.getUpdate());
+        }
+        jump(header);
+        seal(header);
+        seal(exit);
+        block = exit;
+        return null;
+    }
+
+    private void lowerLoopBody(ASTNode body, BasicBlock breakTarget, BasicBlock continueTarget) {
+        breakTargets.push(breakTarget);
+        continueTargets.push(continueTarget);
+        lower(body);
+        breakTargets.pop();
+        continueTargets.pop();
+    }
+
+    @Override
+    public Value visit(BreakNode node) {
+        jump(breakTargets.peek());
+        startUnreachable();
+        return null;
+    }
+
+    @Override
+    public Value visit(ContinueNode node) {
+        jump(continueTargets.peek());
+        startUnreachable();
+        return null;
+    }
+
+    @Override
+    public Value visit(ReturnNode node) {
+        if (declaration != null && node.getReturnValue() instanceof FunctionCallNode call
+            && call.getFunctionName().equals(declaration.getName())) {
+            // All arguments are evaluated before any parameter changes, they may read the parameters
+            final List<Value> arguments = new ArrayList<>();
+            for (ASTNode argument : call.getArguments()) {
+                arguments.add(lower(argument));
+            }
+            for (int i = 0; i < arguments.size(); i++) {
+                write(declaration.getParameters().get(i).getSymbol(), arguments.get(i));
+            }
+            jump(start);
+        } else if (node.getReturnValue() == null) {
+            block.terminate(new Instruction(Opcode.RETURN, Type.VOID));
+        } else {
+            // Lowering `and` and `or` moves on to the block where their branches join, the return ends that one
+            final Value value = lower(node.getReturnValue());
+            block.terminate(new Instruction(Opcode.RETURN, Type.VOID, value));
+        }
+        startUnreachable();
+        return null;
+    }
+
+    @Override
+    public Value visit(FunctionDeclarationNode node) {
+        throw new UnsupportedOperationException("Functions can only be declared at the top level: " + node.getName());
+    }
+
+    // Expressions, they return their value
+
+    @Override
+    public Value visit(NumberLiteral node) {
+        return Constant.of(node.getValue());
+    }
+
+    @Override
+    public Value visit(LongLiteral node) {
+        return Constant.of(node.getValue());
+    }
+
+    @Override
+    public Value visit(DoubleLiteral node) {
+        return Constant.of(node.getValue());
+    }
+
+    @Override
+    public Value visit(BooleanLiteral node) {
+        return Constant.of(node.getValue());
+    }
+
+    @Override
+    public Value visit(StringLiteral node) {
+        return Constant.of(node.getValue());
+    }
+
+    @Override
+    public Value visit(ArrayCreationNode node) {
+        return emit(Opcode.NEW_ARRAY, node.getResolvedType(), lower(node.getLength()));
+    }
+
+    @Override
+    public Value visit(ArrayAccessNode node) {
+        final Value array = lower(node.getArray());
+        final Value index = lower(node.getIndex());
+        return emit(Opcode.ARRAY_LOAD, node.getResolvedType(), array, index);
+    }
+
+    @Override
+    public Value visit(VariableReferenceNode node) {
+        return read(node.getSymbol(), block);
+    }
+
+    @Override
+    public Value visit(BinaryExpressionNode node) {
+        // The only operator on strings is +, a whole chain of them is one concatenation
+        if (node.getResolvedType() == Type.STRING) {
+            final List<Value> parts = new ArrayList<>();
+            lowerConcatParts(node, parts);
+            return emit(Opcode.CONCAT, Type.STRING, parts.toArray(new Value[0]));
+        }
+
+        final Value left = lower(node.getLeft());
+        final Value right = lower(node.getRight());
+
+        final Opcode opcode = switch (node.getOperator()) {
+            case "+" -> Opcode.ADD;
+            case "-" -> Opcode.SUB;
+            case "*" -> Opcode.MUL;
+            case "/" -> Opcode.DIV;
+            default -> throw new UnsupportedOperationException("Unsupported operator: " + node.getOperator());
+        };
+        return emit(opcode, node.getResolvedType(), left, right);
+    }
+
+    @Override
+    public Value visit(ComparisonExpressionNode node) {
+        final Value left = lower(node.getLeft());
+        final Value right = lower(node.getRight());
+        // Strings are compared by content, the type checker only allows == and != on them
+        if (node.getLeft().getResolvedType() == Type.STRING) {
+            final Value equal = emit(Opcode.STRING_EQUALS, Type.BOOL, left, right);
+            return "!=".equals(node.getOperator()) ? emit(Opcode.NOT, Type.BOOL, equal) : equal;
+        }
+
+        final Opcode opcode = switch (node.getOperator()) {
+            case "<" -> Opcode.LT;
+            case "<=" -> Opcode.LE;
+            case ">" -> Opcode.GT;
+            case ">=" -> Opcode.GE;
+            case "==" -> Opcode.EQ;
+            case "!=" -> Opcode.NE;
+            default -> throw new UnsupportedOperationException("Unsupported comparison operator: " + node.getOperator());
+        };
+        return emit(opcode, Type.BOOL, left, right);
+    }
+
+    // Short-circuiting needs control flow, the value is a phi of true and false where the paths meet
+    @Override
+    public Value visit(LogicalExpressionNode node) {
+        final BasicBlock whenTrue = function.newBlock();
+        final BasicBlock whenFalse = function.newBlock();
+        final BasicBlock join = function.newBlock();
+        condition(node, whenTrue, whenFalse);
+
+        seal(whenTrue);
+        block = whenTrue;
+        jump(join);
+        seal(whenFalse);
+        block = whenFalse;
+        jump(join);
+        seal(join);
+        block = join;
+
+        final Instruction phi = new Instruction(Opcode.PHI, Type.BOOL, Constant.of(true), Constant.of(false));
+        join.addPhi(phi);
+        return phi;
+    }
+
+    @Override
+    public Value visit(UnaryExpressionNode node) {
+        final Value operand = lower(node.getOperand());
+        return switch (node.getOperator()) {
+            case "!" -> emit(Opcode.NOT, Type.BOOL, operand);
+            case "-" -> emit(Opcode.NEG, node.getResolvedType(), operand);
+            case "+" -> operand;
+            default -> throw new UnsupportedOperationException("Unsupported unary operator: " + node.getOperator());
+        };
+    }
+
+    @Override
+    public Value visit(FunctionCallNode node) {
+        final Value[] arguments = new Value[node.getArguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = lower(node.getArguments().get(i));
+        }
+        if ("print".equals(node.getFunctionName())) {
+            return emit(Opcode.PRINT, Type.VOID, arguments);
+        }
+        if ("len".equals(node.getFunctionName())) {
+            return emit(Opcode.ARRAY_LENGTH, Type.INT, arguments);
+        }
+
+        final String name = node.getFunctionName();
+        final boolean input = "input".equals(name) || "inputInt".equals(name) || "inputDouble".equals(name);
+        final Instruction call = new Instruction(
+            input ? Opcode.INPUT : Opcode.CALL, node.getResolvedType(), name, List.of(), arguments
+        );
+        block.append(call);
+        return call;
+    }
+
+    // Nodes that have no IR
+    @Override
+    public Value visit(ParameterNode node) {
+        throw unsupported(node);
+    }
+
+    @Override
+    public Value visit(NewLineNode node) {
+        throw unsupported(node);
+    }
+
+    @Override
+    public Value visit(ErrorNode node) {
+        throw unsupported(node);
+    }
+
+    private static UnsupportedOperationException unsupported(ASTNode node) {
+        return new UnsupportedOperationException("Unsupported AST Node: " + node.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,220 @@
+package ir;
+
+import semantic.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The control-flow graph of one function, or of the main method. The first block is the entry, every block that
+ * was built is terminated.
+ */
+public class IrFunction {
+    private final String name;
+    private final List<Parameter> parameters;
+    private final Type returnType;
+    private final boolean main;
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private int nextBlockId;
+
+    public IrFunction(String name, List<Parameter> parameters, Type returnType, boolean main) {
+        this.name = name;
+        this.parameters = parameters;
+        this.returnType = returnType;
+        this.main = main;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    public Type getReturnType() {
+        return returnType;
+    }
+
+    // The main method takes the command line arguments instead of parameters
+    public boolean isMain() {
+        return main;
+    }
+
+    public List<BasicBlock> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    public BasicBlock getEntry() {
+        return blocks.get(0);
+    }
+
+    public BasicBlock newBlock() {
+        final BasicBlock block = new BasicBlock(nextBlockId++);
+        blocks.add(block);
+        return block;
+    }
+
+    /**
+     * The blocks reachable from the entry, each before its successors except along back edges. Successors are
+     * taken last to first, so the first target of a branch directly follows it when nothing else has to.
+     */
+    public List<BasicBlock> reversePostorder() {
+        final List<BasicBlock> postorder = new ArrayList<>();
+        final Set<BasicBlock> visited = new HashSet<>();
+        // Iterative depth-first search, every entry is a block and the index of the next successor to visit
+        final List<BasicBlock> stack = new ArrayList<>();
+        final List<Integer> next = new ArrayList<>();
+        stack.add(getEntry());
+        next.add(getEntry().getSuccessors().size() - 1);
+        visited.add(getEntry());
+        while (!stack.isEmpty()) {
+            final int top = stack.size() - 1;
+            final BasicBlock block = stack.get(top);
+            final int index = next.get(top);
+            if (index < 0) {
+                postorder.add(block);
+                stack.remove(top);
+                next.remove(top);
+                continue;
+            }
+            next.set(top, index - 1);
+            final BasicBlock successor = block.getSuccessors().get(index);
+            if (visited.add(successor)) {
+                stack.add(successor);
+                next.add(successor.getSuccessors().size() - 1);
+            }
+        }
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    // Drops the blocks control cannot reach and simplifies the phis that lose all but one distinct operand by it
+    public void removeUnreachableBlocks() {
+        final Set<BasicBlock> reachable = new HashSet<>(reversePostorder());
+        for (BasicBlock block : blocks) {
+            if (reachable.contains(block)) {
+                continue;
+            }
+            for (BasicBlock successor : block.getSuccessors()) {
+                if (reachable.contains(successor)) {
+                    successor.removePredecessor(block);
+                }
+            }
+            for (Instruction instruction : allInstructions(block)) {
+                instruction.dropOperands();
+            }
+        }
+        blocks.retainAll(reachable);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (BasicBlock block : blocks) {
+                for (Instruction phi : new ArrayList<>(block.getPhis())) {
+                    final Value same = soleOperand(phi);
+                    if (same != null) {
+                        phi.replaceAllUsesWith(same);
+                        block.remove(phi);
+                        changed = true;
+                    }
+                }
+            }
+        }
+    }
+
+    // The one value a phi merges apart from itself, or null if it merges several
+    static Value soleOperand(Instruction phi) {
+        Value same = null;
+        for (Value operand : phi.getOperands()) {
+            if (operand == same || operand == phi) {
+                continue;
+            }
+            if (same != null) {
+                return null;
+            }
+            same = operand;
+        }
+        return same;
+    }
+
+    /**
+     * Puts a block of its own on every edge from a branch to a block with phis. The copies into the phis of a block
+     * are made at the end of its predecessors, which must then not have another successor.
+     */
+    public void splitCriticalEdges() {
+        for (BasicBlock block : new ArrayList<>(blocks)) {
+            final Instruction terminator = block.getTerminator();
+            if (terminator.getTargets().size() < 2) {
+                continue;
+            }
+            for (int i = 0; i < terminator.getTargets().size(); i++) {
+                final BasicBlock target = terminator.getTargets().get(i);
+                if (target.getPhis().isEmpty()) {
+                    continue;
+                }
+                final BasicBlock edge = newBlock();
+                edge.setTerminator(new Instruction(Opcode.JUMP, Type.VOID, null, List.of(target)));
+                edge.addPredecessor(block);
+                terminator.replaceTarget(i, edge);
+                target.replacePredecessor(block, edge);
+            }
+        }
+    }
+
+    static List<Instruction> allInstructions(BasicBlock block) {
+        final List<Instruction> instructions = new ArrayList<>(block.getPhis());
+        instructions.addAll(block.getInstructions());
+        if (block.getTerminator() != null) {
+            instructions.add(block.getTerminator());
+        }
+        return instructions;
+    }
+
+    @Override
+    public String toString() {
+        final Map<Value, String> names = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            for (Instruction instruction : allInstructions(block)) {
+                if (instruction.getType() != Type.VOID) {
+                    names.put(instruction, "%" + names.size());
+                }
+            }
+        }
+
+        final StringBuilder text = new StringBuilder(name).append('(');
+        for (Parameter parameter : parameters) {
+            text.append(parameter.getIndex() > 0 ? ", " : "").append(parameter).append(": ").append(parameter.getType());
+        }
+        text.append(") ").append(returnType).append('\n');
+        for (BasicBlock block : blocks) {
+            text.append(block).append(": ; predecessors ").append(block.getPredecessors()).append('\n');
+            for (Instruction instruction : allInstructions(block)) {
+                text.append("    ");
+                if (names.containsKey(instruction)) {
+                    text.append(names.get(instruction)).append(" = ");
+                }
+                text.append(instruction.getOpcode().name().toLowerCase());
+                if (instruction.getCallee() != null) {
+                    text.append(' ').append(instruction.getCallee());
+                }
+                String separator = " ";
+                for (Value operand : instruction.getOperands()) {
+                    text.append(separator).append(names.getOrDefault(operand, String.valueOf(operand)));
+                    separator = ", ";
+                }
+                for (BasicBlock target : instruction.getTargets()) {
+                    text.append(separator).append(target);
+                    separator = ", ";
+                }
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The functions of a program, the main method first and then the declared functions in source order.
+ */
+public class IrModule {
+    private final List<IrFunction> functions = new ArrayList<>();
+
+    public void add(IrFunction function) {
+        functions.add(function);
+    }
+
+    public List<IrFunction> getFunctions() {
+        return Collections.unmodifiableList(functions);
+    }
+}
@@ -0,0 +1,11 @@
+package ir;
+
+/**
+ * A transformation or analysis of one function at a time, run by a {@link PassManager}.
+ */
+public interface IrPass {
+    // Shown in the timing report
+    String getName();
+
+    void run(IrFunction function);
+}
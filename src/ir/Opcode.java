@@ -0,0 +1,38 @@
+package ir;
+
+public enum Opcode {
+    // Arithmetic, on values of the instruction's type
+    ADD, SUB, MUL, DIV, NEG,
+    // Bool negation
+    NOT,
+    // Comparisons of numbers and Bools, they produce a Bool
+    LT, LE, GT, GE, EQ, NE,
+    // String equality, and all operands of any type but an array joined into one String
+    STRING_EQUALS, CONCAT,
+    // A new array of the instruction's type, of an array: its length, an element, and setting an element
+    NEW_ARRAY, ARRAY_LENGTH, ARRAY_LOAD, ARRAY_STORE,
+    // A call of a function of the program, the built-in print, and the input builtin the callee names
+    CALL, PRINT, INPUT,
+    // Picks the operand of the predecessor control came from
+    PHI,
+    // Terminators, the last instruction of every block
+    JUMP, BRANCH, RETURN;
+
+    public boolean isTerminator() {
+        return this == JUMP || this == BRANCH || this == RETURN;
+    }
+
+    public boolean isComparison() {
+        return ordinal() >= LT.ordinal() && ordinal() <= NE.ordinal();
+    }
+
+    /**
+     * Has no effect and cannot throw, so an unused result can go and computing it later changes nothing. An element
+     * is read from memory that stores change, and indexes and lengths can be out of range, but the length of an
+     * array never changes.
+     */
+    public boolean isPure() {
+        return this != DIV && this != CALL && this != PRINT && this != INPUT && this != NEW_ARRAY && this != ARRAY_LOAD
+            && this != ARRAY_STORE && !isTerminator();
+    }
+}
@@ -0,0 +1,24 @@
+package ir;
+
+import semantic.Type;
+
+/**
+ * The value a function was called with for one of its parameters.
+ */
+public class Parameter extends Value {
+    private final int index;
+
+    public Parameter(Type type, int index) {
+        super(type);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "%arg" + index;
+    }
+}
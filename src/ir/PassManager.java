@@ -0,0 +1,40 @@
+package ir;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs passes over all functions of a module, each pass over every function before the next pass starts, and adds
+ * up how long each pass took.
+ */
+public class PassManager {
+    private final List<IrPass> passes = new ArrayList<>();
+    private final List<Long> nanos = new ArrayList<>();
+
+    public PassManager add(IrPass pass) {
+        passes.add(pass);
+        nanos.add(0L);
+        return this;
+    }
+
+    public void run(IrModule module) {
+        for (int i = 0; i < passes.size(); i++) {
+            final long start = System.nanoTime();
+            for (IrFunction function : module.getFunctions()) {
+                passes.get(i).run(function);
+            }
+            nanos.set(i, nanos.get(i) + System.nanoTime() - start);
+        }
+    }
+
+    // One line per pass in the order they run, with the time it took over all runs so far
+    public void report(Consumer<String> lines) {
+        long total = 0;
+        for (int i = 0; i < passes.size(); i++) {
+            lines.accept(String.format("%-32s %10.3f ms", passes.get(i).getName(), nanos.get(i) / 1e6));
+            total += nanos.get(i);
+        }
+        lines.accept(String.format("%-32s %10.3f ms", "total", total / 1e6));
+    }
+}
@@ -0,0 +1,44 @@
+package ir;
+
+import semantic.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Something an instruction can use as an operand: a constant, a parameter or the result of another instruction.
+ * Every value is assigned exactly once and knows the instructions that use it, so it can be replaced everywhere.
+ */
+public abstract class Value {
+    private final Type type;
+    // One entry per operand that refers to this value, an instruction using it twice is in here twice
+    private final List<Instruction> users = new ArrayList<>();
+
+    protected Value(Type type) {
+        this.type = type;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public List<Instruction> getUsers() {
+        return Collections.unmodifiableList(users);
+    }
+
+    void addUser(Instruction user) {
+        users.add(user);
+    }
+
+    void removeUser(Instruction user) {
+        users.remove(user);
+    }
+
+    // Makes every user refer to the replacement instead, this value has no users afterwards
+    public void replaceAllUsesWith(Value replacement) {
+        for (Instruction user : new ArrayList<>(users)) {
+            user.replaceOperand(this, replacement);
+        }
+    }
+}
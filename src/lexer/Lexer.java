@@ -3,128 +3,521 @@ package lexer;
 import lexer.token.Token;
 import lexer.token.TokenType;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class Lexer implements TokenStream {
+    private static final int BUFFER_SIZE = 8192;
+    private static final int END_OF_INPUT = -1;
+    // Sources are only split for parallel lexing above this size, and never into chunks smaller than the minimum
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final Readable source;
+    private boolean sourceExhausted;
+
+    // Sliding window over the source, only the characters from the current token onwards are kept
+    private char[] buffer = new char[BUFFER_SIZE];
+    private int bufferStart; // absolute position of buffer[0]
+    private int bufferEnd;   // absolute position one past the last buffered character
+
+    // Ring buffer of the tokens that were scanned but not consumed yet
+    private final TokenType[] lookaheadTypes = new TokenType[LOOKAHEAD + 1];
+    private final String[] lookaheadTexts = new String[LOOKAHEAD + 1];
+    private final int[] lookaheadLines = new int[LOOKAHEAD + 1];
+    private int lookaheadStart;
+    private int lookaheadCount;
 
-public class Lexer {
-    private final String input;
     private int currentPosition;
     private int currentLine;
 
+    // Bounds of the value of the last scanned token (string literals exclude their quotes)
+    private int valueStart;
+    private int valueEnd;
+    // Shared spelling of the last scanned token if it is a keyword or boolean literal
+    private String keyword;
+
     public Lexer(String input) {
-        this.input = input;
-        currentPosition = 0;
-        currentLine = 1;
+        this(CharBuffer.wrap(input));
+    }
+
+    public Lexer(Readable source) {
+        this(source, 0, 1);
+    }
+
+    // Resumes lexing at a token boundary of a larger source, positions stay absolute
+    Lexer(Readable source, int startPosition, int startLine) {
+        this.source = source;
+        currentPosition = bufferStart = bufferEnd = startPosition;
+        currentLine = startLine;
+    }
+
+    /**
+     * Lexes an in-memory source into a {@link TokenBuffer}. In parallel mode a large source is split at new lines
+     * outside of string literals and comments, the chunks are lexed on the common {@link ForkJoinPool} and their
+     * tokens are stitched back together with the line numbers continued across chunks.
+     */
+    public static TokenBuffer tokenize(CharSequence source, boolean parallel) throws RuntimeException {
+        final int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (!parallel || parallelism < 2 || source.length() < PARALLEL_THRESHOLD) {
+            return TokenBuffer.of(source);
+        }
+
+        // A few chunks per worker evens out chunks that happen to be slower to lex
+        final int chunkCount = Math.min(parallelism * 4, source.length() / MIN_CHUNK_SIZE);
+        final int[] splitPoints = findSplitPoints(source, chunkCount);
+
+        final List<ForkJoinTask<TokenBuffer>> chunks = new ArrayList<>();
+        for (int i = 0; i < splitPoints.length - 1; i++) {
+            final int from = splitPoints[i];
+            final int to = splitPoints[i + 1];
+            chunks.add(ForkJoinPool.commonPool().submit(ForkJoinTask.adapt(() -> tokenizeChunk(source, from, to))));
+        }
+
+        int tokenCount = 1;
+        final List<TokenBuffer> lexedChunks = new ArrayList<>();
+        for (ForkJoinTask<TokenBuffer> chunk : chunks) {
+            final TokenBuffer lexedChunk = chunk.join();
+            lexedChunks.add(lexedChunk);
+            tokenCount += lexedChunk.size() - 1;
+        }
+
+        // Every chunk counted its lines from 1 and ends with its own EOF token
+        final TokenBuffer tokens = new TokenBuffer(source, tokenCount);
+        int lineShift = 0;
+        for (TokenBuffer lexedChunk : lexedChunks) {
+            final int eof = lexedChunk.size() - 1;
+            tokens.append(lexedChunk, 0, eof, 0, lineShift);
+            lineShift += lexedChunk.line(eof) - 1;
+        }
+        tokens.add(TokenType.EOF, source.length(), 0, lineShift + 1);
+        return tokens;
+    }
+
+    private static TokenBuffer tokenizeChunk(CharSequence source, int from, int to) throws RuntimeException {
+        final TokenBuffer tokens = new TokenBuffer(source, Math.max(16, (to - from) / 4));
+        new Lexer(CharBuffer.wrap(source, from, to), from, 1).tokenizeInto(tokens);
+        return tokens;
+    }
+
+    /**
+     * Picks the chunk boundaries for parallel lexing. A chunk may only start right after a new line that is not
+     * inside a string literal or comment, the lexer is at a token boundary there and only needs the line number.
+     * An unclosed block comment looks like a comment up to the end of the source here, so no split is made
+     * after it and the lexer still gets to fall back to reading it as operators.
+     */
+    private static int[] findSplitPoints(CharSequence source, int chunkCount) {
+        final int chunkSize = source.length() / chunkCount;
+        final int[] splitPoints = new int[chunkCount + 1];
+        int count = 1;
+        int nextSplit = chunkSize;
+
+        boolean inString = false;
+        boolean inLineComment = false;
+        boolean inBlockComment = false;
+        for (int i = 0; i < source.length() && count < chunkCount; i++) {
+            final char c = source.charAt(i);
+            final char next = i + 1 < source.length() ? source.charAt(i + 1) : '\0';
+
+            if (inString) {
+                inString = c != '"';
+                continue;
+            }
+            if (inBlockComment) {
+                if (c == '*' && next == '/') {
+                    inBlockComment = false;
+                    i++;
+                }
+                continue;
+            }
+            if (inLineComment) {
+                if (!isLineTerminator(c)) {
+                    continue;
+                }
+                inLineComment = false;
+            }
+
+            if (c == '"') {
+                inString = true;
+            } else if (c == '/' && (next == '/' || next == '*')) {
+                inLineComment = next == '/';
+                inBlockComment = next == '*';
+                i++;
+            } else if (c == '\n' && i + 1 >= nextSplit) {
+                splitPoints[count++] = i + 1;
+                nextSplit = i + 1 + chunkSize;
+            }
+        }
+
+        splitPoints[count++] = source.length();
+        return Arrays.copyOf(splitPoints, count);
     }
 
     public List<Token> tokenize() throws RuntimeException {
         final List<Token> tokens = new ArrayList<>();
 
-        while (currentPosition < input.length()) {
-            char currentChar = input.charAt(currentPosition);
+        while (type(0) != TokenType.EOF) {
+            tokens.add(new Token(type(0), text(0), line(0)));
+            advance();
+        }
+
+        return tokens;
+    }
+
+    // Lexes the whole source into the buffer, followed by an EOF token
+    void tokenizeInto(TokenBuffer tokens) throws RuntimeException {
+        TokenType type;
+        do {
+            type = scanInto(tokens);
+        } while (type != TokenType.EOF);
+    }
+
+    // Scans the next significant token into the buffer and returns its type
+    TokenType scanInto(TokenBuffer tokens) throws RuntimeException {
+        final TokenType type = scanToken();
+        tokens.add(type, valueStart, valueEnd - valueStart, currentLine);
+        return type;
+    }
+
+    @Override
+    public TokenType type(int offset) {
+        return lookaheadTypes[fillLookahead(offset)];
+    }
+
+    @Override
+    public String text(int offset) {
+        return lookaheadTexts[fillLookahead(offset)];
+    }
+
+    @Override
+    public int line(int offset) {
+        return lookaheadLines[fillLookahead(offset)];
+    }
+
+    @Override
+    public void advance() {
+        // The EOF token stays in place, so the stream can be polled past its end
+        if (type(0) != TokenType.EOF) {
+            lookaheadTexts[lookaheadStart] = null;
+            lookaheadStart = (lookaheadStart + 1) % lookaheadTypes.length;
+            lookaheadCount--;
+        }
+    }
+
+    // Scans tokens until the offset is buffered and returns its slot in the ring
+    private int fillLookahead(int offset) {
+        if (offset < 0 || offset > LOOKAHEAD) {
+            throw new IllegalArgumentException("Lookahead out of range: " + offset);
+        }
+
+        while (lookaheadCount <= offset) {
+            final int slot = (lookaheadStart + lookaheadCount) % lookaheadTypes.length;
+            final TokenType type = scanToken();
+            lookaheadTypes[slot] = type;
+            lookaheadTexts[slot] = keyword != null ? keyword : text(valueStart, valueEnd);
+            lookaheadLines[slot] = currentLine;
+            lookaheadCount++;
+        }
+        return (lookaheadStart + offset) % lookaheadTypes.length;
+    }
+
+    // Scans up to the next significant token, skipping whitespace, comments and new lines
+    private TokenType scanToken() throws RuntimeException {
+        while (true) {
+            final int currentChar = charAt(currentPosition);
+
+            if (currentChar == END_OF_INPUT) {
+                valueStart = valueEnd = currentPosition;
+                keyword = null;
+                return TokenType.EOF;
+            }
 
             if (Character.isWhitespace(currentChar) && currentChar != '\n') {
                 currentPosition++;
                 continue;
             }
 
-            Token token = nextToken();
-            if (token != null && token.getType() != TokenType.COMMENT) {
-                if (token.getType() == TokenType.NEWLINE) {
-                    currentLine++;
-                } else {
-                    tokens.add(token);
+            final TokenType type = nextToken();
+            if (type == null) {
+                throw new RuntimeException("Unknown character: " + (char) currentChar);
+            }
+
+            if (type == TokenType.NEWLINE) {
+                currentLine++;
+            } else if (type != TokenType.COMMENT) {
+                return type;
+            }
+        }
+    }
+
+    // Scans a single token starting at currentPosition by dispatching on its first character
+    private TokenType nextToken() {
+        final int start = currentPosition;
+        final int current = charAt(start);
+        final int next = charAt(start + 1);
+        keyword = null;
+
+        switch (current) {
+            case '\n':
+                return token(TokenType.NEWLINE, start, 1);
+            case '/':
+                if (next == '/') {
+                    return lineComment(start);
+                }
+                if (next == '*') {
+                    final int end = blockCommentEnd(start + 2);
+                    if (end >= 0) { // An unterminated block comment is lexed as a division operator
+                        return token(TokenType.COMMENT, start, end - start);
+                    }
+                }
+                return next == '='
+                    ? token(TokenType.COMPOUND_ASSIGNMENT_OPERATOR, start, 2)
+                    : token(TokenType.DIVISION_OPERATOR, start, 1);
+            case '"': {
+                int end = start + 1;
+                while (charAt(end) != '"') {
+                    if (charAt(end) == END_OF_INPUT) {
+                        return null;
+                    }
+                    end++;
+                }
+                valueStart = start + 1;
+                valueEnd = end;
+                currentPosition = end + 1;
+                return TokenType.STRING_LITERAL;
+            }
+            case '=':
+                return next == '='
+                    ? token(TokenType.EQUALITY_OPERATOR, start, 2)
+                    : token(TokenType.ASSIGNMENT_OPERATOR, start, 1);
+            case '!':
+                return next == '='
+                    ? token(TokenType.EQUALITY_OPERATOR, start, 2)
+                    : token(TokenType.NOT_OPERATOR, start, 1);
+            case '<', '>':
+                return token(TokenType.COMPARISON_OPERATOR, start, next == '=' ? 2 : 1);
+            case '+':
+                if (next == '=') {
+                    return token(TokenType.COMPOUND_ASSIGNMENT_OPERATOR, start, 2);
                 }
-            } else {
-                throw new RuntimeException("Unknown character: " + currentChar);
+                return next == '+'
+                    ? token(TokenType.INCREMENT_OPERATOR, start, 2)
+                    : token(TokenType.ADDITION_OPERATOR, start, 1);
+            case '-':
+                if (next == '=') {
+                    return token(TokenType.COMPOUND_ASSIGNMENT_OPERATOR, start, 2);
+                }
+                return next == '-'
+                    ? token(TokenType.DECREMENT_OPERATOR, start, 2)
+                    : token(TokenType.SUBTRACTION_OPERATOR, start, 1);
+            case '*':
+                return next == '='
+                    ? token(TokenType.COMPOUND_ASSIGNMENT_OPERATOR, start, 2)
+                    : token(TokenType.MULTIPLICATION_OPERATOR, start, 1);
+            case '.', ',':
+                return token(TokenType.PUNCTUATION, start, 1);
+            case '(':
+                return token(TokenType.LEFT_PARENTHESES, start, 1);
+            case ')':
+                return token(TokenType.RIGHT_PARENTHESES, start, 1);
+            case '{':
+                return token(TokenType.LEFT_BRACE, start, 1);
+            case '}':
+                return token(TokenType.RIGHT_BRACE, start, 1);
+            case '[':
+                return token(TokenType.LEFT_BRACKET, start, 1);
+            case ']':
+                return token(TokenType.RIGHT_BRACKET, start, 1);
+            case ';':
+                return token(TokenType.SEMICOLON, start, 1);
+            default:
+                if (isDigit(current)) {
+                    return number(start);
+                }
+                if (isIdentifierStart(current)) {
+                    return word(start);
+                }
+                return null;
+        }
+    }
+
+    // `//` comments run up to (but not including) the next line terminator
+    private TokenType lineComment(int start) {
+        int end = start + 2;
+        while (charAt(end) != END_OF_INPUT && !isLineTerminator(charAt(end))) {
+            end++;
+        }
+        return token(TokenType.COMMENT, start, end - start);
+    }
+
+    // Returns the position after the closing `*/`, or -1 if the comment is never closed
+    private int blockCommentEnd(int position) {
+        while (charAt(position) != END_OF_INPUT) {
+            if (charAt(position) == '*' && charAt(position + 1) == '/') {
+                return position + 2;
             }
+            position++;
         }
+        return -1;
+    }
 
-        return tokens;
+    // Number literals are `123`, `123L` for a Long or `123.45` for a Double, a trailing `.` is lexed as punctuation
+    private TokenType number(int start) {
+        int end = skipDigits(start);
+        if (charAt(end) == '.' && isDigit(charAt(end + 1))) {
+            end = skipDigits(end + 1);
+        } else if (charAt(end) == 'L' && !isIdentifierPart(charAt(end + 1))) {
+            end++;
+        }
+        return token(TokenType.NUMBER_LITERAL, start, end - start);
     }
 
-    private Token nextToken() {
-        if (currentPosition == input.length()) {
-            return null;
-        }
-
-        String[] tokenPatterns = {
-            "//.*",
-            "(?s)/\\*.*?\\*/",                                       // Comment
-            "(\\d+\\.\\d+|\\d+)",                                    // Number literals
-            "\\b(true|false)\\b",                                    // Boolean literals
-            "\"[^\"]*\"",                                            // String literals
-            "\\b(if|else|while|for|Int|String|Bool|Double|func)\\b", // Keywords
-            "[a-zA-Z_][a-zA-Z0-9_]*",                                // Identifiers (including `print` and `input`)
-            "\\bor\\b",                                              // Or keyword
-            "\\band\\b",                                             // And keyword
-            "==|!=",                                                 // Equality operators
-            "<=|>=|<|>",                                             // Comparison operators
-            "\\+=|-=|\\*=|/=",                                       // Compound assignment operators
-            "\\+\\+", "--",                                          // Increment and decrement operators
-            "\\+",                                                   // Addition operator
-            "-",                                                     // Subtraction operator
-            "\\*",                                                   // Multiplication operator
-            "/",                                                     // Division operator
-            "=",                                                     // Assignment operator
-            "!",                                                     // Logical NOT operator
-            "[.,]",                                                  // Punctuation
-            "\\(",                                                   // Left parentheses
-            "\\)",                                                   // Right parentheses
-            "\\{",                                                   // Left brace
-            "}",                                                     // Right brace
-            ";",                                                     // Semicolon
-            "\\n",                                                   // New line
+    private TokenType word(int start) {
+        int end = start + 1;
+        while (isIdentifierPart(charAt(end))) {
+            end++;
+        }
+
+        keyword = keyword(start, end - start);
+        if (keyword == null) {
+            return token(TokenType.IDENTIFIER, start, end - start);
+        }
+
+        final TokenType type = switch (keyword) {
+            case "true", "false" -> TokenType.BOOLEAN_LITERAL;
+            case "and" -> TokenType.AND_KEYWORD;
+            case "or" -> TokenType.OR_KEYWORD;
+            default -> TokenType.KEYWORD;
         };
+        return token(type, start, end - start);
+    }
 
-        TokenType[] types = {
-            TokenType.COMMENT,
-            TokenType.COMMENT,
-            TokenType.NUMBER_LITERAL,
-            TokenType.BOOLEAN_LITERAL,
-            TokenType.STRING_LITERAL,
-            TokenType.KEYWORD,
-            TokenType.IDENTIFIER,
-            TokenType.OR_KEYWORD,
-            TokenType.AND_KEYWORD,
-            TokenType.EQUALITY_OPERATOR,
-            TokenType.COMPARISON_OPERATOR,
-            TokenType.COMPOUND_ASSIGNMENT_OPERATOR,
-            TokenType.INCREMENT_OPERATOR,
-            TokenType.DECREMENT_OPERATOR,
-            TokenType.ADDITION_OPERATOR,
-            TokenType.SUBTRACTION_OPERATOR,
-            TokenType.MULTIPLICATION_OPERATOR,
-            TokenType.DIVISION_OPERATOR,
-            TokenType.ASSIGNMENT_OPERATOR,
-            TokenType.NOT_OPERATOR,
-            TokenType.PUNCTUATION,
-            TokenType.LEFT_PARENTHESES,
-            TokenType.RIGHT_PARENTHESES,
-            TokenType.LEFT_BRACE,
-            TokenType.RIGHT_BRACE,
-            TokenType.SEMICOLON,
-            TokenType.NEWLINE
+    // Returns the shared keyword (or boolean literal) spelled by the word, or null for plain identifiers
+    private String keyword(int start, int length) {
+        return switch (length) {
+            case 2 -> switch (charAt(start)) {
+                case 'i' -> wordEquals(start, "if");
+                case 'o' -> wordEquals(start, "or");
+                default -> null;
+            };
+            case 3 -> switch (charAt(start)) {
+                case 'a' -> wordEquals(start, "and");
+                case 'f' -> wordEquals(start, "for");
+                case 'I' -> wordEquals(start, "Int");
+                default -> null;
+            };
+            case 4 -> switch (charAt(start)) {
+                case 'e' -> wordEquals(start, "else");
+                case 'B' -> wordEquals(start, "Bool");
+                case 'f' -> wordEquals(start, "func");
+                case 'L' -> wordEquals(start, "Long");
+                case 't' -> wordEquals(start, "true");
+                default -> null;
+            };
+            case 5 -> switch (charAt(start)) {
+                case 'w' -> wordEquals(start, "while");
+                case 'f' -> wordEquals(start, "false");
+                case 'b' -> wordEquals(start, "break");
+                default -> null;
+            };
+            case 6 -> switch (charAt(start)) {
+                case 'S' -> wordEquals(start, "String");
+                case 'D' -> wordEquals(start, "Double");
+                case 'r' -> wordEquals(start, "return");
+                default -> null;
+            };
+            case 8 -> wordEquals(start, "continue");
+            default -> null;
         };
+    }
 
-        for (int i = 0; i < tokenPatterns.length; i++) {
-            Pattern pattern = Pattern.compile(tokenPatterns[i]);
-            Matcher matcher = pattern.matcher(input.substring(currentPosition));
+    private String wordEquals(int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (charAt(start + i) != word.charAt(i)) {
+                return null;
+            }
+        }
+        return word;
+    }
 
-            if (matcher.lookingAt()) {
-                String value = matcher.group();
-                currentPosition += value.length();
+    private TokenType token(TokenType type, int start, int length) {
+        valueStart = start;
+        valueEnd = currentPosition = start + length;
+        return type;
+    }
 
-                if (types[i] == TokenType.STRING_LITERAL) {
-                    value = value.substring(1, value.length() - 1);
-                }
+    private String text(int start, int end) {
+        return new String(buffer, start - bufferStart, end - start);
+    }
+
+    private int skipDigits(int position) {
+        while (isDigit(charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    // Returns the character at the absolute position, or END_OF_INPUT past the end of the source
+    private int charAt(int position) {
+        if (position >= bufferEnd && !fill(position)) {
+            return END_OF_INPUT;
+        }
+        return buffer[position - bufferStart];
+    }
 
-                return new Token(types[i], value, currentLine);
+    // Reads from the source until the position is buffered, returns false if the source ends before it
+    private boolean fill(int position) {
+        while (position >= bufferEnd) {
+            if (sourceExhausted) {
+                return false;
+            }
+
+            // Everything before the token being scanned is never looked at again
+            final int discarded = currentPosition - bufferStart;
+            if (discarded > 0) {
+                System.arraycopy(buffer, discarded, buffer, 0, bufferEnd - currentPosition);
+                bufferStart = currentPosition;
+            }
+
+            // A single token longer than the window (e.g. a long string literal) grows it
+            final int buffered = bufferEnd - bufferStart;
+            if (buffered == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            try {
+                final int read = source.read(CharBuffer.wrap(buffer, buffered, buffer.length - buffered));
+                if (read < 0) {
+                    sourceExhausted = true;
+                } else {
+                    bufferEnd += read;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
         }
+        return true;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
 
-        return null;
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 }
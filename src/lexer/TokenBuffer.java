@@ -0,0 +1,336 @@
+package lexer;
+
+import lexer.token.Token;
+import lexer.token.TokenType;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A fully lexed source held in parallel primitive arrays instead of one {@link Token} object per token.
+ * Lexemes are views into the source, and token text is only turned into (interned) Strings when asked for.
+ * The last token is always {@link TokenType#EOF}.
+ */
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    // How many characters past its end the lexer may look to decide a token (`1.5` after `1`)
+    private static final int SCAN_LOOKAHEAD = 2;
+
+    private final CharSequence source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    // Open addressing table of the token texts handed out so far
+    private String[] internTable = new String[64];
+    private int internCount;
+
+    // Set on buffers produced by relex(), describes which tokens were lexed again
+    private int firstRelexedToken;
+    private int firstReusedToken;
+    private int tokenShift;
+    private int lineShift;
+
+    TokenBuffer(CharSequence source, int initialCapacity) {
+        this.source = source;
+        types = new byte[initialCapacity];
+        starts = new int[initialCapacity];
+        lengths = new int[initialCapacity];
+        lines = new int[initialCapacity];
+    }
+
+    public static TokenBuffer of(CharSequence source) throws RuntimeException {
+        // Roughly one token per four characters of source
+        final TokenBuffer tokens = new TokenBuffer(source, Math.max(16, source.length() / 4));
+        new Lexer(CharBuffer.wrap(source)).tokenizeInto(tokens);
+        return tokens;
+    }
+
+    void add(TokenType type, int start, int length, int line) {
+        if (size == types.length) {
+            final int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    /**
+     * Lexes the source again after replacing the characters in [start, end) with the replacement. Tokens in
+     * front of the edit are kept as they are, and lexing stops as soon as it reaches a token boundary behind
+     * the edit that lines up with one of the old tokens, from there on the old tokens are shifted and reused.
+     */
+    public TokenBuffer relex(int start, int end, String replacement) throws RuntimeException {
+        final String editedSource = new StringBuilder(source.length() - (end - start) + replacement.length())
+            .append(source, 0, start)
+            .append(replacement)
+            .append(source, end, source.length())
+            .toString();
+        final int delta = replacement.length() - (end - start);
+        final int editEnd = start + replacement.length();
+
+        // The last token whose characters, and the characters the lexer looked at past them, are untouched
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (rawEnd(middle) + SCAN_LOOKAHEAD <= start) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int kept = low - 1;
+
+        // A `/` directly followed by `*` is an unterminated block comment, closing it later changes both
+        for (int i = 0; i < kept; i++) {
+            if (type(i) == TokenType.DIVISION_OPERATOR && type(i + 1) == TokenType.MULTIPLICATION_OPERATOR
+                && starts[i + 1] == starts[i] + 1) {
+                kept = i - 1;
+                break;
+            }
+        }
+
+        final TokenBuffer relexed = new TokenBuffer(editedSource, size + 16);
+        relexed.internTable = internTable.clone();
+        relexed.internCount = internCount;
+        relexed.append(this, 0, kept + 1, 0, 0);
+        relexed.firstRelexedToken = kept + 1;
+
+        final int resumePosition = kept >= 0 ? rawEnd(kept) : 0;
+        final int resumeLine = kept >= 0 ? lines[kept] : 1;
+        final Lexer lexer = new Lexer(
+            CharBuffer.wrap(editedSource, resumePosition, editedSource.length()),
+            resumePosition,
+            resumeLine
+        );
+
+        int oldIndex = kept + 1;
+        while (true) {
+            final TokenType type = lexer.scanInto(relexed);
+            final int newIndex = relexed.size - 1;
+            if (type == TokenType.EOF) {
+                relexed.firstReusedToken = relexed.size;
+                relexed.tokenShift = relexed.size - size;
+                break;
+            }
+
+            final int rawStart = relexed.rawStart(newIndex);
+            if (rawStart < editEnd) {
+                continue;
+            }
+
+            // Past the edit the lexer is in sync again once a token starts where an old one did
+            final int oldStart = rawStart - delta;
+            while (oldIndex < size - 1 && rawStart(oldIndex) < oldStart) {
+                oldIndex++;
+            }
+            if (oldIndex < size - 1 && rawStart(oldIndex) == oldStart && type(oldIndex) == type) {
+                relexed.size--;
+                relexed.firstReusedToken = newIndex;
+                relexed.tokenShift = newIndex - oldIndex;
+                relexed.lineShift = relexed.lines[newIndex] - lines[oldIndex];
+                relexed.append(this, oldIndex, size - oldIndex, delta, relexed.lineShift);
+                break;
+            }
+        }
+
+        return relexed;
+    }
+
+    // Appends a range of another buffer's tokens, moving their offsets and lines by the given amounts
+    void append(TokenBuffer other, int from, int count, int offsetShift, int lineShift) {
+        final int capacity = Math.max(types.length, size + count + 1);
+        if (capacity > types.length) {
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+        }
+
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        for (int i = 0; i < count; i++) {
+            starts[size + i] = other.starts[from + i] + offsetShift;
+            lines[size + i] = other.lines[from + i] + lineShift;
+        }
+        size += count;
+    }
+
+    // Index of the first token that relex() lexed again
+    public int getFirstRelexedToken() {
+        return firstRelexedToken;
+    }
+
+    // Index of the first token that relex() copied over from the previous buffer
+    public int getFirstReusedToken() {
+        return firstReusedToken;
+    }
+
+    // How far the reused tokens moved, the old index plus this shift is their new index
+    public int getTokenShift() {
+        return tokenShift;
+    }
+
+    // How many lines the reused tokens moved
+    public int getLineShift() {
+        return lineShift;
+    }
+
+    // Number of tokens, including the trailing EOF token
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    // A read-only view of the token's characters, no copy of the source is made
+    public CharSequence lexeme(int index) {
+        return CharBuffer.wrap(source, starts[index], starts[index] + lengths[index]);
+    }
+
+    public boolean textEquals(int index, String text) {
+        if (lengths[index] != text.length()) {
+            return false;
+        }
+
+        final int start = starts[index];
+        for (int i = 0; i < text.length(); i++) {
+            if (source.charAt(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The token's text, every spelling is materialized once and shared afterwards
+    public String text(int index) {
+        final int start = starts[index];
+        final int length = lengths[index];
+
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.charAt(start + i);
+        }
+
+        int slot = hash & (internTable.length - 1);
+        String interned;
+        while ((interned = internTable[slot]) != null) {
+            if (interned.hashCode() == hash && textEquals(index, interned)) {
+                return interned;
+            }
+            slot = (slot + 1) & (internTable.length - 1);
+        }
+
+        interned = source.subSequence(start, start + length).toString();
+        internTable[slot] = interned;
+        if (++internCount * 2 > internTable.length) {
+            growInternTable();
+        }
+        return interned;
+    }
+
+    public Token get(int index) {
+        return new Token(type(index), text(index), line(index));
+    }
+
+    // A cursor over the tokens starting at the given index, several cursors can walk the same buffer
+    public TokenStream stream(int fromIndex) {
+        return new Cursor(fromIndex);
+    }
+
+    public TokenStream stream() {
+        return stream(0);
+    }
+
+    // String literals are stored without their quotes, the raw bounds include them
+    private int rawStart(int index) {
+        return type(index) == TokenType.STRING_LITERAL ? starts[index] - 1 : starts[index];
+    }
+
+    private int rawEnd(int index) {
+        final int end = starts[index] + lengths[index];
+        return type(index) == TokenType.STRING_LITERAL ? end + 1 : end;
+    }
+
+    private void growInternTable() {
+        final String[] oldTable = internTable;
+        internTable = new String[oldTable.length * 2];
+        for (String text : oldTable) {
+            if (text != null) {
+                int slot = text.hashCode() & (internTable.length - 1);
+                while (internTable[slot] != null) {
+                    slot = (slot + 1) & (internTable.length - 1);
+                }
+                internTable[slot] = text;
+            }
+        }
+    }
+
+    private final class Cursor implements TokenStream {
+        private int position;
+
+        private Cursor(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public TokenType type(int offset) {
+            return TokenBuffer.this.type(index(offset));
+        }
+
+        @Override
+        public String text(int offset) {
+            return TokenBuffer.this.text(index(offset));
+        }
+
+        @Override
+        public int line(int offset) {
+            return TokenBuffer.this.line(index(offset));
+        }
+
+        @Override
+        public boolean textEquals(int offset, String text) {
+            return TokenBuffer.this.textEquals(index(offset), text);
+        }
+
+        @Override
+        public void advance() {
+            if (position < size - 1) {
+                position++;
+            }
+        }
+
+        // Offsets past the end all land on the EOF token
+        private int index(int offset) {
+            return Math.min(position + offset, size - 1);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package lexer;
+
+import lexer.token.TokenType;
+
+/**
+ * A pull-based source of tokens, read through a cursor instead of one object per token. Offsets are relative
+ * to the current token and may look at most {@link #LOOKAHEAD} tokens ahead. Once the input is exhausted the
+ * stream keeps reporting an {@link TokenType#EOF} token.
+ */
+public interface TokenStream {
+    // Maximum number of tokens that can be looked at past the current one
+    int LOOKAHEAD = 2;
+
+    TokenType type(int offset);
+
+    // The token's text, identifiers and keywords with equal spelling share one String
+    String text(int offset);
+
+    int line(int offset);
+
+    void advance();
+
+    // Streams that keep the source around compare in place instead of materializing the text
+    default boolean textEquals(int offset, String text) {
+        return text(offset).equals(text);
+    }
+}
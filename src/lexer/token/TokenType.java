@@ -24,7 +24,10 @@ public enum TokenType {
     RIGHT_PARENTHESES,
     LEFT_BRACE,
     RIGHT_BRACE,
+    LEFT_BRACKET,
+    RIGHT_BRACKET,
     SEMICOLON,
     NEWLINE,
     COMMENT,
+    EOF,
 }
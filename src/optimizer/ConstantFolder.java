@@ -0,0 +1,282 @@
+package optimizer;
+
+import parser.nodes.*;
+import parser.variables.Symbol;
+import semantic.Type;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Evaluates arithmetic, comparison and logical expressions whose operands are literals, and replaces the uses of
+ * variables that are initialized with a literal and never assigned again by that literal. Both feed each other:
+ * a propagated constant can make the next initializer foldable. Works on a resolved and type checked tree.
+ */
+public class ConstantFolder extends ASTTransformer {
+    private final BitSet reassigned = new BitSet();
+    private final Map<Symbol, LiteralNode> constants = new HashMap<>();
+
+    public ASTNode fold(ASTNode tree) {
+        new ASTWalker() {
+            @Override
+            public Void visit(VariableAssignmentNode node) {
+                markReassigned(node);
+                return super.visit(node);
+            }
+
+            @Override
+            public Void visit(CompoundAssignmentNode node) {
+                markReassigned(node);
+                return super.visit(node);
+            }
+
+            @Override
+            public Void visit(IncrementDecrementNode node) {
+                markReassigned(node);
+                return super.visit(node);
+            }
+        }.walk(tree);
+
+        return transform(tree);
+    }
+
+    private void markReassigned(ASTNode node) {
+        if (node.getSymbol() != null) {
+            reassigned.set(node.getSymbol().getId());
+        }
+    }
+
+    @Override
+    public ASTNode visit(VariableDeclarationNode node) {
+        final ASTNode declaration = super.visit(node);
+        final Symbol symbol = node.getSymbol();
+        if (symbol != null && !reassigned.get(symbol.getId()) && declaration instanceof VariableDeclarationNode folded
+            && folded.getValue() instanceof LiteralNode literal) {
+            constants.put(symbol, literal);
+        }
+        return declaration;
+    }
+
+    @Override
+    public ASTNode visit(VariableReferenceNode node) {
+        final LiteralNode constant = node.getSymbol() != null ? constants.get(node.getSymbol()) : null;
+        if (constant instanceof NumberLiteral number) {
+            return literal(node, number.getValue());
+        } else if (constant instanceof LongLiteral number) {
+            return literal(node, number.getValue());
+        } else if (constant instanceof DoubleLiteral number) {
+            return literal(node, number.getValue());
+        } else if (constant instanceof BooleanLiteral bool) {
+            return literal(node, bool.getValue());
+        } else if (constant instanceof StringLiteral string) {
+            return literal(node, string.getValue());
+        }
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(BinaryExpressionNode node) {
+        final ASTNode folded = super.visit(node);
+        if (!(folded instanceof BinaryExpressionNode expression)) {
+            return folded;
+        }
+
+        final ASTNode left = expression.getLeft();
+        final ASTNode right = expression.getRight();
+        if (left instanceof NumberLiteral a && right instanceof NumberLiteral b) {
+            // Dividing by zero is left to fail at runtime
+            return switch (expression.getOperator()) {
+                case "+" -> literal(node, a.getValue() + b.getValue());
+                case "-" -> literal(node, a.getValue() - b.getValue());
+                case "*" -> literal(node, a.getValue() * b.getValue());
+                case "/" -> b.getValue() != 0 ? literal(node, a.getValue() / b.getValue()) : expression;
+                default -> expression;
+            };
+        }
+        if (left instanceof LongLiteral a && right instanceof LongLiteral b) {
+            return switch (expression.getOperator()) {
+                case "+" -> literal(node, a.getValue() + b.getValue());
+                case "-" -> literal(node, a.getValue() - b.getValue());
+                case "*" -> literal(node, a.getValue() * b.getValue());
+                case "/" -> b.getValue() != 0 ? literal(node, a.getValue() / b.getValue()) : expression;
+                default -> expression;
+            };
+        }
+        if (left instanceof DoubleLiteral a && right instanceof DoubleLiteral b) {
+            // Dividing a Double by zero gives an infinity or NaN, nothing fails
+            return switch (expression.getOperator()) {
+                case "+" -> literal(node, a.getValue() + b.getValue());
+                case "-" -> literal(node, a.getValue() - b.getValue());
+                case "*" -> literal(node, a.getValue() * b.getValue());
+                case "/" -> literal(node, a.getValue() / b.getValue());
+                default -> expression;
+            };
+        }
+        // A String joined with a literal of any type, which shows the way the concatenation at runtime would
+        final String a = shownValue(left);
+        final String b = shownValue(right);
+        if (expression.getResolvedType() == Type.STRING && a != null && b != null) {
+            return literal(node, a + b);
+        }
+        return expression;
+    }
+
+    @Override
+    public ASTNode visit(ComparisonExpressionNode node) {
+        final ASTNode folded = super.visit(node);
+        if (!(folded instanceof ComparisonExpressionNode expression)) {
+            return folded;
+        }
+
+        final String operator = expression.getOperator();
+        final ASTNode left = expression.getLeft();
+        final ASTNode right = expression.getRight();
+        if (left instanceof NumberLiteral a && right instanceof NumberLiteral b) {
+            return compared(expression, Integer.compare(a.getValue(), b.getValue()));
+        }
+        if (left instanceof LongLiteral a && right instanceof LongLiteral b) {
+            return compared(expression, Long.compare(a.getValue(), b.getValue()));
+        }
+        if (left instanceof DoubleLiteral a && right instanceof DoubleLiteral b) {
+            // Not through Double.compare, which orders NaN and tells -0.0 from 0.0
+            final double x = a.getValue();
+            final double y = b.getValue();
+            return switch (operator) {
+                case "<" -> literal(node, x < y);
+                case "<=" -> literal(node, x <= y);
+                case ">" -> literal(node, x > y);
+                case ">=" -> literal(node, x >= y);
+                case "==" -> literal(node, x == y);
+                case "!=" -> literal(node, x != y);
+                default -> expression;
+            };
+        }
+
+        final Object a = constantValue(left);
+        final Object b = constantValue(right);
+        if (a != null && b != null && ("==".equals(operator) || "!=".equals(operator))) {
+            return literal(node, a.equals(b) == "==".equals(operator));
+        }
+        return expression;
+    }
+
+    // The literal for a comparison of two Int or Long values, given their order
+    private static ASTNode compared(ComparisonExpressionNode expression, int comparison) {
+        return switch (expression.getOperator()) {
+            case "<" -> literal(expression, comparison < 0);
+            case "<=" -> literal(expression, comparison <= 0);
+            case ">" -> literal(expression, comparison > 0);
+            case ">=" -> literal(expression, comparison >= 0);
+            case "==" -> literal(expression, comparison == 0);
+            case "!=" -> literal(expression, comparison != 0);
+            default -> expression;
+        };
+    }
+
+    @Override
+    public ASTNode visit(LogicalExpressionNode node) {
+        final ASTNode folded = super.visit(node);
+        if (!(folded instanceof LogicalExpressionNode expression)) {
+            return folded;
+        }
+
+        // `and` is decided by a false operand and `or` by a true one, the other operand value passes through
+        final boolean deciding = !"and".equals(expression.getOperator());
+        final ASTNode left = expression.getLeft();
+        final ASTNode right = expression.getRight();
+        if (left instanceof BooleanLiteral literal) {
+            return literal.getValue() == deciding ? literal(node, deciding) : right;
+        }
+        if (right instanceof BooleanLiteral literal) {
+            // The left operand is always evaluated, it may only go away if it has no side effects
+            if (literal.getValue() != deciding) {
+                return left;
+            }
+            return Expressions.isPure(left) ? literal(node, deciding) : expression;
+        }
+        return expression;
+    }
+
+    @Override
+    public ASTNode visit(UnaryExpressionNode node) {
+        final ASTNode folded = super.visit(node);
+        if (!(folded instanceof UnaryExpressionNode expression)) {
+            return folded;
+        }
+
+        final ASTNode operand = expression.getOperand();
+        if (operand instanceof BooleanLiteral literal && "!".equals(expression.getOperator())) {
+            return literal(node, !literal.getValue());
+        }
+        if (operand instanceof NumberLiteral literal) {
+            return switch (expression.getOperator()) {
+                case "-" -> literal(node, -literal.getValue());
+                case "+" -> literal(node, literal.getValue());
+                default -> expression;
+            };
+        }
+        if (operand instanceof LongLiteral literal) {
+            return switch (expression.getOperator()) {
+                case "-" -> literal(node, -literal.getValue());
+                case "+" -> literal(node, literal.getValue());
+                default -> expression;
+            };
+        }
+        if (operand instanceof DoubleLiteral literal) {
+            return switch (expression.getOperator()) {
+                case "-" -> literal(node, -literal.getValue());
+                case "+" -> literal(node, literal.getValue());
+                default -> expression;
+            };
+        }
+        return expression;
+    }
+
+    private static Object constantValue(ASTNode node) {
+        if (node instanceof NumberLiteral literal) {
+            return literal.getValue();
+        } else if (node instanceof BooleanLiteral literal) {
+            return literal.getValue();
+        } else if (node instanceof StringLiteral literal) {
+            return literal.getValue();
+        }
+        return null;
+    }
+
+    private static String shownValue(ASTNode node) {
+        if (node instanceof LongLiteral literal) {
+            return String.valueOf(literal.getValue());
+        } else if (node instanceof DoubleLiteral literal) {
+            return String.valueOf(literal.getValue());
+        }
+        final Object value = constantValue(node);
+        return value != null ? String.valueOf(value) : null;
+    }
+
+    static NumberLiteral literal(ASTNode replaced, int value) {
+        return at(replaced, new NumberLiteral(value), Type.INT);
+    }
+
+    static LongLiteral literal(ASTNode replaced, long value) {
+        return at(replaced, new LongLiteral(value), Type.LONG);
+    }
+
+    static DoubleLiteral literal(ASTNode replaced, double value) {
+        return at(replaced, new DoubleLiteral(value), Type.DOUBLE);
+    }
+
+    static BooleanLiteral literal(ASTNode replaced, boolean value) {
+        return at(replaced, new BooleanLiteral(value), Type.BOOL);
+    }
+
+    static StringLiteral literal(ASTNode replaced, String value) {
+        return at(replaced, new StringLiteral(value), Type.STRING);
+    }
+
+    private static <T extends ASTNode> T at(ASTNode replaced, T literal, Type type) {
+        literal.setPosition(replaced.getLineNumber(), replaced.getColumnNumber());
+        literal.setResolvedType(type);
+        return literal;
+    }
+}
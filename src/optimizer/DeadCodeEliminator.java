@@ -0,0 +1,188 @@
+package optimizer;
+
+import parser.nodes.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Removes code that cannot run or whose results are never used: branches and loops with a constant condition,
+ * statements behind a break, continue or return, stores to variables that are never read and expression
+ * statements, all as long as what goes away has no side effects. Runs until nothing changes, since dropping a
+ * store can leave the variables it read unread as well.
+ */
+public class DeadCodeEliminator extends ASTTransformer {
+    private BitSet read;
+    // Variables whose old value a compound assignment or increment builds on, their declaration has to stay
+    private BitSet updated;
+
+    public ASTNode eliminate(ASTNode tree) {
+        ASTNode previous;
+        do {
+            previous = tree;
+            findUses(tree);
+            tree = transform(tree);
+        } while (tree != previous);
+        return tree;
+    }
+
+    private void findUses(ASTNode tree) {
+        read = new BitSet();
+        updated = new BitSet();
+        new ASTWalker() {
+            // `x = x * 2` alone does not keep x alive, x is only updated by it
+            private ASTNode assignment;
+
+            @Override
+            public Void visit(VariableReferenceNode node) {
+                final boolean own = assignment != null && node.getSymbol() == assignment.getSymbol();
+                mark(own ? updated : read, node);
+                return null;
+            }
+
+            @Override
+            public Void visit(VariableAssignmentNode node) {
+                final ASTNode outer = assignment;
+                assignment = node;
+                super.visit(node);
+                assignment = outer;
+                return null;
+            }
+
+            @Override
+            public Void visit(CompoundAssignmentNode node) {
+                mark(updated, node);
+                return super.visit(node);
+            }
+
+            @Override
+            public Void visit(IncrementDecrementNode node) {
+                mark(updated, node);
+                return null;
+            }
+        }.walk(tree);
+    }
+
+    private static void mark(BitSet symbols, ASTNode node) {
+        if (node.getSymbol() != null) {
+            symbols.set(node.getSymbol().getId());
+        }
+    }
+
+    @Override
+    public ASTNode visit(BlockNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (!(transformed instanceof BlockNode block)) {
+            return transformed;
+        }
+
+        // Nothing behind a statement that always jumps away can run
+        final List<ASTNode> statements = block.getStatements();
+        for (int i = 0; i < statements.size() - 1; i++) {
+            if (alwaysJumps(statements.get(i))) {
+                return copyAttributes(block, new BlockNode(statements.subList(0, i + 1)));
+            }
+        }
+        return block;
+    }
+
+    // A value computed as a statement is thrown away, so only its side effects matter
+    @Override
+    protected List<ASTNode> transformStatements(List<ASTNode> statements) {
+        List<ASTNode> kept = statements;
+        for (int i = 0; i < statements.size(); i++) {
+            if (isUnusedValue(statements.get(i))) {
+                if (kept == statements) {
+                    kept = new ArrayList<>(statements.subList(0, i));
+                }
+            } else if (kept != statements) {
+                kept.add(statements.get(i));
+            }
+        }
+        return super.transformStatements(kept);
+    }
+
+    @Override
+    protected ASTNode transformBody(ASTNode body) {
+        return super.transformBody(isUnusedValue(body) ? copyAttributes(body, new BlockNode(new ArrayList<>())) : body);
+    }
+
+    @Override
+    public ASTNode visit(IfStatementNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (transformed instanceof IfStatementNode statement && statement.getCondition() instanceof BooleanLiteral condition) {
+            return condition.getValue() ? statement.getTrueBranch() : statement.getFalseBranch();
+        }
+        return transformed;
+    }
+
+    @Override
+    public ASTNode visit(WhileStatementNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (transformed instanceof WhileStatementNode statement && statement.getCondition() instanceof BooleanLiteral condition
+            && !condition.getValue()) {
+            return null;
+        }
+        return transformed;
+    }
+
+    @Override
+    public ASTNode visit(ForStatementNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (transformed instanceof ForStatementNode statement && statement.getCondition() instanceof BooleanLiteral condition
+            && !condition.getValue()) {
+            return statement.getInitialization();
+        }
+        return transformed;
+    }
+
+    @Override
+    public ASTNode visit(VariableDeclarationNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (node.getSymbol() != null && updated.get(node.getSymbol().getId())) {
+            return transformed;
+        }
+        return isDeadStore(transformed, ((VariableDeclarationNode) transformed).getValue()) ? null : transformed;
+    }
+
+    @Override
+    public ASTNode visit(VariableAssignmentNode node) {
+        final ASTNode transformed = super.visit(node);
+        return isDeadStore(transformed, ((VariableAssignmentNode) transformed).getValue()) ? null : transformed;
+    }
+
+    @Override
+    public ASTNode visit(CompoundAssignmentNode node) {
+        final ASTNode transformed = super.visit(node);
+        return isDeadStore(transformed, ((CompoundAssignmentNode) transformed).getValue()) ? null : transformed;
+    }
+
+    @Override
+    public ASTNode visit(IncrementDecrementNode node) {
+        return isDeadStore(node, null) ? null : node;
+    }
+
+    private static boolean isUnusedValue(ASTNode statement) {
+        return Expressions.isExpression(statement) && Expressions.isPure(statement);
+    }
+
+    private boolean isDeadStore(ASTNode store, ASTNode value) {
+        return store.getSymbol() != null && !read.get(store.getSymbol().getId())
+            && (value == null || Expressions.isPure(value));
+    }
+
+    private static boolean alwaysJumps(ASTNode statement) {
+        if (statement instanceof BreakNode || statement instanceof ContinueNode || statement instanceof ReturnNode) {
+            return true;
+        }
+        if (statement instanceof BlockNode block) {
+            return !block.getStatements().isEmpty() && alwaysJumps(block.getStatements().get(block.getStatements().size() - 1));
+        }
+        if (statement instanceof IfStatementNode ifStatement) {
+            return ifStatement.getFalseBranch() != null
+                && alwaysJumps(ifStatement.getTrueBranch()) && alwaysJumps(ifStatement.getFalseBranch());
+        }
+        return false;
+    }
+}
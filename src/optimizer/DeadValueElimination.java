@@ -0,0 +1,59 @@
+package optimizer;
+
+import ir.BasicBlock;
+import ir.Instruction;
+import ir.IrFunction;
+import ir.IrPass;
+import ir.Value;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the instructions and phis whose results nothing with an effect depends on. Liveness starts at the
+ * instructions with effects and the terminators and follows operands, so phis of a loop that only feed each other
+ * go as well.
+ */
+public class DeadValueElimination implements IrPass {
+    @Override
+    public String getName() {
+        return "dead-value-elimination";
+    }
+
+    @Override
+    public void run(IrFunction function) {
+        final Set<Instruction> live = new HashSet<>();
+        final Deque<Instruction> worklist = new ArrayDeque<>();
+        for (BasicBlock block : function.getBlocks()) {
+            for (Instruction instruction : block.getInstructions()) {
+                if (!instruction.getOpcode().isPure() && live.add(instruction)) {
+                    worklist.add(instruction);
+                }
+            }
+            if (live.add(block.getTerminator())) {
+                worklist.add(block.getTerminator());
+            }
+        }
+        while (!worklist.isEmpty()) {
+            for (Value operand : worklist.poll().getOperands()) {
+                if (operand instanceof Instruction definition && live.add(definition)) {
+                    worklist.add(definition);
+                }
+            }
+        }
+
+        for (BasicBlock block : function.getBlocks()) {
+            final List<Instruction> instructions = new ArrayList<>(block.getPhis());
+            instructions.addAll(block.getInstructions());
+            for (Instruction instruction : instructions) {
+                if (!live.contains(instruction)) {
+                    block.remove(instruction);
+                }
+            }
+        }
+    }
+}
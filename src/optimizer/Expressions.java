@@ -0,0 +1,72 @@
+package optimizer;
+
+import parser.nodes.*;
+import semantic.Type;
+
+// Questions about expressions that several passes ask
+final class Expressions {
+    private Expressions() { }
+
+    /**
+     * Calls can have side effects, and a division by anything but a nonzero constant can throw, as can an index out
+     * of range and a negative array length. len only reads the length of an array, which is never missing.
+     */
+    static boolean isPure(ASTNode expression) {
+        final boolean[] pure = {true};
+        new ASTWalker() {
+            @Override
+            public Void visit(FunctionCallNode node) {
+                if (isLength(node)) {
+                    return super.visit(node);
+                }
+                pure[0] = false;
+                return null;
+            }
+
+            @Override
+            public Void visit(ArrayAccessNode node) {
+                pure[0] = false;
+                return null;
+            }
+
+            @Override
+            public Void visit(ArrayCreationNode node) {
+                pure[0] = false;
+                return null;
+            }
+
+            @Override
+            public Void visit(BinaryExpressionNode node) {
+                if (canThrow(node)) {
+                    pure[0] = false;
+                    return null;
+                }
+                return super.visit(node);
+            }
+        }.walk(expression);
+        return pure[0];
+    }
+
+    // Whether the operation itself can throw: an Int or Long division that is not by a nonzero literal
+    static boolean canThrow(BinaryExpressionNode node) {
+        if (!"/".equals(node.getOperator()) || node.getResolvedType() == Type.DOUBLE) {
+            return false;
+        }
+        final ASTNode divisor = node.getRight();
+        return !(divisor instanceof NumberLiteral literal && literal.getValue() != 0
+            || divisor instanceof LongLiteral longLiteral && longLiteral.getValue() != 0);
+    }
+
+    // The len builtin, the type checker does not let a function of the program take its name
+    static boolean isLength(FunctionCallNode call) {
+        return "len".equals(call.getFunctionName());
+    }
+
+    // Whether the node computes a value, as opposed to a statement that only has effects
+    static boolean isExpression(ASTNode node) {
+        return node instanceof LiteralNode || node instanceof VariableReferenceNode
+            || node instanceof BinaryExpressionNode || node instanceof ComparisonExpressionNode
+            || node instanceof LogicalExpressionNode || node instanceof UnaryExpressionNode
+            || node instanceof ArrayAccessNode || node instanceof ArrayCreationNode;
+    }
+}
@@ -0,0 +1,549 @@
+package optimizer;
+
+import parser.nodes.*;
+import parser.variables.Symbol;
+import parser.variables.SymbolTable;
+import semantic.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Replaces calls of small functions by a copy of their body. The arguments initialize temporaries that stand for
+ * the parameters, the locals of the body are renamed to temporaries of the caller, and the body is arranged so that
+ * every return is the last statement it runs, which then only has to assign the result temporary. The copy goes
+ * right before the statement with the call, so a call is only inlined if the statement evaluates it exactly once
+ * and before anything else with an effect. Functions that call themselves, directly or through other functions,
+ * return from inside a loop or are bigger than the size limit stay calls.
+ */
+public class FunctionInliner extends ASTTransformer {
+    private static final String NOT_FIRST = "its statement may skip it or do something else first";
+    private static final String IN_CONDITION = "the loop evaluates it again in every iteration";
+
+    private final SymbolTable symbolTable;
+    private final int sizeLimit;
+    private final Consumer<String> report;
+    // The arranged bodies of the functions that can be inlined, and why the others cannot
+    private final Map<String, FunctionDeclarationNode> functions = new HashMap<>();
+    // The user functions each function calls, in the order of its body
+    private final Map<String, Set<String>> callees = new HashMap<>();
+    private final Map<String, List<ASTNode>> bodies = new HashMap<>();
+    private final Map<String, String> refusals = new HashMap<>();
+    // The frame of the code being transformed, the temporaries of inlined bodies go there
+    private int frame = SymbolTable.MAIN_FRAME;
+
+    // The size limit counts the nodes of a body, report receives one line per call of a user function
+    public FunctionInliner(SymbolTable symbolTable, int sizeLimit, Consumer<String> report) {
+        this.symbolTable = symbolTable;
+        this.sizeLimit = sizeLimit;
+        this.report = report;
+    }
+
+    public ASTNode inline(ASTNode tree) {
+        if (!(tree instanceof BlockNode root)) {
+            return tree;
+        }
+
+        for (ASTNode statement : root.getStatements()) {
+            if (statement instanceof FunctionDeclarationNode function) {
+                functions.put(function.getName(), function);
+            }
+        }
+        for (FunctionDeclarationNode function : functions.values()) {
+            callees.put(function.getName(), callees(function.getBody()));
+        }
+        for (FunctionDeclarationNode function : functions.values()) {
+            final String refusal = refusal(function);
+            if (refusal != null) {
+                refusals.put(function.getName(), refusal);
+            }
+        }
+        return transform(tree);
+    }
+
+    private String refusal(FunctionDeclarationNode function) {
+        final String recursion = recursion(function.getName());
+        if (recursion != null) {
+            return recursion;
+        }
+
+        final boolean[] returnsInLoop = {false};
+        new ASTWalker() {
+            @Override
+            public Void visit(WhileStatementNode node) {
+                returnsInLoop[0] |= containsReturn(node);
+                return null;
+            }
+
+            @Override
+            public Void visit(ForStatementNode node) {
+                returnsInLoop[0] |= containsReturn(node);
+                return null;
+            }
+        }.walk(function.getBody());
+        if (returnsInLoop[0]) {
+            return "it returns from inside a loop";
+        }
+
+        // Arranging can copy statements into both branches of an if, so the limit applies to the result
+        final List<ASTNode> body = arrange(statementsOf(function.getBody()));
+        if (body == null) {
+            return "it returns from the middle of a branch";
+        }
+        final int size = body.stream().mapToInt(FunctionInliner::size).sum();
+        if (size > sizeLimit) {
+            return "its body has " + size + " nodes, the limit is " + sizeLimit;
+        }
+        bodies.put(function.getName(), body);
+        return null;
+    }
+
+    /**
+     * Copies of a function that reaches itself through other functions would be inlined into each other's bodies,
+     * each one a level deeper, so all functions on the cycle stay calls.
+     */
+    private String recursion(String name) {
+        if (callees.get(name).contains(name)) {
+            return "it calls itself";
+        }
+        for (String callee : callees.get(name)) {
+            final Set<String> visited = new HashSet<>();
+            final Deque<String> pending = new ArrayDeque<>(List.of(callee));
+            while (!pending.isEmpty()) {
+                final String next = pending.pop();
+                if (next.equals(name)) {
+                    return "it calls itself through " + callee;
+                }
+                if (visited.add(next)) {
+                    pending.addAll(callees.get(next));
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public ASTNode visit(FunctionDeclarationNode node) {
+        final int outerFrame = frame;
+        frame = node.getFrame();
+        final ASTNode transformed = super.visit(node);
+        frame = outerFrame;
+        return transformed;
+    }
+
+    @Override
+    public ASTNode visit(VariableDeclarationNode node) {
+        return inlineCalls(node, node.getValue(), value -> value == node.getValue() ? node : copyAttributes(
+            node, new VariableDeclarationNode(node.getType(), node.getName(), value)
+        ));
+    }
+
+    @Override
+    public ASTNode visit(VariableAssignmentNode node) {
+        return inlineCalls(node, node.getValue(), value -> value == node.getValue() ? node : copyAttributes(
+            node, new VariableAssignmentNode(node.getVariableName(), value)
+        ));
+    }
+
+    @Override
+    public ASTNode visit(CompoundAssignmentNode node) {
+        return inlineCalls(node, node.getValue(), value -> value == node.getValue() ? node : copyAttributes(
+            node, new CompoundAssignmentNode(node.getVariableName(), node.getCompoundOp(), value)
+        ));
+    }
+
+    /**
+     * The array and index are evaluated before the value, a call in the value can only run first when they have no
+     * effects. An update reads the element before the value too, a call could change it in between.
+     */
+    @Override
+    public ASTNode visit(ArrayAssignmentNode node) {
+        if (!"=".equals(node.getOperator()) || firstOf(node.getArray(), node.getIndex()) != null) {
+            reportRemaining(node, NOT_FIRST);
+            return node;
+        }
+        return inlineCalls(node, node.getValue(), value -> value == node.getValue() ? node : copyAttributes(
+            node, new ArrayAssignmentNode(node.getArray(), node.getIndex(), node.getOperator(), value)
+        ));
+    }
+
+    @Override
+    public ASTNode visit(ReturnNode node) {
+        return inlineCalls(
+            node,
+            node.getReturnValue(),
+            value -> value == node.getReturnValue() ? node : copyAttributes(node, new ReturnNode(value))
+        );
+    }
+
+    // Only reached for calls that are statements, the visits above handle the expressions themselves
+    @Override
+    public ASTNode visit(FunctionCallNode node) {
+        // Whatever is left of the statement is a call or the unused result of an inlined one
+        return inlineCalls(node, node, value -> value instanceof FunctionCallNode ? value : null);
+    }
+
+    @Override
+    public ASTNode visit(IfStatementNode node) {
+        final ASTNode trueBranch = transformBody(node.getTrueBranch());
+        final ASTNode falseBranch = transform(node.getFalseBranch());
+        return inlineCalls(node, node.getCondition(), condition -> {
+            if (condition == node.getCondition() && trueBranch == node.getTrueBranch()
+                && falseBranch == node.getFalseBranch()) {
+                return node;
+            }
+            return copyAttributes(node, new IfStatementNode(condition, trueBranch, falseBranch));
+        });
+    }
+
+    @Override
+    public ASTNode visit(WhileStatementNode node) {
+        reportRemaining(node.getCondition(), IN_CONDITION);
+        final ASTNode body = transformBody(node.getBody());
+        return body == node.getBody() ? node : copyAttributes(node, new WhileStatementNode(node.getCondition(), body));
+    }
+
+    @Override
+    public ASTNode visit(ForStatementNode node) {
+        // The update is a statement of its own that runs after every iteration, it can take a copy as well
+        final ASTNode initialization = transform(node.getInitialization());
+        reportRemaining(node.getCondition(), IN_CONDITION);
+        final ASTNode update = transform(node.getUpdate());
+        final ASTNode body = transformBody(node.getBody());
+        if (initialization == node.getInitialization() && update == node.getUpdate() && body == node.getBody()) {
+            return node;
+        }
+        return copyAttributes(node, new ForStatementNode(initialization, node.getCondition(), update, body));
+    }
+
+    /**
+     * Inlines the calls the statement evaluates first, one after the other, and returns a block of their bodies
+     * followed by the statement rebuilt around what is left of the expression. Returns the statement as it is if
+     * there is nothing to inline.
+     */
+    private ASTNode inlineCalls(ASTNode statement, ASTNode expression, Function<ASTNode, ASTNode> rebuild) {
+        final List<ASTNode> statements = new ArrayList<>();
+        ASTNode remaining = expression;
+        while (firstEffect(remaining) instanceof FunctionCallNode call && bodies.containsKey(call.getFunctionName())) {
+            report.accept("Inlined " + call.getFunctionName() + " at: " + call.getLineNumber());
+            final ASTNode result = inlineCall(call, statements);
+            remaining = replace(remaining, call, result);
+        }
+        reportRemaining(remaining, NOT_FIRST);
+
+        final ASTNode rebuilt = rebuild.apply(remaining);
+        if (statements.isEmpty()) {
+            return rebuilt;
+        }
+        if (rebuilt != null) {
+            statements.add(rebuilt);
+        }
+        return block(statement, statements);
+    }
+
+    // Adds the copy of the body to statements, returns a reference to the result or null for a Void function
+    private ASTNode inlineCall(FunctionCallNode call, List<ASTNode> statements) {
+        final FunctionDeclarationNode function = functions.get(call.getFunctionName());
+        final List<ASTNode> body = bodies.get(function.getName());
+        final Renamer renamer = new Renamer(
+            call.getResolvedType() != Type.VOID ? symbolTable.declareTemporary(call.getResolvedType(), frame) : null,
+            countReturns(body) == 1 && body.get(body.size() - 1) instanceof ReturnNode
+        );
+
+        // The arguments are evaluated in order, as the call would have, into the parameter temporaries
+        for (int i = 0; i < function.getParameters().size(); i++) {
+            final ParameterNode parameter = function.getParameters().get(i);
+            final ASTNode argument = call.getArguments().get(i);
+            final Symbol temporary = renamer.rename(parameter.getSymbol());
+            final VariableDeclarationNode declaration = new VariableDeclarationNode(
+                parameter.getType(), temporary.getName(), argument
+            );
+            declaration.setPosition(call.getLineNumber(), call.getColumnNumber());
+            declaration.setSymbol(temporary);
+            statements.add(declaration);
+        }
+
+        statements.add(renamer.transform(block(function, body)));
+
+        if (renamer.result == null) {
+            return null;
+        }
+        final VariableReferenceNode reference = new VariableReferenceNode(renamer.result.getName());
+        copyAttributes(call, reference).setSymbol(renamer.result);
+        return reference;
+    }
+
+    private void reportRemaining(ASTNode expression, String reason) {
+        new ASTWalker() {
+            @Override
+            public Void visit(FunctionCallNode node) {
+                super.visit(node);
+                final String name = node.getFunctionName();
+                if (functions.containsKey(name)) {
+                    report.accept(
+                        "Not inlined " + name + " at: " + node.getLineNumber() + ", " + refusals.getOrDefault(name, reason)
+                    );
+                }
+                return null;
+            }
+        }.walk(expression);
+    }
+
+    // Gives the variables of one copy of a body fresh temporaries and turns its returns into result assignments
+    private class Renamer extends ASTTransformer {
+        private final Symbol result;
+        // A single return at the end can declare the result, which lets the constant folder propagate it
+        private final boolean declaresResult;
+        private final Map<Symbol, Symbol> temporaries = new HashMap<>();
+
+        private Renamer(Symbol result, boolean declaresResult) {
+            this.result = result;
+            this.declaresResult = declaresResult;
+        }
+
+        private Symbol rename(Symbol symbol) {
+            return temporaries.computeIfAbsent(symbol, original -> symbolTable.declareTemporary(original.getType(), frame));
+        }
+
+        private <T extends ASTNode> T renamed(ASTNode from, T to, Symbol temporary) {
+            copyAttributes(from, to).setSymbol(temporary);
+            return to;
+        }
+
+        @Override
+        public ASTNode visit(VariableDeclarationNode node) {
+            final Symbol temporary = rename(node.getSymbol());
+            return renamed(
+                node, new VariableDeclarationNode(node.getType(), temporary.getName(), transform(node.getValue())), temporary
+            );
+        }
+
+        @Override
+        public ASTNode visit(VariableReferenceNode node) {
+            final Symbol temporary = rename(node.getSymbol());
+            return renamed(node, new VariableReferenceNode(temporary.getName()), temporary);
+        }
+
+        @Override
+        public ASTNode visit(VariableAssignmentNode node) {
+            final Symbol temporary = rename(node.getSymbol());
+            return renamed(node, new VariableAssignmentNode(temporary.getName(), transform(node.getValue())), temporary);
+        }
+
+        @Override
+        public ASTNode visit(CompoundAssignmentNode node) {
+            final Symbol temporary = rename(node.getSymbol());
+            return renamed(
+                node,
+                new CompoundAssignmentNode(temporary.getName(), node.getCompoundOp(), transform(node.getValue())),
+                temporary
+            );
+        }
+
+        @Override
+        public ASTNode visit(IncrementDecrementNode node) {
+            final Symbol temporary = rename(node.getSymbol());
+            return renamed(node, new IncrementDecrementNode(temporary.getName(), node.getOp()), temporary);
+        }
+
+        // Arranging made every return the last statement on its path, so falling through is all that is left
+        @Override
+        public ASTNode visit(ReturnNode node) {
+            if (result == null) {
+                return null;
+            }
+            final ASTNode value = transform(node.getReturnValue());
+            if (declaresResult) {
+                return renamed(node, new VariableDeclarationNode(result.getType().getName(), result.getName(), value), result);
+            }
+            return renamed(node, new VariableAssignmentNode(result.getName(), value), result);
+        }
+    }
+
+    /**
+     * Rearranges statements so that every return is the last statement on its path: the statements after an if
+     * with a return in it move into the branches that can complete without returning. Blocks are flattened, their
+     * locals become temporaries that need no scope. Returns null if a return stays in the middle of a path.
+     */
+    private static List<ASTNode> arrange(List<ASTNode> statements) {
+        final List<ASTNode> arranged = new ArrayList<>();
+        for (int i = 0; i < statements.size(); i++) {
+            final ASTNode statement = statements.get(i);
+            final List<ASTNode> rest = statements.subList(i + 1, statements.size());
+            if (statement instanceof BlockNode block) {
+                final List<ASTNode> flattened = new ArrayList<>(block.getStatements());
+                flattened.addAll(rest);
+                final List<ASTNode> tail = arrange(flattened);
+                if (tail == null) {
+                    return null;
+                }
+                arranged.addAll(tail);
+                return arranged;
+            }
+            if (statement instanceof ReturnNode) {
+                // Anything after it is unreachable
+                arranged.add(statement);
+                return arranged;
+            }
+            if (statement instanceof IfStatementNode ifStatement && containsReturn(ifStatement)) {
+                final List<ASTNode> trueStatements = new ArrayList<>(statementsOf(ifStatement.getTrueBranch()));
+                final List<ASTNode> falseStatements = new ArrayList<>(statementsOf(ifStatement.getFalseBranch()));
+                if (!alwaysReturns(ifStatement.getTrueBranch())) {
+                    trueStatements.addAll(rest);
+                }
+                if (ifStatement.getFalseBranch() == null || !alwaysReturns(ifStatement.getFalseBranch())) {
+                    falseStatements.addAll(rest);
+                }
+
+                final List<ASTNode> trueBranch = arrange(trueStatements);
+                final List<ASTNode> falseBranch = arrange(falseStatements);
+                if (trueBranch == null || falseBranch == null) {
+                    return null;
+                }
+                arranged.add(copyAttributes(ifStatement, new IfStatementNode(
+                    ifStatement.getCondition(),
+                    block(ifStatement.getTrueBranch(), trueBranch),
+                    falseBranch.isEmpty() ? null : block(ifStatement, falseBranch)
+                )));
+                return arranged;
+            }
+            if (containsReturn(statement)) {
+                return null;
+            }
+            arranged.add(statement);
+        }
+        return arranged;
+    }
+
+    private static BlockNode block(ASTNode at, List<ASTNode> statements) {
+        final BlockNode block = new BlockNode(statements);
+        block.setPosition(at.getLineNumber(), at.getColumnNumber());
+        return block;
+    }
+
+    private static List<ASTNode> statementsOf(ASTNode body) {
+        if (body == null) {
+            return List.of();
+        }
+        return body instanceof BlockNode block ? block.getStatements() : List.of(body);
+    }
+
+    private static boolean alwaysReturns(ASTNode statement) {
+        if (statement instanceof ReturnNode) {
+            return true;
+        } else if (statement instanceof BlockNode block) {
+            return block.getStatements().stream().anyMatch(FunctionInliner::alwaysReturns);
+        } else if (statement instanceof IfStatementNode ifStatement) {
+            return alwaysReturns(ifStatement.getTrueBranch()) && ifStatement.getFalseBranch() != null
+                && alwaysReturns(ifStatement.getFalseBranch());
+        }
+        return false;
+    }
+
+    private static boolean containsReturn(ASTNode node) {
+        return countReturns(List.of(node)) > 0;
+    }
+
+    private static int countReturns(List<ASTNode> statements) {
+        final int[] count = {0};
+        final ASTWalker walker = new ASTWalker() {
+            @Override
+            public Void visit(ReturnNode node) {
+                count[0]++;
+                return null;
+            }
+        };
+        statements.forEach(walker::walk);
+        return count[0];
+    }
+
+    private Set<String> callees(ASTNode node) {
+        final Set<String> called = new LinkedHashSet<>();
+        new ASTWalker() {
+            @Override
+            public Void visit(FunctionCallNode node) {
+                if (functions.containsKey(node.getFunctionName())) {
+                    called.add(node.getFunctionName());
+                }
+                return super.visit(node);
+            }
+        }.walk(node);
+        return called;
+    }
+
+    private static int size(ASTNode node) {
+        final int[] size = {0};
+        new ASTWalker() {
+            @Override
+            public void walk(ASTNode node) {
+                if (node != null) {
+                    size[0]++;
+                }
+                super.walk(node);
+            }
+        }.walk(node);
+        return size[0];
+    }
+
+    /**
+     * The first node in evaluation order that calls something or may throw, or null if there is none. An effect in
+     * the right operand of and/or may be skipped, the whole logical expression counts as the effect then.
+     */
+    private static ASTNode firstEffect(ASTNode node) {
+        if (node instanceof BinaryExpressionNode binary) {
+            final ASTNode effect = firstOf(binary.getLeft(), binary.getRight());
+            if (effect != null) {
+                return effect;
+            }
+            return Expressions.canThrow(binary) ? binary : null;
+        } else if (node instanceof ComparisonExpressionNode comparison) {
+            return firstOf(comparison.getLeft(), comparison.getRight());
+        } else if (node instanceof LogicalExpressionNode logical) {
+            final ASTNode effect = firstEffect(logical.getLeft());
+            if (effect != null) {
+                return effect;
+            }
+            return firstEffect(logical.getRight()) != null ? logical : null;
+        } else if (node instanceof UnaryExpressionNode unary) {
+            return firstEffect(unary.getOperand());
+        } else if (node instanceof ArrayAccessNode access) {
+            final ASTNode effect = firstOf(access.getArray(), access.getIndex());
+            return effect != null ? effect : access;
+        } else if (node instanceof ArrayCreationNode creation) {
+            final ASTNode effect = firstEffect(creation.getLength());
+            return effect != null ? effect : creation;
+        } else if (node instanceof FunctionCallNode call) {
+            final ASTNode effect = firstOf(call.getArguments().toArray(new ASTNode[0]));
+            return effect != null || Expressions.isLength(call) ? effect : call;
+        }
+        return null;
+    }
+
+    private static ASTNode firstOf(ASTNode... operands) {
+        for (ASTNode operand : operands) {
+            final ASTNode effect = firstEffect(operand);
+            if (effect != null) {
+                return effect;
+            }
+        }
+        return null;
+    }
+
+    private static ASTNode replace(ASTNode expression, FunctionCallNode call, ASTNode replacement) {
+        return new ASTTransformer() {
+            @Override
+            public ASTNode visit(FunctionCallNode node) {
+                return node == call ? replacement : super.visit(node);
+            }
+        }.transform(expression);
+    }
+}
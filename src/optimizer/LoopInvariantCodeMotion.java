@@ -0,0 +1,208 @@
+package optimizer;
+
+import parser.nodes.*;
+import parser.variables.Symbol;
+import parser.variables.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves expressions that have the same value in every iteration out of while and for loops. An expression is
+ * invariant when it calls nothing and only reads variables the loop never assigns; it is computed once into a
+ * temporary before the loop and the loop reads the temporary instead. Inner loops are handled first, so an
+ * expression that is invariant in the outer loop as well moves on out of it.
+ */
+public class LoopInvariantCodeMotion extends ASTTransformer {
+    private final SymbolTable symbolTable;
+    // The temporaries of this pass are assigned once, so ones computed before an inner loop can move further out
+    private final Set<Symbol> temporaries = new HashSet<>();
+
+    public LoopInvariantCodeMotion(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    public ASTNode hoist(ASTNode tree) {
+        return transform(tree);
+    }
+
+    @Override
+    public ASTNode visit(WhileStatementNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (!(transformed instanceof WhileStatementNode loop)) {
+            return transformed;
+        }
+
+        final Hoister hoister = new Hoister(assignedSymbols(loop));
+        final ASTNode condition = hoister.transform(loop.getCondition());
+        final ASTNode body = hoister.transform(loop.getBody());
+        if (hoister.hoisted.isEmpty()) {
+            return loop;
+        }
+        return hoister.wrap(loop, copyAttributes(loop, new WhileStatementNode(condition, body)));
+    }
+
+    @Override
+    public ASTNode visit(ForStatementNode node) {
+        final ASTNode transformed = super.visit(node);
+        if (!(transformed instanceof ForStatementNode loop)) {
+            return transformed;
+        }
+
+        // The initialization runs once anyway, and it is what declares the loop variable
+        final Hoister hoister = new Hoister(assignedSymbols(loop));
+        final ASTNode condition = hoister.transform(loop.getCondition());
+        final ASTNode update = hoister.transform(loop.getUpdate());
+        final ASTNode body = hoister.transform(loop.getBody());
+        if (hoister.hoisted.isEmpty()) {
+            return loop;
+        }
+        return hoister.wrap(
+            loop, copyAttributes(loop, new ForStatementNode(loop.getInitialization(), condition, update, body))
+        );
+    }
+
+    // Every variable the loop declares or writes, anywhere in it
+    private static BitSet assignedSymbols(ASTNode loop) {
+        final BitSet assigned = new BitSet();
+        new ASTWalker() {
+            @Override
+            public void walk(ASTNode node) {
+                if (node != null && node.getSymbol() != null && !(node instanceof VariableReferenceNode)) {
+                    assigned.set(node.getSymbol().getId());
+                }
+                super.walk(node);
+            }
+        }.walk(loop);
+        return assigned;
+    }
+
+    // Replaces the invariant expressions of one loop by temporaries, equal expressions share one
+    private class Hoister extends ASTTransformer {
+        private final BitSet assigned;
+        private final Map<String, VariableDeclarationNode> declarations = new HashMap<>();
+        private final List<ASTNode> hoisted = new ArrayList<>();
+
+        private Hoister(BitSet assigned) {
+            this.assigned = assigned;
+        }
+
+        @Override
+        public ASTNode transform(ASTNode node) {
+            if (node instanceof VariableDeclarationNode declaration && temporaries.contains(declaration.getSymbol())
+                && isInvariant(declaration.getValue())) {
+                hoisted.add(declaration);
+                return null;
+            }
+            if (!isOperation(node) || node.getResolvedType() == null || !isInvariant(node)) {
+                return super.transform(node);
+            }
+
+            final Symbol context = firstSymbol(node);
+            if (context == null) {
+                return node;
+            }
+
+            final String key = key(node);
+            VariableDeclarationNode declaration = declarations.get(key);
+            if (declaration == null) {
+                final Symbol temporary = symbolTable.declareTemporary(node.getResolvedType(), context.getFrame());
+                declaration = new VariableDeclarationNode(node.getResolvedType().getName(), temporary.getName(), node);
+                declaration.setPosition(node.getLineNumber(), node.getColumnNumber());
+                declaration.setSymbol(temporary);
+                declarations.put(key, declaration);
+                temporaries.add(temporary);
+                hoisted.add(declaration);
+            }
+
+            final VariableReferenceNode reference = new VariableReferenceNode(declaration.getName());
+            reference.setPosition(node.getLineNumber(), node.getColumnNumber());
+            reference.setResolvedType(node.getResolvedType());
+            reference.setSymbol(declaration.getSymbol());
+            return reference;
+        }
+
+        // The temporaries are computed right before the loop, in a block together with it
+        private ASTNode wrap(ASTNode original, ASTNode loop) {
+            final List<ASTNode> statements = new ArrayList<>(hoisted);
+            statements.add(loop);
+            return copyAttributes(original, new BlockNode(statements));
+        }
+
+        private boolean isInvariant(ASTNode node) {
+            if (node instanceof LiteralNode) {
+                return true;
+            }
+            if (node instanceof VariableReferenceNode) {
+                return node.getSymbol() != null && !assigned.get(node.getSymbol().getId());
+            }
+            if (node instanceof BinaryExpressionNode binary) {
+                // A division could throw, only one that cannot may run when the loop would not have run it
+                if (Expressions.canThrow(binary)) {
+                    return false;
+                }
+                return isInvariant(binary.getLeft()) && isInvariant(binary.getRight());
+            }
+            if (node instanceof ComparisonExpressionNode comparison) {
+                return isInvariant(comparison.getLeft()) && isInvariant(comparison.getRight());
+            }
+            if (node instanceof LogicalExpressionNode logical) {
+                return isInvariant(logical.getLeft()) && isInvariant(logical.getRight());
+            }
+            if (node instanceof UnaryExpressionNode unary) {
+                return isInvariant(unary.getOperand());
+            }
+            return false;
+        }
+    }
+
+    // Only expressions that compute something are worth a temporary, a variable or literal is as cheap to read
+    private static boolean isOperation(ASTNode node) {
+        return node instanceof BinaryExpressionNode || node instanceof ComparisonExpressionNode
+            || node instanceof LogicalExpressionNode || node instanceof UnaryExpressionNode;
+    }
+
+    private static Symbol firstSymbol(ASTNode expression) {
+        final Symbol[] first = new Symbol[1];
+        new ASTWalker() {
+            @Override
+            public Void visit(VariableReferenceNode node) {
+                if (first[0] == null) {
+                    first[0] = node.getSymbol();
+                }
+                return null;
+            }
+        }.walk(expression);
+        return first[0];
+    }
+
+    // Equal for expressions that compute the same value from the same variables
+    private static String key(ASTNode node) {
+        if (node instanceof NumberLiteral literal) {
+            return Integer.toString(literal.getValue());
+        } else if (node instanceof LongLiteral literal) {
+            return literal.getValue() + "L";
+        } else if (node instanceof DoubleLiteral literal) {
+            return literal.getValue() + "D";
+        } else if (node instanceof BooleanLiteral literal) {
+            return Boolean.toString(literal.getValue());
+        } else if (node instanceof StringLiteral literal) {
+            return "\"" + literal.getValue().length() + ":" + literal.getValue();
+        } else if (node instanceof VariableReferenceNode) {
+            return "#" + node.getSymbol().getId();
+        } else if (node instanceof BinaryExpressionNode binary) {
+            return "(" + binary.getOperator() + " " + key(binary.getLeft()) + " " + key(binary.getRight()) + ")";
+        } else if (node instanceof ComparisonExpressionNode comparison) {
+            return "(" + comparison.getOperator() + " " + key(comparison.getLeft()) + " " + key(comparison.getRight()) + ")";
+        } else if (node instanceof LogicalExpressionNode logical) {
+            return "(" + logical.getOperator() + " " + key(logical.getLeft()) + " " + key(logical.getRight()) + ")";
+        }
+        final UnaryExpressionNode unary = (UnaryExpressionNode) node;
+        return "(" + unary.getOperator() + " " + key(unary.getOperand()) + ")";
+    }
+}
@@ -0,0 +1,72 @@
+package optimizer;
+
+import ir.PassManager;
+import parser.nodes.ASTNode;
+import parser.variables.SymbolTable;
+
+import java.util.function.Consumer;
+
+/**
+ * Runs the AST optimization passes enabled at an optimization level, in order. Level 0 leaves the tree alone.
+ */
+public class Optimizer {
+    public static final int DEFAULT_LEVEL = 1;
+    public static final int MAX_LEVEL = 1;
+    public static final int DEFAULT_INLINE_LIMIT = 40;
+
+    private final int level;
+    private final int inlineLimit;
+    private final Consumer<String> explanations;
+
+    public Optimizer(int level) {
+        this(level, DEFAULT_INLINE_LIMIT, explanation -> { });
+    }
+
+    // Inlines functions of up to inlineLimit nodes, 0 turns inlining off. Passes that make decisions per call or
+    // loop describe them to explanations, one line each
+    public Optimizer(int level, int inlineLimit, Consumer<String> explanations) {
+        if (level < 0 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Optimization level must be between 0 and " + MAX_LEVEL);
+        }
+        this.level = level;
+        this.inlineLimit = inlineLimit;
+        this.explanations = explanations;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    // Expects a resolved and type checked tree, and keeps the symbols and types on the nodes it produces. The
+    // symbol table is the one the tree was resolved with, passes declare their temporaries in it
+    public ASTNode optimize(ASTNode tree, SymbolTable symbolTable) {
+        return optimize(tree, symbolTable, true);
+    }
+
+    // Loop invariant code motion can be left out to measure what it gains
+    ASTNode optimize(ASTNode tree, SymbolTable symbolTable, boolean hoistLoopInvariants) {
+        if (level >= 1) {
+            tree = new ConstantFolder().fold(tree);
+            tree = new DeadCodeEliminator().eliminate(tree);
+            if (inlineLimit > 0) {
+                // Literal arguments become constant parameter temporaries, folding again propagates them
+                tree = new FunctionInliner(symbolTable, inlineLimit, explanations).inline(tree);
+                tree = new ConstantFolder().fold(tree);
+                tree = new DeadCodeEliminator().eliminate(tree);
+            }
+            if (hoistLoopInvariants) {
+                tree = new LoopInvariantCodeMotion(symbolTable).hoist(tree);
+            }
+        }
+        return tree;
+    }
+
+    // The IR passes of the level, in the order they run
+    public PassManager createPassManager() {
+        final PassManager passes = new PassManager();
+        if (level >= 1) {
+            passes.add(new DeadValueElimination());
+        }
+        return passes;
+    }
+}
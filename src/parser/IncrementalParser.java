@@ -0,0 +1,193 @@
+package parser;
+
+import lexer.TokenBuffer;
+import lexer.token.TokenType;
+import parser.nodes.ASTNode;
+import parser.nodes.ASTWalker;
+import parser.nodes.BlockNode;
+import parser.nodes.FunctionDeclarationNode;
+import parser.nodes.VariableDeclarationNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps a parsed source up to date across edits. An edit only re-lexes the tokens around it and re-parses the
+ * top-level statements those tokens belong to, every other statement (and its whole subtree) is reused.
+ */
+public class IncrementalParser {
+    private TokenBuffer tokens;
+    private final List<Statement> statements = new ArrayList<>();
+
+    public IncrementalParser(String source) throws RuntimeException {
+        tokens = TokenBuffer.of(source);
+
+        int position = 0;
+        while (tokens.type(position) != TokenType.EOF) {
+            final Statement statement = parseStatement(position);
+            statements.add(statement);
+            position = statement.endToken;
+        }
+    }
+
+    /**
+     * Replaces the characters in [start, end) with the replacement and brings the tree up to date, returning
+     * the top-level statements that were parsed again and the ones that went away.
+     */
+    public Result edit(int start, int end, String replacement) throws RuntimeException {
+        final TokenBuffer relexed = tokens.relex(start, end, replacement);
+        final int firstRelexed = relexed.getFirstRelexedToken();
+        final int firstReusedOld = relexed.getFirstReusedToken() - relexed.getTokenShift();
+        tokens = relexed;
+
+        // A statement may have peeked one token past its end (e.g. looking for `else`)
+        int first = 0;
+        while (first < statements.size() && statements.get(first).endToken < firstRelexed) {
+            first++;
+        }
+
+        int position = first < statements.size()
+            ? statements.get(first).firstToken
+            : statements.isEmpty() ? 0 : statements.get(statements.size() - 1).endToken;
+
+        final List<Statement> parsed = new ArrayList<>();
+        int next = first;
+        while (tokens.type(position) != TokenType.EOF) {
+            // Once parsing reaches the start of an old statement behind the edit, the rest is unchanged
+            while (next < statements.size() && shifted(statements.get(next).firstToken, firstReusedOld) < position) {
+                next++;
+            }
+            if (next < statements.size() && shifted(statements.get(next).firstToken, firstReusedOld) == position) {
+                break;
+            }
+
+            final Statement statement = parseStatement(position);
+            parsed.add(statement);
+            position = statement.endToken;
+        }
+        if (tokens.type(position) == TokenType.EOF) {
+            next = statements.size();
+        }
+
+        final List<ASTNode> removed = new ArrayList<>();
+        final List<Statement> replaced = statements.subList(first, next);
+        for (Statement statement : replaced) {
+            removed.add(statement.node);
+        }
+        replaced.clear();
+        statements.addAll(first, parsed);
+
+        // Move the reused statements behind the edit, their nodes and error messages carry line numbers
+        for (int i = first + parsed.size(); i < statements.size(); i++) {
+            final Statement statement = statements.get(i);
+            statement.firstToken += relexed.getTokenShift();
+            statement.endToken += relexed.getTokenShift();
+            if (relexed.getLineShift() != 0 && statement.errorHandler.hasErrors()) {
+                statements.set(i, parseStatement(statement.firstToken));
+            } else if (relexed.getLineShift() != 0) {
+                shiftLines(statement.node, relexed.getLineShift());
+            }
+        }
+
+        final List<ASTNode> changed = new ArrayList<>();
+        for (Statement statement : parsed) {
+            changed.add(statement.node);
+        }
+        return new Result(changed, removed);
+    }
+
+    public BlockNode getTree() {
+        final List<ASTNode> nodes = new ArrayList<>(statements.size());
+        for (Statement statement : statements) {
+            nodes.add(statement.node);
+        }
+        return new BlockNode(nodes);
+    }
+
+    public List<String> getErrors() {
+        final List<String> errors = new ArrayList<>();
+        for (Statement statement : statements) {
+            errors.addAll(statement.errorHandler.getErrors());
+        }
+        return errors;
+    }
+
+    public CharSequence getSource() {
+        return tokens.getSource();
+    }
+
+    private Statement parseStatement(int firstToken) {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final Parser parser = new Parser(tokens.stream(firstToken), errorHandler);
+        final ASTNode node = parser.parseTopLevelStatement();
+        return new Statement(node, firstToken, firstToken + parser.getPosition(), errorHandler);
+    }
+
+    private static void shiftLines(ASTNode node, int lineShift) {
+        new ASTWalker() {
+            @Override
+            public void walk(ASTNode child) {
+                if (child != null) {
+                    child.setPosition(child.getLineNumber() + lineShift, child.getColumnNumber());
+                    super.walk(child);
+                }
+            }
+        }.walk(node);
+    }
+
+    // Maps an old token index behind the edit to the new buffer, -1 for tokens that were not reused
+    private int shifted(int oldIndex, int firstReusedOld) {
+        return oldIndex >= firstReusedOld ? oldIndex + tokens.getTokenShift() : -1;
+    }
+
+    private static class Statement {
+        private final ASTNode node;
+        private int firstToken;
+        private int endToken;
+        private final ErrorHandler errorHandler;
+
+        private Statement(ASTNode node, int firstToken, int endToken, ErrorHandler errorHandler) {
+            this.node = node;
+            this.firstToken = firstToken;
+            this.endToken = endToken;
+            this.errorHandler = errorHandler;
+        }
+    }
+
+    public static class Result {
+        private final List<ASTNode> changed;
+        private final List<ASTNode> removed;
+
+        private Result(List<ASTNode> changed, List<ASTNode> removed) {
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        // Top-level statements that were parsed again, in source order
+        public List<ASTNode> getChanged() {
+            return changed;
+        }
+
+        // Top-level statements that the edit replaced
+        public List<ASTNode> getRemoved() {
+            return removed;
+        }
+
+        // Names of the functions and variables declared by the changed or removed statements
+        public Set<String> getChangedDeclarations() {
+            final Set<String> names = new LinkedHashSet<>();
+            for (List<ASTNode> nodes : List.of(removed, changed)) {
+                for (ASTNode node : nodes) {
+                    if (node instanceof FunctionDeclarationNode) {
+                        names.add(((FunctionDeclarationNode) node).getName());
+                    } else if (node instanceof VariableDeclarationNode) {
+                        names.add(((VariableDeclarationNode) node).getName());
+                    }
+                }
+            }
+            return names;
+        }
+    }
+}
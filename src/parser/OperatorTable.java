@@ -0,0 +1,71 @@
+package parser;
+
+import lexer.token.TokenType;
+import parser.nodes.ASTNode;
+import parser.nodes.BinaryExpressionNode;
+import parser.nodes.ComparisonExpressionNode;
+import parser.nodes.LogicalExpressionNode;
+
+/**
+ * Binding powers of the expression operators, an operator with a higher binding power binds tighter. All
+ * infix operators are left associative. New operators only need a line here and a token type in the lexer.
+ */
+final class OperatorTable {
+    // Prefix operators bind tighter than any infix operator, `-a * b` is `(-a) * b`
+    static final int PREFIX_BINDING_POWER = 70;
+
+    private static final InfixOperator[] INFIX = new InfixOperator[TokenType.values().length];
+    private static final boolean[] PREFIX = new boolean[TokenType.values().length];
+
+    static {
+        infix(TokenType.OR_KEYWORD, 10, LogicalExpressionNode::new);
+        infix(TokenType.AND_KEYWORD, 20, LogicalExpressionNode::new);
+        infix(TokenType.EQUALITY_OPERATOR, 30, ComparisonExpressionNode::new);
+        infix(TokenType.COMPARISON_OPERATOR, 40, ComparisonExpressionNode::new);
+        infix(TokenType.ADDITION_OPERATOR, 50, BinaryExpressionNode::new);
+        infix(TokenType.SUBTRACTION_OPERATOR, 50, BinaryExpressionNode::new);
+        infix(TokenType.MULTIPLICATION_OPERATOR, 60, BinaryExpressionNode::new);
+        infix(TokenType.DIVISION_OPERATOR, 60, BinaryExpressionNode::new);
+
+        PREFIX[TokenType.NOT_OPERATOR.ordinal()] = true;
+        PREFIX[TokenType.ADDITION_OPERATOR.ordinal()] = true;
+        PREFIX[TokenType.SUBTRACTION_OPERATOR.ordinal()] = true;
+    }
+
+    private OperatorTable() { }
+
+    // Returns the infix operator for the token type, or null if the token does not continue an expression
+    static InfixOperator infix(TokenType type) {
+        return INFIX[type.ordinal()];
+    }
+
+    static boolean isPrefix(TokenType type) {
+        return PREFIX[type.ordinal()];
+    }
+
+    private static void infix(TokenType type, int bindingPower, NodeFactory factory) {
+        INFIX[type.ordinal()] = new InfixOperator(bindingPower, factory);
+    }
+
+    interface NodeFactory {
+        ASTNode create(ASTNode left, ASTNode right, String operator);
+    }
+
+    static final class InfixOperator {
+        private final int bindingPower;
+        private final NodeFactory factory;
+
+        private InfixOperator(int bindingPower, NodeFactory factory) {
+            this.bindingPower = bindingPower;
+            this.factory = factory;
+        }
+
+        int getBindingPower() {
+            return bindingPower;
+        }
+
+        ASTNode create(ASTNode left, ASTNode right, String operator) {
+            return factory.create(left, right, operator);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package parser;
+
+import lexer.TokenBuffer;
+import lexer.token.TokenType;
+import parser.nodes.ASTNode;
+import parser.nodes.BlockNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses the top-level function declarations of a fully lexed source concurrently. Function boundaries are
+ * found by matching braces in the token buffer, every function is parsed on its own cursor with its own
+ * error handler, and the results are merged back in source order. The tree is the same as
+ * the one a single {@link Parser} produces, sources with errors are parsed again in one go for the messages.
+ */
+public class ParallelParser {
+    // Below this many functions the tasks cost more than they save
+    private static final int PARALLEL_THRESHOLD = 4;
+
+    private final TokenBuffer tokens;
+    private final ErrorHandler errorHandler;
+
+    public ParallelParser(TokenBuffer tokens, ErrorHandler errorHandler) {
+        this.tokens = tokens;
+        this.errorHandler = errorHandler;
+    }
+
+    public ASTNode parse() {
+        final List<int[]> functions = findFunctions();
+        if (functions.size() < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            return new Parser(tokens.stream(), errorHandler).parse();
+        }
+
+        final List<ForkJoinTask<Range>> tasks = new ArrayList<>(functions.size());
+        for (int[] function : functions) {
+            tasks.add(ForkJoinPool.commonPool().submit(ForkJoinTask.adapt(() -> parseRange(function[0], function[1]))));
+        }
+
+        // The statements between the functions are parsed here while the functions are parsed elsewhere
+        final List<Range> ranges = new ArrayList<>(functions.size() * 2 + 1);
+        int position = 0;
+        for (int i = 0; i < functions.size(); i++) {
+            ranges.add(parseRange(position, functions.get(i)[0]));
+            ranges.add(tasks.get(i).join());
+            position = functions.get(i)[1];
+        }
+        ranges.add(parseRange(position, tokens.size() - 1));
+
+        for (Range range : ranges) {
+            // A range that does not end where it should was cut in the wrong place, only happens for broken code
+            if (!range.complete || range.errorHandler.hasErrors()) {
+                return new Parser(tokens.stream(), errorHandler).parse();
+            }
+        }
+
+        final List<ASTNode> statements = new ArrayList<>();
+        for (Range range : ranges) {
+            statements.addAll(range.statements);
+        }
+        return new BlockNode(statements);
+    }
+
+    // Token ranges [first, end) of the top-level `func` declarations, in source order
+    private List<int[]> findFunctions() {
+        final List<int[]> functions = new ArrayList<>();
+        final int eof = tokens.size() - 1;
+        int depth = 0;
+        for (int i = 0; i < eof; i++) {
+            final TokenType type = tokens.type(i);
+            if (type == TokenType.LEFT_BRACE) {
+                depth++;
+            } else if (type == TokenType.RIGHT_BRACE) {
+                depth--;
+            } else if (depth == 0 && type == TokenType.KEYWORD && tokens.textEquals(i, "func") && startsStatement(i)) {
+                final int end = findBodyEnd(i);
+                if (end < 0) {
+                    break;
+                }
+                functions.add(new int[]{i, end});
+                i = end - 1;
+            }
+        }
+        return functions;
+    }
+
+    // Only a `func` following a finished statement starts one, `if (x) func ...` belongs to the if
+    private boolean startsStatement(int index) {
+        if (index == 0) {
+            return true;
+        }
+        final TokenType previous = tokens.type(index - 1);
+        return previous == TokenType.SEMICOLON || previous == TokenType.RIGHT_BRACE;
+    }
+
+    // The index after the brace that closes the function body, or -1 if it is never closed
+    private int findBodyEnd(int first) {
+        final int eof = tokens.size() - 1;
+        int depth = 0;
+        for (int i = first; i < eof; i++) {
+            final TokenType type = tokens.type(i);
+            if (type == TokenType.LEFT_BRACE) {
+                depth++;
+            } else if (type == TokenType.RIGHT_BRACE && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private Range parseRange(int first, int end) {
+        final ErrorHandler rangeErrors = new ErrorHandler();
+        final Parser parser = new Parser(tokens.stream(first), rangeErrors);
+        final List<ASTNode> statements = new ArrayList<>();
+        while (first + parser.getPosition() < end) {
+            statements.add(parser.parseTopLevelStatement());
+        }
+        return new Range(statements, first + parser.getPosition() == end, rangeErrors);
+    }
+
+    private static class Range {
+        private final List<ASTNode> statements;
+        private final boolean complete;
+        private final ErrorHandler errorHandler;
+
+        private Range(List<ASTNode> statements, boolean complete, ErrorHandler errorHandler) {
+            this.statements = statements;
+            this.complete = complete;
+            this.errorHandler = errorHandler;
+        }
+    }
+}
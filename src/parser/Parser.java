@@ -1,27 +1,33 @@
 package parser;
 
-import lexer.token.Token;
+import lexer.TokenStream;
 import lexer.token.TokenType;
+import parser.flat.FlatAst;
+import parser.flat.NodeKind;
 import parser.nodes.*;
-import parser.variables.SymbolTable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Parser {
-    private final List<Token> tokens;
+    private final TokenStream tokens;
     private int currentPosition;
     private final ErrorHandler errorHandler;
-    private final SymbolTable symbolTable;
 
-    public Parser(
-        List<Token> tokens,
-        ErrorHandler errorHandler,
-        SymbolTable symbolTable
-    ) {
+    // Operators and open parentheses still waiting for their right side, one entry across the arrays each. Open
+    // parentheses have neither an infix operator nor an operator. Nested expressions, like call arguments, stack
+    // their entries on top of those of the expression around them
+    private OperatorTable.InfixOperator[] pendingInfixes = new OperatorTable.InfixOperator[16];
+    private String[] pendingOperators = new String[16];
+    private ASTNode[] pendingLefts = new ASTNode[16];
+    private int[] pendingMinBindingPowers = new int[16];
+    private int[] pendingLines = new int[16];
+    private int pendingCount;
+
+    public Parser(TokenStream tokens, ErrorHandler errorHandler) {
         this.tokens = tokens;
         this.errorHandler = errorHandler;
-        this.symbolTable = symbolTable;
         currentPosition = 0;
     }
 
@@ -33,13 +39,39 @@ public class Parser {
         return new BlockNode(statements);
     }
 
-    private ASTNode parseStatement() {
-        Token current = peek();
+    // Parses straight into a flat tree, the nodes of a statement only live until it has been appended
+    public FlatAst parseFlat() {
+        final FlatAst ast = new FlatAst();
+        final int root = ast.add(NodeKind.BLOCK, 0, 0, FlatAst.NONE);
+        int previous = FlatAst.NONE;
+        while (isNotEOF()) {
+            final int statement = ast.append(parseStatement());
+            if (previous == FlatAst.NONE) {
+                ast.setChildren(root, statement);
+            } else {
+                ast.setNextSibling(previous, statement);
+            }
+            previous = statement;
+        }
+        ast.setRoot(root);
+        return ast;
+    }
 
+    // Parses a single top-level statement, so callers can track where each one starts and ends
+    public ASTNode parseTopLevelStatement() {
+        return parseStatement();
+    }
+
+    // Number of tokens consumed so far
+    public int getPosition() {
+        return currentPosition;
+    }
+
+    private ASTNode parseStatement() {
         // Handle different types of keywords like variable declarations and control structures
-        if (current.getType() == TokenType.KEYWORD) {
-            switch (current.getValue()) {
-                case "Int", "String", "Bool", "Double" -> {
+        if (check(TokenType.KEYWORD)) {
+            switch (peekText()) {
+                case "Int", "Long", "String", "Bool", "Double" -> {
                     return parseVariableDeclaration();
                 }
                 case "if" -> {
@@ -54,13 +86,16 @@ public class Parser {
                 case "func" -> {
                     return parseFunctionDeclaration();
                 }
-                default -> errorHandler.logError("Unexpected keyword: " + current.getValue(), current.getLine());
+                case "break", "continue", "return" -> {
+                    return parseJumpStatement();
+                }
+                default -> errorHandler.logError("Unexpected keyword: " + peekText(), peekLine());
             }
         }
 
         // Handle statements that start with an identifier (could be function call or variable assignment)
-        if (current.getType() == TokenType.IDENTIFIER) {
-            return parseIdentifierStatement();
+        if (check(TokenType.IDENTIFIER)) {
+            return parseIdentifierStatement(true);
         }
 
         // Handle generic expressions
@@ -69,36 +104,85 @@ public class Parser {
         return expression;
     }
 
-    private ASTNode parseIdentifierStatement() {
-        Token identifierToken = consume(TokenType.IDENTIFIER, "Expected variable name or function call.");
-        String identifierName = identifierToken.getValue();
+    // The update clause of a for loop is the same statement without its semicolon
+    private ASTNode parseIdentifierStatement(boolean terminated) {
+        final int identifierLine = peekLine();
+        String identifierName = consumeText(TokenType.IDENTIFIER, "Expected variable name or function call.");
 
         // Check for function call
         if (check(TokenType.LEFT_PARENTHESES)) {
             List<ASTNode> arguments = parseArguments();
-            consume(TokenType.SEMICOLON, "Expected ';' after function call.");
-            return new FunctionCallNode(identifierName, arguments);
+            endStatement(terminated, "Expected ';' after function call.");
+            return at(identifierLine, new FunctionCallNode(identifierName, arguments));
+        }
+
+        if (check(TokenType.LEFT_BRACKET)) {
+            return parseArrayAssignment(at(identifierLine, new VariableReferenceNode(identifierName)), terminated);
         }
 
         // Handle reassignment or compound assignment
         if (match(TokenType.ASSIGNMENT_OPERATOR)) {
             ASTNode newValue = parseExpression();
-            consume(TokenType.SEMICOLON, "Expected ';' after reassignment.");
-            return new VariableAssignmentNode(identifierName, newValue);
+            endStatement(terminated, "Expected ';' after reassignment.");
+            return at(identifierLine, new VariableAssignmentNode(identifierName, newValue));
         } else if (matchCompoundAssignment()) {
-            String compoundOp = advance().getValue();
+            String compoundOp = advanceText();
             ASTNode right = parseExpression();
-            consume(TokenType.SEMICOLON, "Expected ';' after compound assignment.");
-            return new CompoundAssignmentNode(identifierName, compoundOp, right);
+            endStatement(terminated, "Expected ';' after compound assignment.");
+            return at(identifierLine, new CompoundAssignmentNode(identifierName, compoundOp, right));
         } else if (matchIncrementDecrement()) {
-            String op = advance().getValue();
-            consume(TokenType.SEMICOLON, "Expected ';' after increment/decrement.");
-            return new IncrementDecrementNode(identifierName, op);
+            String op = advanceText();
+            endStatement(terminated, "Expected ';' after increment/decrement.");
+            return at(identifierLine, new IncrementDecrementNode(identifierName, op));
         }
 
         // If none of the cases matched, log an error
-        errorHandler.logError("Expected function call, assignment, or compound assignment after identifier: " + identifierName, identifierToken.getLine());
-        return new ErrorNode("Invalid statement after identifier: " + identifierName);
+        errorHandler.logError("Expected function call, assignment, or compound assignment after identifier: " + identifierName, identifierLine);
+        return at(identifierLine, new ErrorNode("Invalid statement after identifier: " + identifierName));
+    }
+
+    // `a[i] = v`, `a[i] += v` or `a[i]++`, the array is already parsed
+    private ASTNode parseArrayAssignment(ASTNode array, boolean terminated) {
+        final int line = peekLine();
+        final ASTNode index = parseIndex();
+        if (check(TokenType.ASSIGNMENT_OPERATOR) || matchCompoundAssignment()) {
+            final String operator = advanceText();
+            final ASTNode value = parseExpression();
+            endStatement(terminated, "Expected ';' after element assignment.");
+            return at(line, new ArrayAssignmentNode(array, index, operator, value));
+        } else if (matchIncrementDecrement()) {
+            final String operator = advanceText();
+            endStatement(terminated, "Expected ';' after increment/decrement.");
+            return at(line, new ArrayAssignmentNode(array, index, operator, null));
+        }
+
+        errorHandler.logError("Expected assignment to array element", line);
+        return at(line, new ErrorNode("Invalid statement after array element"));
+    }
+
+    // `[i]` after an array
+    private ASTNode parseIndex() {
+        consume(TokenType.LEFT_BRACKET, "Expected '['.");
+        final ASTNode index = parseExpression();
+        consume(TokenType.RIGHT_BRACKET, "Expected ']' after index.");
+        return index;
+    }
+
+    // A type is a keyword, `[]` right after it makes it the type of arrays of it
+    private String parseTypeName(String error) {
+        final String name = consumeText(TokenType.KEYWORD, error);
+        if (check(TokenType.LEFT_BRACKET) && tokens.type(1) == TokenType.RIGHT_BRACKET) {
+            advance(); // consume the '['
+            advance(); // consume the ']'
+            return name + "[]";
+        }
+        return name;
+    }
+
+    private void endStatement(boolean terminated, String message) {
+        if (terminated) {
+            consume(TokenType.SEMICOLON, message);
+        }
     }
 
     private List<ASTNode> parseArguments() {
@@ -107,7 +191,7 @@ public class Parser {
         if (!check(TokenType.RIGHT_PARENTHESES)) { // Handle non-empty argument lists
             do {
                 arguments.add(parseExpression());
-            } while (match(TokenType.PUNCTUATION) && peek().getValue().equals(",")); // Handle comma-separated arguments
+            } while (checkText(",") && match(TokenType.PUNCTUATION)); // Handle comma-separated arguments
         }
         consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after arguments.");
         return arguments;
@@ -122,15 +206,12 @@ public class Parser {
     }
 
     private ASTNode parseVariableDeclaration() {
+        final int line = peekLine();
         // Expect and consume the variable type (e.g., Int, String, etc.)
-        Token typeToken = consume(TokenType.KEYWORD, "Expected type for variable declaration.");
-        String type = typeToken.getValue();
+        String type = parseTypeName("Expected type for variable declaration.");
 
         // Expect and consume the variable name
-        Token nameToken = consume(TokenType.IDENTIFIER, "Expected variable name.");
-        String name = nameToken.getValue();
-
-        symbolTable.addVariable(name, type, currentPosition);
+        String name = consumeText(TokenType.IDENTIFIER, "Expected variable name.");
 
         ASTNode initializer = null;
 
@@ -142,10 +223,11 @@ public class Parser {
         consume(TokenType.SEMICOLON, "Expected ';'");
 
         // Return a VariableDeclarationNode with the type, name, and initializer
-        return new VariableDeclarationNode(type, name, initializer);
+        return at(line, new VariableDeclarationNode(type, name, initializer));
     }
 
     private ASTNode parseIfStatement() {
+        final int line = peekLine();
         consume(TokenType.KEYWORD, "Expected 'if' keyword.");
         consume(TokenType.LEFT_PARENTHESES, "Expected '(' after 'if'.");
         ASTNode condition = parseExpression(); // Parse the if condition
@@ -159,7 +241,7 @@ public class Parser {
         }
 
         ASTNode falseBranch = null;
-        if (match(TokenType.KEYWORD) && peek().getValue().equals("else")) {
+        if (check(TokenType.KEYWORD) && checkText("else")) {
             advance(); // Consume 'else'
             if (check(TokenType.LEFT_BRACE)) {
                 falseBranch = parseBlock(); // Parse block for else if `{` is found
@@ -168,28 +250,29 @@ public class Parser {
             }
         }
 
-        return new IfStatementNode(condition, trueBranch, falseBranch);
+        return at(line, new IfStatementNode(condition, trueBranch, falseBranch));
     }
 
     private ASTNode parseWhileStatement() {
+        final int line = peekLine();
         consume(TokenType.KEYWORD, "Expected 'while' keyword.");
         consume(TokenType.LEFT_PARENTHESES, "Expected '(' after 'while'.");
         ASTNode condition = parseExpression(); // Parse the while condition
         consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after condition.");
         ASTNode body = parseBlock(); // Parse the body of the loop
 
-        return new WhileStatementNode(condition, body);
+        return at(line, new WhileStatementNode(condition, body));
     }
 
     private ASTNode parseForStatement() {
+        final int line = peekLine();
         consume(TokenType.KEYWORD, "Expected 'for' keyword.");
         consume(TokenType.LEFT_PARENTHESES, "Expected '(' after 'for'.");
 
         ASTNode initialization = null;
-        if (!check(TokenType.SEMICOLON)) { // Check if there's an initialization part
+        if (!match(TokenType.SEMICOLON)) { // The initialization is a whole statement, its ';' included
             initialization = parseStatement();
         }
-        consume(TokenType.SEMICOLON, "Expected ';' after initialization.");
 
         ASTNode condition = null;
         if (!check(TokenType.SEMICOLON)) { // Check if there's a condition part
@@ -199,41 +282,57 @@ public class Parser {
 
         ASTNode update = null;
         if (!check(TokenType.RIGHT_PARENTHESES)) { // Check if there's an update part
-            update = parseExpression();
+            update = parseIdentifierStatement(false);
         }
         consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after update.");
 
         ASTNode body = parseBlock(); // Parse the body of the loop
 
-        return new ForStatementNode(initialization, condition, update, body);
+        return at(line, new ForStatementNode(initialization, condition, update, body));
+    }
+
+    private ASTNode parseJumpStatement() {
+        final int line = peekLine();
+        final String keyword = consumeText(TokenType.KEYWORD, "Expected 'break', 'continue' or 'return'.");
+
+        final ASTNode statement = switch (keyword) {
+            case "break" -> new BreakNode();
+            case "continue" -> new ContinueNode();
+            default -> new ReturnNode(check(TokenType.SEMICOLON) ? null : parseExpression());
+        };
+        consume(TokenType.SEMICOLON, "Expected ';' after '" + keyword + "'.");
+        return at(line, statement);
     }
 
     private ASTNode parseFunctionDeclaration() {
+        final int line = peekLine();
         consume(TokenType.KEYWORD, "Expected 'func' keyword.");
-        Token functionName = consume(TokenType.IDENTIFIER, "Expected function name.");
+        String functionName = consumeText(TokenType.IDENTIFIER, "Expected function name.");
         consume(TokenType.LEFT_PARENTHESES, "Expected '(' after function name.");
 
         List<ParameterNode> parameters = new ArrayList<>();
         if (!check(TokenType.RIGHT_PARENTHESES)) { // Check if there are parameters
             do {
-                String type = consume(TokenType.KEYWORD, "Expected parameter type.").getValue();
-                String name = consume(TokenType.IDENTIFIER, "Expected parameter name.").getValue();
-                parameters.add(new ParameterNode(type, name));
-            } while (match(TokenType.PUNCTUATION) && peek().getValue().equals(",")); // Handle comma-separated parameters
+                final int parameterLine = peekLine();
+                String type = parseTypeName("Expected parameter type.");
+                String name = consumeText(TokenType.IDENTIFIER, "Expected parameter name.");
+                parameters.add(at(parameterLine, new ParameterNode(type, name)));
+            } while (checkText(",") && match(TokenType.PUNCTUATION)); // Handle comma-separated parameters
         }
         consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after parameters.");
 
         String returnType = "Void"; // Default return type
         if (check(TokenType.KEYWORD)) { // Optional return type
-            returnType = advance().getValue();
+            returnType = parseTypeName("Expected return type.");
         }
 
         ASTNode body = parseBlock(); // Parse the function body
 
-        return new FunctionDeclarationNode(functionName.getValue(), parameters, returnType, body);
+        return at(line, new FunctionDeclarationNode(functionName, parameters, returnType, body));
     }
 
     private BlockNode parseBlock() {
+        final int line = peekLine();
         List<ASTNode> statements = new ArrayList<>();
         consume(TokenType.LEFT_BRACE, "Expected '{' to start a block.");
 
@@ -242,100 +341,89 @@ public class Parser {
         }
 
         consume(TokenType.RIGHT_BRACE, "Expected '}' to close the block.");
-        return new BlockNode(statements);
+        return at(line, new BlockNode(statements));
     }
 
+    /**
+     * Parses an expression with precedence climbing driven by the {@link OperatorTable}. Instead of recursing
+     * for every operand, operators and open parentheses that still wait for their right side are kept on an
+     * explicit stack, so nesting depth is limited by the heap and not the call stack.
+     */
     private ASTNode parseExpression() {
-        return parseLogicalOr();
-    }
-
-    private ASTNode parseLogicalOr() {
-        ASTNode left = parseLogicalAnd();
-
-        while (check(TokenType.OR_KEYWORD)) {
-            final String operator = advance().getValue(); // advance past the operator
-            ASTNode right = parseLogicalAnd(); // Parse the right operand
-            left = new LogicalExpressionNode(left, right, operator);
-        }
-
-        return left;
-    }
-
-    private ASTNode parseLogicalAnd() {
-        ASTNode left = parseEquality();
-
-        while (check(TokenType.AND_KEYWORD)) {
-            final String operator = advance().getValue(); // advance past the operator
-            ASTNode right = parseEquality(); // Parse the right operand
-            left = new LogicalExpressionNode(left, right, operator);
-        }
-
-        return left;
-    }
-
-    private ASTNode parseEquality() {
-        ASTNode left = parseComparison();
+        final int bottom = pendingCount;
+        int minBindingPower = 0;
 
-        if (check(TokenType.EQUALITY_OPERATOR)) {
-            final String operator = advance().getValue(); // advance past the operator
-            ASTNode right = parseComparison(); // Parse the right operand
-            left = new ComparisonExpressionNode(left, right, operator);
-        }
-
-        return left;
-    }
-
-    private ASTNode parseComparison() {
-        ASTNode left = parseTerm();
-
-        while (check(TokenType.COMPARISON_OPERATOR)) {
-            final String operator = advance().getValue(); // advance past the operator
-            ASTNode right = parseTerm(); // Parse the right operand
-            left = new ComparisonExpressionNode(left, right, operator);
-        }
-
-        return left;
-    }
+        while (true) {
+            // Prefix operators and parentheses open a new operand
+            while (OperatorTable.isPrefix(peekType()) || check(TokenType.LEFT_PARENTHESES)) {
+                if (check(TokenType.LEFT_PARENTHESES)) {
+                    advance();
+                    pushPending(null, null, null, minBindingPower, 0);
+                    minBindingPower = 0;
+                } else {
+                    final int line = peekLine();
+                    pushPending(null, advanceText(), null, minBindingPower, line);
+                    minBindingPower = OperatorTable.PREFIX_BINDING_POWER;
+                }
+            }
 
-    private ASTNode parseTerm() {
-        ASTNode left = parseFactor();
+            ASTNode left = parsePrimary();
 
-        while (check(TokenType.ADDITION_OPERATOR) || check(TokenType.SUBTRACTION_OPERATOR)) {
-            final String operator = advance().getValue(); // advance past the operator
-            ASTNode right = parseFactor(); // Parse the right operand
-            left = new BinaryExpressionNode(left, right, operator);
-        }
-
-        return left;
-    }
+            while (true) {
+                final OperatorTable.InfixOperator infix = OperatorTable.infix(peekType());
+                if (infix != null && infix.getBindingPower() > minBindingPower) {
+                    // Parse the right operand first, everything binding tighter than this operator belongs to it
+                    final int line = peekLine();
+                    pushPending(infix, advanceText(), left, minBindingPower, line);
+                    minBindingPower = infix.getBindingPower();
+                    break;
+                }
 
-    private ASTNode parseFactor() {
-        ASTNode left = parseUnary();
+                if (pendingCount == bottom) {
+                    return left;
+                }
 
-        while (check(TokenType.MULTIPLICATION_OPERATOR) || check(TokenType.DIVISION_OPERATOR)) {
-            final String operator = advance().getValue(); // advance past the operator
-            ASTNode right = parseUnary(); // Parse the right operand
-            left = new BinaryExpressionNode(left, right, operator);
+                final int top = --pendingCount;
+                final OperatorTable.InfixOperator pendingInfix = pendingInfixes[top];
+                final String operator = pendingOperators[top];
+                final ASTNode pendingLeft = pendingLefts[top];
+                minBindingPower = pendingMinBindingPowers[top];
+                // The popped entry must not keep its nodes alive
+                pendingLefts[top] = null;
+                if (pendingInfix != null) {
+                    left = at(pendingLines[top], pendingInfix.create(pendingLeft, left, operator));
+                } else if (operator != null) {
+                    left = at(pendingLines[top], new UnaryExpressionNode(left, operator));
+                } else {
+                    consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after expression.");
+                }
+            }
         }
-
-        return left;
     }
 
-    private ASTNode parseUnary() {
-        if (check(TokenType.NOT_OPERATOR) || check(TokenType.ADDITION_OPERATOR) || check(TokenType.SUBTRACTION_OPERATOR)
-        ) {
-            final String operator = advance().getValue(); // advance past the current unary
-            final ASTNode operand = parseUnary();
-            return new UnaryExpressionNode(operand, operator);
+    private void pushPending(OperatorTable.InfixOperator infix, String operator, ASTNode left, int minBindingPower, int line) {
+        if (pendingCount == pendingLines.length) {
+            final int capacity = pendingCount * 2;
+            pendingInfixes = Arrays.copyOf(pendingInfixes, capacity);
+            pendingOperators = Arrays.copyOf(pendingOperators, capacity);
+            pendingLefts = Arrays.copyOf(pendingLefts, capacity);
+            pendingMinBindingPowers = Arrays.copyOf(pendingMinBindingPowers, capacity);
+            pendingLines = Arrays.copyOf(pendingLines, capacity);
         }
-
-        return parsePrimary();
+        pendingInfixes[pendingCount] = infix;
+        pendingOperators[pendingCount] = operator;
+        pendingLefts[pendingCount] = left;
+        pendingMinBindingPowers[pendingCount] = minBindingPower;
+        pendingLines[pendingCount] = line;
+        pendingCount++;
     }
 
     private ASTNode parsePrimary() {
-        final Token token = advance();
+        final int line = peekLine();
+        final TokenType type = peekType();
+        final String text = advanceText();
 
-        return switch (token.getType()) {
+        ASTNode primary = at(line, switch (type) {
             case IDENTIFIER -> {
                 if (check(TokenType.LEFT_PARENTHESES)) {
                     advance(); // consume the '('
@@ -346,61 +434,127 @@ public class Parser {
                         do {
                             arguments.add(parseExpression()); // Parse each argument
                         } while (
-                            peek().getValue().equals(",")
+                            checkText(",")
                             && match(TokenType.PUNCTUATION)
                         ); // Check for commas between arguments
                     }
 
                     consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after function arguments."); // Consume the ')'
-                    yield new FunctionCallNode(token.getValue(), arguments); // Create a FunctionCallNode
+                    yield new FunctionCallNode(text, arguments); // Create a FunctionCallNode
                 }
 
                 // Otherwise, treat it as a variable reference
-                yield new VariableReferenceNode(token.getValue());
-            }
-            case LEFT_PARENTHESES -> {
-                ASTNode expression = parseExpression(); // Parse the expression inside the parentheses
-                consume(TokenType.RIGHT_PARENTHESES, "Expected ')' after expression.");
-                yield expression;
+                yield new VariableReferenceNode(text);
             }
-            case NUMBER_LITERAL -> new NumberLiteral(Integer.parseInt(token.getValue()));
-            case STRING_LITERAL -> new StringLiteral(token.getValue());
+            case NUMBER_LITERAL -> parseNumber(text, line);
+            case STRING_LITERAL -> new StringLiteral(text);
             case BOOLEAN_LITERAL -> {
-                final boolean value = token.getValue().equals("true");
+                final boolean value = text.equals("true");
                 yield new BooleanLiteral(value);
             }
-            default -> new ErrorNode("Unexpected token: " + token.getValue());
-        };
+            // `Int[n]` creates an array, the type name is a keyword
+            case KEYWORD -> {
+                if (check(TokenType.LEFT_BRACKET)) {
+                    yield new ArrayCreationNode(text, parseIndex());
+                }
+                yield unexpected(type, text, line);
+            }
+            default -> unexpected(type, text, line);
+        });
+
+        // Indexing binds tighter than any operator
+        while (check(TokenType.LEFT_BRACKET)) {
+            primary = at(line, new ArrayAccessNode(primary, parseIndex()));
+        }
+        return primary;
+    }
+
+    // A token no expression starts with, reported here since no pass after the parser reports an ErrorNode
+    private ASTNode unexpected(TokenType type, String text, int line) {
+        final String error = type == TokenType.EOF ? "Unexpected end of input" : "Unexpected token: " + text;
+        errorHandler.logError(error, line);
+        return new ErrorNode(error);
+    }
+
+    // `123` is an Int, `123L` a Long and `1.5` a Double, a literal too large for its type is an error, not a wrap
+    private ASTNode parseNumber(String text, int line) {
+        try {
+            if (text.endsWith("L")) {
+                return new LongLiteral(Long.parseLong(text.substring(0, text.length() - 1)));
+            }
+            if (text.indexOf('.') >= 0) {
+                return new DoubleLiteral(Double.parseDouble(text));
+            }
+            return new NumberLiteral(Integer.parseInt(text));
+        } catch (NumberFormatException e) {
+            errorHandler.logError("Number literal out of range: " + text, line);
+            return new ErrorNode("Number literal out of range: " + text);
+        }
+    }
+
+    // Records the line a node starts on, later passes report their errors with it
+    private <T extends ASTNode> T at(int line, T node) {
+        node.setPosition(line, 0);
+        return node;
     }
 
-    private Token consume(TokenType type, String error) throws RuntimeException {
+    private void consume(TokenType type, String error) throws RuntimeException {
         if (!check(type)) {
-            errorHandler.logError(error, peek().getLine());
+            errorHandler.logError(error, peekLine());
         }
-        return advance();
+        advance();
+    }
+
+    // consume a token of the given type while returning its text
+    private String consumeText(TokenType type, String error) throws RuntimeException {
+        final String text = peekText();
+        consume(type, error);
+        return text;
     }
 
-    // check for EOF, the end of the tokens list
+    // check for EOF, the end of the token stream
     private boolean isNotEOF() {
-        return currentPosition != tokens.size() - 1;
+        return !check(TokenType.EOF);
     }
 
-    // advance to the next token while returning the current token
-    private Token advance() {
+    // advance to the next token
+    private void advance() {
         if (isNotEOF()) {
-            return tokens.get(currentPosition++);
+            currentPosition++;
+            tokens.advance();
         }
-        return tokens.get(currentPosition);
     }
 
-    // peek the current token
-    private Token peek() {
-        return tokens.get(currentPosition);
+    // advance to the next token while returning the text of the current token
+    private String advanceText() {
+        final String text = peekText();
+        advance();
+        return text;
+    }
+
+    // peek the type of the current token
+    private TokenType peekType() {
+        return tokens.type(0);
+    }
+
+    // peek the text of the current token
+    private String peekText() {
+        return tokens.text(0);
+    }
+
+    // peek the line of the current token
+    private int peekLine() {
+        return tokens.line(0);
     }
 
     // check if the current token is a certain type
     private boolean check(TokenType type) {
-        return peek().getType() == type;
+        return peekType() == type;
+    }
+
+    // check if the current token is spelled a certain way
+    private boolean checkText(String text) {
+        return tokens.textEquals(0, text);
     }
 
     private boolean match(TokenType type) {
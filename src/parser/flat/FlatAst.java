@@ -0,0 +1,221 @@
+package parser.flat;
+
+import parser.nodes.ASTNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An AST stored as parallel primitive arrays indexed by node id instead of one object per node. Children are
+ * linked as first child / next sibling, so no node needs a list of its own. Names, types and string literals
+ * live once in a shared string pool, and operators are stored as small integer codes.
+ *
+ * <p>Per node kind, {@code value} holds the int literal, the boolean literal (0 / 1), the operator code, or the
+ * pool index of the declared type / return type. {@code name} holds the pool index of the variable, function
+ * or parameter name, the string literal, or the error message.
+ */
+public class FlatAst {
+    public static final int NONE = -1;
+
+    private static final NodeKind[] KINDS = NodeKind.values();
+    private static final String[] OPERATORS = {
+        "+", "-", "*", "/", "<", "<=", ">", ">=", "==", "!=", "and", "or", "!", "+=", "-=", "*=", "/=", "++", "--", "=",
+    };
+
+    private byte[] kinds = new byte[64];
+    private int[] lines = new int[64];
+    private int[] values = new int[64];
+    private int[] names = new int[64];
+    private int[] firstChildren = new int[64];
+    private int[] nextSiblings = new int[64];
+    private int size;
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+    private int root = NONE;
+
+    public static FlatAst of(ASTNode tree) {
+        final FlatAst ast = new FlatAst();
+        ast.setRoot(ast.append(tree));
+        return ast;
+    }
+
+    // Appends a copy of the subtree and returns the id of its root node
+    public int append(ASTNode node) {
+        return new FlatAstWriter(this).write(node);
+    }
+
+    // Builds the object form of the subtree rooted at the node
+    public ASTNode toNode(int node) {
+        return new FlatAstReader(this).read(node);
+    }
+
+    public ASTNode toTree() {
+        return toNode(root);
+    }
+
+    public int add(NodeKind kind, int line, int value, int name) {
+        if (size == kinds.length) {
+            final int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            values = Arrays.copyOf(values, capacity);
+            names = Arrays.copyOf(names, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        }
+
+        kinds[size] = (byte) kind.ordinal();
+        lines[size] = line;
+        values[size] = value;
+        names[size] = name;
+        firstChildren[size] = NONE;
+        nextSiblings[size] = NONE;
+        return size++;
+    }
+
+    // Links the children of a node in order
+    public void setChildren(int node, int... children) {
+        setChildren(node, children, children.length);
+    }
+
+    public void setChildren(int node, int[] children, int count) {
+        firstChildren[node] = count > 0 ? children[0] : NONE;
+        for (int i = 0; i + 1 < count; i++) {
+            nextSiblings[children[i]] = children[i + 1];
+        }
+    }
+
+    public void setNextSibling(int node, int sibling) {
+        nextSiblings[node] = sibling;
+    }
+
+    public void setRoot(int root) {
+        this.root = root;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public NodeKind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int line(int node) {
+        return lines[node];
+    }
+
+    public int value(int node) {
+        return values[node];
+    }
+
+    public String name(int node) {
+        return string(names[node]);
+    }
+
+    public String string(int index) {
+        return index == NONE ? null : strings.get(index);
+    }
+
+    public int firstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    // Returns the index-th child of the node, or NONE if it has fewer children
+    public int child(int node, int index) {
+        int child = firstChildren[node];
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    public int childCount(int node) {
+        int count = 0;
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    public int intern(String string) {
+        if (string == null) {
+            return NONE;
+        }
+        return stringIndexes.computeIfAbsent(string, s -> {
+            strings.add(s);
+            return strings.size() - 1;
+        });
+    }
+
+    public static int operatorCode(String operator) {
+        for (int i = 0; i < OPERATORS.length; i++) {
+            if (OPERATORS[i].equals(operator)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operator: " + operator);
+    }
+
+    public static String operator(int code) {
+        return OPERATORS[code];
+    }
+
+    /**
+     * Walks the subtree in source order without recursion, calling enter before a node's children and exit
+     * after them. The stack of open ancestors is the only state, so very deep trees are fine.
+     */
+    public void walk(int from, Visitor visitor) {
+        int[] ancestors = new int[16];
+        int depth = 0;
+        int node = from;
+
+        while (true) {
+            visitor.enter(this, node);
+            if (firstChildren[node] != NONE) {
+                if (depth == ancestors.length) {
+                    ancestors = Arrays.copyOf(ancestors, depth * 2);
+                }
+                ancestors[depth++] = node;
+                node = firstChildren[node];
+                continue;
+            }
+
+            // Close finished nodes until one of them has a next sibling
+            while (true) {
+                visitor.exit(this, node);
+                if (node == from) {
+                    return;
+                }
+                if (nextSiblings[node] != NONE) {
+                    node = nextSiblings[node];
+                    break;
+                }
+                node = ancestors[--depth];
+            }
+        }
+    }
+
+    public void walk(Visitor visitor) {
+        walk(root, visitor);
+    }
+
+    public interface Visitor {
+        void enter(FlatAst ast, int node);
+
+        default void exit(FlatAst ast, int node) { }
+    }
+}
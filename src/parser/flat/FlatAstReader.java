@@ -0,0 +1,89 @@
+package parser.flat;
+
+import parser.nodes.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Rebuilds object nodes from a FlatAst
+class FlatAstReader {
+    private final FlatAst ast;
+
+    FlatAstReader(FlatAst ast) {
+        this.ast = ast;
+    }
+
+    ASTNode read(int id) {
+        final ASTNode node = switch (ast.kind(id)) {
+            case EMPTY -> null;
+            case BLOCK -> new BlockNode(readChildren(id));
+            case VARIABLE_DECLARATION -> new VariableDeclarationNode(
+                ast.string(ast.value(id)), ast.name(id), read(ast.child(id, 0))
+            );
+            case VARIABLE_ASSIGNMENT -> new VariableAssignmentNode(ast.name(id), read(ast.child(id, 0)));
+            case COMPOUND_ASSIGNMENT -> new CompoundAssignmentNode(
+                ast.name(id), FlatAst.operator(ast.value(id)), read(ast.child(id, 0))
+            );
+            case INCREMENT_DECREMENT -> new IncrementDecrementNode(ast.name(id), FlatAst.operator(ast.value(id)));
+            case VARIABLE_REFERENCE -> new VariableReferenceNode(ast.name(id));
+            case NUMBER_LITERAL -> new NumberLiteral(ast.value(id));
+            case LONG_LITERAL -> new LongLiteral(Long.parseLong(ast.name(id)));
+            case DOUBLE_LITERAL -> new DoubleLiteral(Double.parseDouble(ast.name(id)));
+            case STRING_LITERAL -> new StringLiteral(ast.name(id));
+            case BOOLEAN_LITERAL -> new BooleanLiteral(ast.value(id) != 0);
+            case BINARY_EXPRESSION -> new BinaryExpressionNode(
+                read(ast.child(id, 0)), read(ast.child(id, 1)), FlatAst.operator(ast.value(id))
+            );
+            case COMPARISON_EXPRESSION -> new ComparisonExpressionNode(
+                read(ast.child(id, 0)), read(ast.child(id, 1)), FlatAst.operator(ast.value(id))
+            );
+            case LOGICAL_EXPRESSION -> new LogicalExpressionNode(
+                read(ast.child(id, 0)), read(ast.child(id, 1)), FlatAst.operator(ast.value(id))
+            );
+            case UNARY_EXPRESSION -> new UnaryExpressionNode(read(ast.child(id, 0)), FlatAst.operator(ast.value(id)));
+            case IF_STATEMENT -> new IfStatementNode(
+                read(ast.child(id, 0)), read(ast.child(id, 1)), read(ast.child(id, 2))
+            );
+            case WHILE_STATEMENT -> new WhileStatementNode(read(ast.child(id, 0)), read(ast.child(id, 1)));
+            case FOR_STATEMENT -> new ForStatementNode(
+                read(ast.child(id, 0)), read(ast.child(id, 1)), read(ast.child(id, 2)), read(ast.child(id, 3))
+            );
+            case ARRAY_CREATION -> new ArrayCreationNode(ast.name(id), read(ast.child(id, 0)));
+            case ARRAY_ACCESS -> new ArrayAccessNode(read(ast.child(id, 0)), read(ast.child(id, 1)));
+            case ARRAY_ASSIGNMENT -> new ArrayAssignmentNode(
+                read(ast.child(id, 0)), read(ast.child(id, 1)), FlatAst.operator(ast.value(id)), read(ast.child(id, 2))
+            );
+            case FUNCTION_CALL -> new FunctionCallNode(ast.name(id), readChildren(id));
+            case FUNCTION_DECLARATION -> readFunctionDeclaration(id);
+            case PARAMETER -> new ParameterNode(ast.string(ast.value(id)), ast.name(id));
+            case RETURN -> new ReturnNode(read(ast.child(id, 0)));
+            case BREAK -> new BreakNode();
+            case CONTINUE -> new ContinueNode();
+            case NEW_LINE -> new NewLineNode();
+            case ERROR -> new ErrorNode(ast.name(id));
+        };
+
+        if (node != null) {
+            node.setPosition(ast.line(id), 0);
+        }
+        return node;
+    }
+
+    private FunctionDeclarationNode readFunctionDeclaration(int id) {
+        final List<ParameterNode> parameters = new ArrayList<>();
+        int child = ast.firstChild(id);
+        while (ast.nextSibling(child) != FlatAst.NONE) {
+            parameters.add((ParameterNode) read(child));
+            child = ast.nextSibling(child);
+        }
+        return new FunctionDeclarationNode(ast.name(id), parameters, ast.string(ast.value(id)), read(child));
+    }
+
+    private List<ASTNode> readChildren(int id) {
+        final List<ASTNode> children = new ArrayList<>();
+        for (int child = ast.firstChild(id); child != FlatAst.NONE; child = ast.nextSibling(child)) {
+            children.add(read(child));
+        }
+        return children;
+    }
+}
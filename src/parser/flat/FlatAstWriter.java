@@ -0,0 +1,274 @@
+package parser.flat;
+
+import parser.nodes.*;
+
+import java.util.List;
+
+// Copies object nodes into a FlatAst, children are written right after their parent
+class FlatAstWriter implements ASTVisitor<Integer> {
+    private final FlatAst ast;
+
+    FlatAstWriter(FlatAst ast) {
+        this.ast = ast;
+    }
+
+    int write(ASTNode node) {
+        if (node == null) {
+            return ast.add(NodeKind.EMPTY, 0, 0, FlatAst.NONE);
+        }
+
+        return node.accept(this);
+    }
+
+    @Override
+    public Integer visit(BlockNode block) {
+        final int id = ast.add(NodeKind.BLOCK, block.getLineNumber(), 0, FlatAst.NONE);
+        writeChildren(id, block.getStatements(), null);
+        return id;
+    }
+
+    @Override
+    public Integer visit(VariableDeclarationNode declaration) {
+        final int id = ast.add(
+            NodeKind.VARIABLE_DECLARATION, declaration.getLineNumber(), ast.intern(declaration.getType()), ast.intern(declaration.getName())
+        );
+        ast.setChildren(id, write(declaration.getValue()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(VariableAssignmentNode assignment) {
+        final int id = ast.add(
+            NodeKind.VARIABLE_ASSIGNMENT,
+            assignment.getLineNumber(),
+            0,
+            ast.intern(assignment.getVariableName())
+        );
+        ast.setChildren(id, write(assignment.getValue()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(CompoundAssignmentNode assignment) {
+        final int id = ast.add(
+            NodeKind.COMPOUND_ASSIGNMENT,
+            assignment.getLineNumber(),
+            FlatAst.operatorCode(assignment.getCompoundOp()),
+            ast.intern(assignment.getVariableName())
+        );
+        ast.setChildren(id, write(assignment.getValue()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(IncrementDecrementNode increment) {
+        return ast.add(
+            NodeKind.INCREMENT_DECREMENT,
+            increment.getLineNumber(),
+            FlatAst.operatorCode(increment.getOp()),
+            ast.intern(increment.getVariableName())
+        );
+    }
+
+    @Override
+    public Integer visit(VariableReferenceNode reference) {
+        return ast.add(NodeKind.VARIABLE_REFERENCE, reference.getLineNumber(), 0, ast.intern(reference.getName()));
+    }
+
+    @Override
+    public Integer visit(NumberLiteral literal) {
+        return ast.add(NodeKind.NUMBER_LITERAL, literal.getLineNumber(), literal.getValue(), FlatAst.NONE);
+    }
+
+    @Override
+    public Integer visit(LongLiteral literal) {
+        return ast.add(NodeKind.LONG_LITERAL, literal.getLineNumber(), 0, ast.intern(Long.toString(literal.getValue())));
+    }
+
+    @Override
+    public Integer visit(DoubleLiteral literal) {
+        return ast.add(NodeKind.DOUBLE_LITERAL, literal.getLineNumber(), 0, ast.intern(Double.toString(literal.getValue())));
+    }
+
+    @Override
+    public Integer visit(StringLiteral literal) {
+        return ast.add(NodeKind.STRING_LITERAL, literal.getLineNumber(), 0, ast.intern(literal.getValue()));
+    }
+
+    @Override
+    public Integer visit(BooleanLiteral literal) {
+        return ast.add(NodeKind.BOOLEAN_LITERAL, literal.getLineNumber(), literal.getValue() ? 1 : 0, FlatAst.NONE);
+    }
+
+    @Override
+    public Integer visit(BinaryExpressionNode expression) {
+        return writeOperation(
+            NodeKind.BINARY_EXPRESSION,
+            expression.getLineNumber(),
+            expression.getOperator(),
+            expression.getLeft(),
+            expression.getRight()
+        );
+    }
+
+    @Override
+    public Integer visit(ComparisonExpressionNode expression) {
+        return writeOperation(
+            NodeKind.COMPARISON_EXPRESSION,
+            expression.getLineNumber(),
+            expression.getOperator(),
+            expression.getLeft(),
+            expression.getRight()
+        );
+    }
+
+    @Override
+    public Integer visit(LogicalExpressionNode expression) {
+        return writeOperation(
+            NodeKind.LOGICAL_EXPRESSION,
+            expression.getLineNumber(),
+            expression.getOperator(),
+            expression.getLeft(),
+            expression.getRight()
+        );
+    }
+
+    @Override
+    public Integer visit(UnaryExpressionNode expression) {
+        final int id = ast.add(
+            NodeKind.UNARY_EXPRESSION,
+            expression.getLineNumber(),
+            FlatAst.operatorCode(expression.getOperator()),
+            FlatAst.NONE
+        );
+        ast.setChildren(id, write(expression.getOperand()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(IfStatementNode statement) {
+        final int id = ast.add(NodeKind.IF_STATEMENT, statement.getLineNumber(), 0, FlatAst.NONE);
+        ast.setChildren(id, write(statement.getCondition()), write(statement.getTrueBranch()), write(statement.getFalseBranch()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(WhileStatementNode statement) {
+        final int id = ast.add(NodeKind.WHILE_STATEMENT, statement.getLineNumber(), 0, FlatAst.NONE);
+        ast.setChildren(id, write(statement.getCondition()), write(statement.getBody()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(ForStatementNode statement) {
+        final int id = ast.add(NodeKind.FOR_STATEMENT, statement.getLineNumber(), 0, FlatAst.NONE);
+        ast.setChildren(
+            id,
+            write(statement.getInitialization()),
+            write(statement.getCondition()),
+            write(statement.getUpdate()),
+            write(statement.getBody())
+        );
+        return id;
+    }
+
+    @Override
+    public Integer visit(ArrayCreationNode creation) {
+        final int id = ast.add(NodeKind.ARRAY_CREATION, creation.getLineNumber(), 0, ast.intern(creation.getElementType()));
+        ast.setChildren(id, write(creation.getLength()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(ArrayAccessNode access) {
+        final int id = ast.add(NodeKind.ARRAY_ACCESS, access.getLineNumber(), 0, FlatAst.NONE);
+        ast.setChildren(id, write(access.getArray()), write(access.getIndex()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(ArrayAssignmentNode assignment) {
+        final int id = ast.add(
+            NodeKind.ARRAY_ASSIGNMENT,
+            assignment.getLineNumber(),
+            FlatAst.operatorCode(assignment.getOperator()),
+            FlatAst.NONE
+        );
+        ast.setChildren(id, write(assignment.getArray()), write(assignment.getIndex()), write(assignment.getValue()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(FunctionCallNode call) {
+        final int id = ast.add(NodeKind.FUNCTION_CALL, call.getLineNumber(), 0, ast.intern(call.getFunctionName()));
+        writeChildren(id, call.getArguments(), null);
+        return id;
+    }
+
+    @Override
+    public Integer visit(FunctionDeclarationNode declaration) {
+        final int id = ast.add(
+            NodeKind.FUNCTION_DECLARATION,
+            declaration.getLineNumber(),
+            ast.intern(declaration.getReturnType()),
+            ast.intern(declaration.getName())
+        );
+        // The parameters come first, the body is always the last child
+        writeChildren(id, declaration.getParameters(), declaration.getBody());
+        return id;
+    }
+
+    @Override
+    public Integer visit(ParameterNode parameter) {
+        return ast.add(
+            NodeKind.PARAMETER,
+            parameter.getLineNumber(),
+            ast.intern(parameter.getType()),
+            ast.intern(parameter.getName())
+        );
+    }
+
+    @Override
+    public Integer visit(ReturnNode returnNode) {
+        final int id = ast.add(NodeKind.RETURN, returnNode.getLineNumber(), 0, FlatAst.NONE);
+        ast.setChildren(id, write(returnNode.getReturnValue()));
+        return id;
+    }
+
+    @Override
+    public Integer visit(BreakNode node) {
+        return ast.add(NodeKind.BREAK, node.getLineNumber(), 0, FlatAst.NONE);
+    }
+
+    @Override
+    public Integer visit(ContinueNode node) {
+        return ast.add(NodeKind.CONTINUE, node.getLineNumber(), 0, FlatAst.NONE);
+    }
+
+    @Override
+    public Integer visit(NewLineNode node) {
+        return ast.add(NodeKind.NEW_LINE, node.getLineNumber(), 0, FlatAst.NONE);
+    }
+
+    @Override
+    public Integer visit(ErrorNode error) {
+        return ast.add(NodeKind.ERROR, error.getLineNumber(), 0, ast.intern(error.getMessage()));
+    }
+
+    private int writeOperation(NodeKind kind, int line, String operator, ASTNode left, ASTNode right) {
+        final int id = ast.add(kind, line, FlatAst.operatorCode(operator), FlatAst.NONE);
+        ast.setChildren(id, write(left), write(right));
+        return id;
+    }
+
+    private void writeChildren(int parent, List<? extends ASTNode> nodes, ASTNode last) {
+        final int[] children = new int[nodes.size() + (last != null ? 1 : 0)];
+        for (int i = 0; i < nodes.size(); i++) {
+            children[i] = write(nodes.get(i));
+        }
+        if (last != null) {
+            children[nodes.size()] = write(last);
+        }
+        ast.setChildren(parent, children, children.length);
+    }
+}
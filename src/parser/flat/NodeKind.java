@@ -0,0 +1,34 @@
+package parser.flat;
+
+public enum NodeKind {
+    EMPTY, // stands in for an optional child that is missing, e.g. an `if` without `else`
+    BLOCK,
+    VARIABLE_DECLARATION,
+    VARIABLE_ASSIGNMENT,
+    COMPOUND_ASSIGNMENT,
+    INCREMENT_DECREMENT,
+    VARIABLE_REFERENCE,
+    NUMBER_LITERAL,
+    LONG_LITERAL, // 64 bit values do not fit the value column, they are kept as interned text like Double literals
+    DOUBLE_LITERAL,
+    STRING_LITERAL,
+    BOOLEAN_LITERAL,
+    BINARY_EXPRESSION,
+    COMPARISON_EXPRESSION,
+    LOGICAL_EXPRESSION,
+    UNARY_EXPRESSION,
+    IF_STATEMENT,
+    WHILE_STATEMENT,
+    FOR_STATEMENT,
+    ARRAY_CREATION,
+    ARRAY_ACCESS,
+    ARRAY_ASSIGNMENT, // an `a[i]++` has an EMPTY value
+    FUNCTION_CALL,
+    FUNCTION_DECLARATION,
+    PARAMETER,
+    RETURN,
+    BREAK,
+    CONTINUE,
+    NEW_LINE,
+    ERROR,
+}
@@ -1,8 +1,15 @@
 package parser.nodes;
 
+import parser.variables.Symbol;
+import semantic.Type;
+
 public abstract class ASTNode {
     private int lineNumber;
     private int columnNumber;
+    // Set by the type checker on expressions
+    private Type resolvedType;
+    // Set by the scope resolver on variable declarations and uses
+    private Symbol symbol;
 
     public void setPosition(int lineNumber, int columnNumber) {
         this.lineNumber = lineNumber;
@@ -16,4 +23,22 @@ public abstract class ASTNode {
     public int getColumnNumber() {
         return columnNumber;
     }
+
+    public Type getResolvedType() {
+        return resolvedType;
+    }
+
+    public void setResolvedType(Type resolvedType) {
+        this.resolvedType = resolvedType;
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(Symbol symbol) {
+        this.symbol = symbol;
+    }
+
+    public abstract <R> R accept(ASTVisitor<R> visitor);
 }
@@ -0,0 +1,286 @@
+package parser.nodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds a tree bottom-up, passes override the visits of the nodes they rewrite. A node whose children all come
+ * back unchanged is returned as it is, so untouched subtrees are shared with the input tree. A statement that
+ * transforms to null is removed from its block.
+ */
+public class ASTTransformer implements ASTVisitor<ASTNode> {
+    public ASTNode transform(ASTNode node) {
+        return node != null ? node.accept(this) : null;
+    }
+
+    @Override
+    public ASTNode visit(ArrayAccessNode node) {
+        final ASTNode array = transform(node.getArray());
+        final ASTNode index = transform(node.getIndex());
+        if (array == node.getArray() && index == node.getIndex()) {
+            return node;
+        }
+        return copyAttributes(node, new ArrayAccessNode(array, index));
+    }
+
+    @Override
+    public ASTNode visit(ArrayAssignmentNode node) {
+        final ASTNode array = transform(node.getArray());
+        final ASTNode index = transform(node.getIndex());
+        final ASTNode value = transform(node.getValue());
+        if (array == node.getArray() && index == node.getIndex() && value == node.getValue()) {
+            return node;
+        }
+        return copyAttributes(node, new ArrayAssignmentNode(array, index, node.getOperator(), value));
+    }
+
+    @Override
+    public ASTNode visit(ArrayCreationNode node) {
+        final ASTNode length = transform(node.getLength());
+        if (length == node.getLength()) {
+            return node;
+        }
+        return copyAttributes(node, new ArrayCreationNode(node.getElementType(), length));
+    }
+
+    @Override
+    public ASTNode visit(BinaryExpressionNode node) {
+        final ASTNode left = transform(node.getLeft());
+        final ASTNode right = transform(node.getRight());
+        if (left == node.getLeft() && right == node.getRight()) {
+            return node;
+        }
+        return copyAttributes(node, new BinaryExpressionNode(left, right, node.getOperator()));
+    }
+
+    @Override
+    public ASTNode visit(BlockNode node) {
+        final List<ASTNode> statements = transformStatements(node.getStatements());
+        return statements == node.getStatements() ? node : copyAttributes(node, new BlockNode(statements));
+    }
+
+    @Override
+    public ASTNode visit(BooleanLiteral node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(BreakNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(ComparisonExpressionNode node) {
+        final ASTNode left = transform(node.getLeft());
+        final ASTNode right = transform(node.getRight());
+        if (left == node.getLeft() && right == node.getRight()) {
+            return node;
+        }
+        return copyAttributes(node, new ComparisonExpressionNode(left, right, node.getOperator()));
+    }
+
+    @Override
+    public ASTNode visit(CompoundAssignmentNode node) {
+        final ASTNode value = transform(node.getValue());
+        if (value == node.getValue()) {
+            return node;
+        }
+        return copyAttributes(node, new CompoundAssignmentNode(node.getVariableName(), node.getCompoundOp(), value));
+    }
+
+    @Override
+    public ASTNode visit(ContinueNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(ErrorNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(ForStatementNode node) {
+        final ASTNode initialization = transform(node.getInitialization());
+        final ASTNode condition = transform(node.getCondition());
+        final ASTNode update = transform(node.getUpdate());
+        final ASTNode body = transformBody(node.getBody());
+        if (initialization == node.getInitialization() && condition == node.getCondition()
+            && update == node.getUpdate() && body == node.getBody()) {
+            return node;
+        }
+        return copyAttributes(node, new ForStatementNode(initialization, condition, update, body));
+    }
+
+    @Override
+    public ASTNode visit(FunctionCallNode node) {
+        final List<ASTNode> arguments = transformExpressions(node.getArguments());
+        if (arguments == node.getArguments()) {
+            return node;
+        }
+        return copyAttributes(node, new FunctionCallNode(node.getFunctionName(), arguments));
+    }
+
+    @Override
+    public ASTNode visit(FunctionDeclarationNode node) {
+        final ASTNode body = transformBody(node.getBody());
+        if (body == node.getBody()) {
+            return node;
+        }
+        final FunctionDeclarationNode function = copyAttributes(
+            node,
+            new FunctionDeclarationNode(node.getName(), node.getParameters(), node.getReturnType(), body)
+        );
+        function.setFrame(node.getFrame());
+        return function;
+    }
+
+    @Override
+    public ASTNode visit(IfStatementNode node) {
+        final ASTNode condition = transform(node.getCondition());
+        final ASTNode trueBranch = transformBody(node.getTrueBranch());
+        final ASTNode falseBranch = transform(node.getFalseBranch());
+        if (condition == node.getCondition() && trueBranch == node.getTrueBranch()
+            && falseBranch == node.getFalseBranch()) {
+            return node;
+        }
+        return copyAttributes(node, new IfStatementNode(condition, trueBranch, falseBranch));
+    }
+
+    @Override
+    public ASTNode visit(IncrementDecrementNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(LogicalExpressionNode node) {
+        final ASTNode left = transform(node.getLeft());
+        final ASTNode right = transform(node.getRight());
+        if (left == node.getLeft() && right == node.getRight()) {
+            return node;
+        }
+        return copyAttributes(node, new LogicalExpressionNode(left, right, node.getOperator()));
+    }
+
+    @Override
+    public ASTNode visit(NewLineNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(LongLiteral node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(DoubleLiteral node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(NumberLiteral node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(ParameterNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(ReturnNode node) {
+        final ASTNode value = transform(node.getReturnValue());
+        return value == node.getReturnValue() ? node : copyAttributes(node, new ReturnNode(value));
+    }
+
+    @Override
+    public ASTNode visit(StringLiteral node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(UnaryExpressionNode node) {
+        final ASTNode operand = transform(node.getOperand());
+        if (operand == node.getOperand()) {
+            return node;
+        }
+        return copyAttributes(node, new UnaryExpressionNode(operand, node.getOperator()));
+    }
+
+    @Override
+    public ASTNode visit(VariableAssignmentNode node) {
+        final ASTNode value = transform(node.getValue());
+        if (value == node.getValue()) {
+            return node;
+        }
+        return copyAttributes(node, new VariableAssignmentNode(node.getVariableName(), value));
+    }
+
+    @Override
+    public ASTNode visit(VariableDeclarationNode node) {
+        final ASTNode value = transform(node.getValue());
+        if (value == node.getValue()) {
+            return node;
+        }
+        return copyAttributes(node, new VariableDeclarationNode(node.getType(), node.getName(), value));
+    }
+
+    @Override
+    public ASTNode visit(VariableReferenceNode node) {
+        return node;
+    }
+
+    @Override
+    public ASTNode visit(WhileStatementNode node) {
+        final ASTNode condition = transform(node.getCondition());
+        final ASTNode body = transformBody(node.getBody());
+        if (condition == node.getCondition() && body == node.getBody()) {
+            return node;
+        }
+        return copyAttributes(node, new WhileStatementNode(condition, body));
+    }
+
+    // A body that was removed entirely becomes an empty block, loops and ifs always need one
+    protected ASTNode transformBody(ASTNode body) {
+        final ASTNode transformed = transform(body);
+        return transformed != null || body == null ? transformed : copyAttributes(body, new BlockNode(new ArrayList<>()));
+    }
+
+    // Returns the same list if no statement changed
+    protected List<ASTNode> transformStatements(List<ASTNode> statements) {
+        List<ASTNode> transformed = null;
+        for (int i = 0; i < statements.size(); i++) {
+            final ASTNode statement = statements.get(i);
+            final ASTNode result = transform(statement);
+            if (result != statement && transformed == null) {
+                transformed = new ArrayList<>(statements.subList(0, i));
+            }
+            if (transformed != null && result != null) {
+                transformed.add(result);
+            }
+        }
+        return transformed != null ? transformed : statements;
+    }
+
+    private List<ASTNode> transformExpressions(List<ASTNode> expressions) {
+        List<ASTNode> transformed = null;
+        for (int i = 0; i < expressions.size(); i++) {
+            final ASTNode expression = expressions.get(i);
+            final ASTNode result = transform(expression);
+            if (result != expression && transformed == null) {
+                transformed = new ArrayList<>(expressions.subList(0, i));
+            }
+            if (transformed != null) {
+                transformed.add(result);
+            }
+        }
+        return transformed != null ? transformed : expressions;
+    }
+
+    // Gives a rebuilt node the position, type and symbol of the node it replaces
+    protected static <T extends ASTNode> T copyAttributes(ASTNode from, T to) {
+        to.setPosition(from.getLineNumber(), from.getColumnNumber());
+        to.setResolvedType(from.getResolvedType());
+        to.setSymbol(from.getSymbol());
+        return to;
+    }
+}
@@ -0,0 +1,65 @@
+package parser.nodes;
+
+/**
+ * Double dispatch over the concrete tree nodes, {@link ASTNode#accept} calls the overload for the node's own
+ * class. Adding a node type means adding a method here, which every pass then has to handle.
+ */
+public interface ASTVisitor<R> {
+    R visit(ArrayAccessNode node);
+
+    R visit(ArrayAssignmentNode node);
+
+    R visit(ArrayCreationNode node);
+
+    R visit(BinaryExpressionNode node);
+
+    R visit(BlockNode node);
+
+    R visit(BooleanLiteral node);
+
+    R visit(BreakNode node);
+
+    R visit(DoubleLiteral node);
+
+    R visit(ComparisonExpressionNode node);
+
+    R visit(CompoundAssignmentNode node);
+
+    R visit(ContinueNode node);
+
+    R visit(ErrorNode node);
+
+    R visit(ForStatementNode node);
+
+    R visit(FunctionCallNode node);
+
+    R visit(FunctionDeclarationNode node);
+
+    R visit(IfStatementNode node);
+
+    R visit(IncrementDecrementNode node);
+
+    R visit(LogicalExpressionNode node);
+
+    R visit(LongLiteral node);
+
+    R visit(NewLineNode node);
+
+    R visit(NumberLiteral node);
+
+    R visit(ParameterNode node);
+
+    R visit(ReturnNode node);
+
+    R visit(StringLiteral node);
+
+    R visit(UnaryExpressionNode node);
+
+    R visit(VariableAssignmentNode node);
+
+    R visit(VariableDeclarationNode node);
+
+    R visit(VariableReferenceNode node);
+
+    R visit(WhileStatementNode node);
+}
@@ -0,0 +1,194 @@
+package parser.nodes;
+
+/**
+ * Visits every node of a tree, children in source order. Passes that only care about some nodes override
+ * those visits, or {@link #walk} to see every node, and call super to keep walking.
+ */
+public class ASTWalker implements ASTVisitor<Void> {
+    public void walk(ASTNode node) {
+        if (node != null) {
+            node.accept(this);
+        }
+    }
+
+    @Override
+    public Void visit(ArrayAccessNode node) {
+        walk(node.getArray());
+        walk(node.getIndex());
+        return null;
+    }
+
+    @Override
+    public Void visit(ArrayAssignmentNode node) {
+        walk(node.getArray());
+        walk(node.getIndex());
+        walk(node.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(ArrayCreationNode node) {
+        walk(node.getLength());
+        return null;
+    }
+
+    @Override
+    public Void visit(BinaryExpressionNode node) {
+        walk(node.getLeft());
+        walk(node.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(BlockNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            walk(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(BooleanLiteral node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(BreakNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(ComparisonExpressionNode node) {
+        walk(node.getLeft());
+        walk(node.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(CompoundAssignmentNode node) {
+        walk(node.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(ContinueNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(ErrorNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(ForStatementNode node) {
+        walk(node.getInitialization());
+        walk(node.getCondition());
+        walk(node.getUpdate());
+        walk(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Void visit(FunctionCallNode node) {
+        for (ASTNode argument : node.getArguments()) {
+            walk(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(FunctionDeclarationNode node) {
+        for (ParameterNode parameter : node.getParameters()) {
+            walk(parameter);
+        }
+        walk(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Void visit(IfStatementNode node) {
+        walk(node.getCondition());
+        walk(node.getTrueBranch());
+        walk(node.getFalseBranch());
+        return null;
+    }
+
+    @Override
+    public Void visit(IncrementDecrementNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(LogicalExpressionNode node) {
+        walk(node.getLeft());
+        walk(node.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(NewLineNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(LongLiteral node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(DoubleLiteral node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(NumberLiteral node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(ParameterNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(ReturnNode node) {
+        walk(node.getReturnValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(StringLiteral node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(UnaryExpressionNode node) {
+        walk(node.getOperand());
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableAssignmentNode node) {
+        walk(node.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableDeclarationNode node) {
+        walk(node.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableReferenceNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visit(WhileStatementNode node) {
+        walk(node.getCondition());
+        walk(node.getBody());
+        return null;
+    }
+}
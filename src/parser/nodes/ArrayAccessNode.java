@@ -0,0 +1,25 @@
+package parser.nodes;
+
+// `a[i]`, reading an element
+public class ArrayAccessNode extends ASTNode {
+    private final ASTNode array;
+    private final ASTNode index;
+
+    public ArrayAccessNode(ASTNode array, ASTNode index) {
+        this.array = array;
+        this.index = index;
+    }
+
+    public ASTNode getArray() {
+        return array;
+    }
+
+    public ASTNode getIndex() {
+        return index;
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
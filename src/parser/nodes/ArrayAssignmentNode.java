@@ -0,0 +1,40 @@
+package parser.nodes;
+
+/**
+ * Writing an element: `a[i] = v`, a compound assignment like `a[i] += v`, or `a[i]++` and `a[i]--`, which have no
+ * value. The operator is the one written.
+ */
+public class ArrayAssignmentNode extends ASTNode {
+    private final ASTNode array;
+    private final ASTNode index;
+    private final String operator;
+    private final ASTNode value;
+
+    public ArrayAssignmentNode(ASTNode array, ASTNode index, String operator, ASTNode value) {
+        this.array = array;
+        this.index = index;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    public ASTNode getArray() {
+        return array;
+    }
+
+    public ASTNode getIndex() {
+        return index;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public ASTNode getValue() {
+        return value;
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
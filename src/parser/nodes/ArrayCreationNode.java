@@ -0,0 +1,25 @@
+package parser.nodes;
+
+// `Int[n]`, a new array of n elements that all start out as the default value of the element type
+public class ArrayCreationNode extends ASTNode {
+    private final String elementType;
+    private final ASTNode length;
+
+    public ArrayCreationNode(String elementType, ASTNode length) {
+        this.elementType = elementType;
+        this.length = length;
+    }
+
+    public String getElementType() {
+        return elementType;
+    }
+
+    public ASTNode getLength() {
+        return length;
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -12,5 +12,9 @@ public class BlockNode extends ASTNode {
     public List<ASTNode> getStatements() {
         return statements;
     }
-}
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
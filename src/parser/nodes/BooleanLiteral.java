@@ -10,4 +10,9 @@ public class BooleanLiteral extends LiteralNode {
     public boolean getValue() {
         return value;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -1,3 +1,8 @@
 package parser.nodes;
 
-public class BreakNode extends ASTNode { }
+public class BreakNode extends ASTNode {
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -22,4 +22,9 @@ public class CompoundAssignmentNode extends ASTNode {
     public ASTNode getValue() {
         return value;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
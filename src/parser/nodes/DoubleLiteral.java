@@ -0,0 +1,23 @@
+package parser.nodes;
+
+public class DoubleLiteral extends LiteralNode {
+    private final double value;
+
+    public DoubleLiteral(double value) {
+        this.value = value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleLiteral { value: " + value + " }";
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -10,4 +10,9 @@ public class ErrorNode extends ASTNode {
     public String getMessage() {
         return message;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
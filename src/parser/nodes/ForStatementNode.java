@@ -28,5 +28,9 @@ public class ForStatementNode extends ASTNode {
     public ASTNode getBody() {
         return body;
     }
-}
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
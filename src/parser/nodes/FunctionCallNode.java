@@ -23,5 +23,9 @@ public class FunctionCallNode extends ASTNode {
     public String toString() {
         return "Function(name=" + functionName + ", args=" + arguments + ")";
     }
-}
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
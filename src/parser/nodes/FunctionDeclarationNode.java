@@ -7,6 +7,8 @@ public class FunctionDeclarationNode extends ASTNode {
     private final List<ParameterNode> parameters;
     private final String returnType;
     private final ASTNode body;
+    // Set by the scope resolver, the symbol table frame of the parameters and locals
+    private int frame;
 
     public FunctionDeclarationNode(
         String name,
@@ -35,4 +37,17 @@ public class FunctionDeclarationNode extends ASTNode {
     public ASTNode getBody() {
         return body;
     }
+
+    public int getFrame() {
+        return frame;
+    }
+
+    public void setFrame(int frame) {
+        this.frame = frame;
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -26,4 +26,9 @@ public class IfStatementNode extends ASTNode {
     public ASTNode getFalseBranch() {
         return falseBranch;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
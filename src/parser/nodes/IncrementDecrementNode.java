@@ -16,4 +16,9 @@ public class IncrementDecrementNode extends ASTNode {
     public String getOp() {
         return op;
     }
-}
\ No newline at end of file
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -1,4 +1,3 @@
 package parser.nodes;
 
-public class LiteralNode extends ASTNode { }
-
+public abstract class LiteralNode extends ASTNode { }
@@ -22,5 +22,9 @@ public class LogicalExpressionNode extends ASTNode {
     public String getOperator() {
         return operator;
     }
-}
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
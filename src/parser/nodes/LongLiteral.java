@@ -0,0 +1,23 @@
+package parser.nodes;
+
+public class LongLiteral extends LiteralNode {
+    private final long value;
+
+    public LongLiteral(long value) {
+        this.value = value;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "LongLiteral { value: " + value + " }";
+    }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
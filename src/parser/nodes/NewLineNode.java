@@ -1,3 +1,8 @@
 package parser.nodes;
 
-public class NewLineNode extends ASTNode { }
\ No newline at end of file
+public class NewLineNode extends ASTNode {
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
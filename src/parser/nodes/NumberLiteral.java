@@ -15,4 +15,9 @@ public class NumberLiteral extends LiteralNode {
     public String toString() {
         return "NumberLiteral { value: " + value + " }";
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
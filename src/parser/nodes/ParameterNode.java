@@ -16,4 +16,9 @@ public class ParameterNode extends ASTNode {
     public String getName() {
         return name;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
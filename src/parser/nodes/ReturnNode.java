@@ -10,4 +10,9 @@ public class ReturnNode extends ASTNode {
     public ASTNode getReturnValue() {
         return returnValue;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -10,4 +10,9 @@ public class StringLiteral extends LiteralNode {
     public String getValue() {
         return value;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -16,4 +16,9 @@ public class UnaryExpressionNode extends ASTNode {
     public String getOperator() {
         return operator;
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
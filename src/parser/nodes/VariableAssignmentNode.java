@@ -11,4 +11,9 @@ public class VariableAssignmentNode extends ASTNode {
 
     public String getVariableName() { return name; }
     public ASTNode getValue() { return value; }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
@@ -27,4 +27,9 @@ public class VariableDeclarationNode extends ASTNode {
     public String toString() {
         return "VariableDeclarationNode { type: " + type + ", name: " + name + ", value: " + value + " }";
     }
+
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
 }
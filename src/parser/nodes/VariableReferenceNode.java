@@ -15,5 +15,9 @@ public class VariableReferenceNode extends ASTNode {
     public String toString() {
         return "Variable(name=" + name + ")";
     }
-}
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -16,5 +16,9 @@ public class WhileStatementNode extends ASTNode {
     public ASTNode getBody() {
         return body;
     }
-}
 
+    @Override
+    public <R> R accept(ASTVisitor<R> visitor) {
+        return visitor.visit(this);
+    }
+}
@@ -0,0 +1,65 @@
+package parser.variables;
+
+import semantic.Type;
+
+/**
+ * One declared variable. Every declaration gets its own symbol, even when it reuses a name, and the nodes that
+ * declare or use the variable all point at it.
+ */
+public class Symbol {
+    private final int id;
+    private final int nameId;
+    private final String name;
+    private final Type type;
+    private final int slot;
+
+    // Scope bookkeeping of the SymbolTable
+    final SymbolTable.Scope scope;
+    final int frame;
+    final Symbol shadowed;
+
+    Symbol(int id, int nameId, String name, Type type, int slot, SymbolTable.Scope scope, int frame, Symbol shadowed) {
+        this.id = id;
+        this.nameId = nameId;
+        this.name = name;
+        this.type = type;
+        this.slot = slot;
+        this.scope = scope;
+        this.frame = frame;
+        this.shadowed = shadowed;
+    }
+
+    // Dense number of the symbol in its table, passes can index arrays with it
+    public int getId() {
+        return id;
+    }
+
+    // Interned number of the name, equal for all symbols spelled the same way
+    public int getNameId() {
+        return nameId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Null if the declaration names an unknown type
+    public Type getType() {
+        return type;
+    }
+
+    // The JVM local variable slot, only unique among the symbols alive at the same time
+    public int getSlot() {
+        return slot;
+    }
+
+    // Number of the function body (or the main method) the variable lives in
+    public int getFrame() {
+        return frame;
+    }
+
+    @Override
+    public String toString() {
+        return name + "#" + id;
+    }
+}
@@ -1,16 +1,144 @@
 package parser.variables;
 
+import semantic.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Lexical scopes of variables. Names are interned to integer ids and each id points at its innermost visible
+ * declaration, so a lookup is an array access instead of a walk up the scope chain. A function body is a frame
+ * of its own: its slots start over and it does not see the locals of the code around it. When a scope ends its
+ * slots are handed back, so the locals of sibling blocks share them.
+ */
 public class SymbolTable {
-    private final Map<String, VariableInfo> table = new HashMap<>();
+    // The resolver enters the frame of the main method before any function's
+    public static final int MAIN_FRAME = 1;
+
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<Symbol> symbols = new ArrayList<>();
+    // Innermost declaration of every name id, the ones it hides are chained through Symbol.shadowed
+    private Symbol[] bindings = new Symbol[64];
+
+    private Scope scope;
+    private int frame;
+    private int frameCount;
+    private int nextSlot;
+    // Highest slot count every frame reached, temporaries go above it
+    private int[] frameSlots = new int[8];
+
+    public int intern(String name) {
+        final Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        final int newId = nameIds.size();
+        nameIds.put(name, newId);
+        if (newId == bindings.length) {
+            bindings = Arrays.copyOf(bindings, newId * 2);
+        }
+        return newId;
+    }
+
+    // Starts a function body (or the main method), whose slots are numbered from firstSlot on. Returns the number
+    // of the new frame, frames are numbered from 1 in the order they are entered
+    public int enterFrame(int firstSlot) {
+        scope = new Scope(scope, nextSlot, frame);
+        frame = ++frameCount;
+        nextSlot = firstSlot;
+        if (frame == frameSlots.length) {
+            frameSlots = Arrays.copyOf(frameSlots, frame * 2);
+        }
+        frameSlots[frame] = firstSlot;
+        return frame;
+    }
+
+    public void exitFrame() {
+        frame = scope.outerFrame;
+        exitScope();
+    }
 
-    public void addVariable(String name, String type, int index) {
-        table.put(name, new VariableInfo(type, index));
+    public void enterScope() {
+        scope = new Scope(scope, nextSlot, frame);
     }
 
-    public VariableInfo getVariable(String name) {
-        return table.get(name);
+    public void exitScope() {
+        for (Symbol symbol : scope.symbols) {
+            bindings[symbol.getNameId()] = symbol.shadowed;
+        }
+        nextSlot = scope.firstSlot;
+        scope = scope.parent;
+    }
+
+    // Declares a variable in the innermost scope, returns null if that scope already declares the name
+    public Symbol declare(String name, Type type) {
+        final int nameId = intern(name);
+        final Symbol previous = bindings[nameId];
+        if (previous != null && previous.scope == scope) {
+            return null;
+        }
+
+        final Symbol symbol = new Symbol(symbols.size(), nameId, name, type, nextSlot, scope, frame, previous);
+        nextSlot += slotSize(type);
+        frameSlots[frame] = Math.max(frameSlots[frame], nextSlot);
+        symbols.add(symbol);
+        scope.symbols.add(symbol);
+        bindings[nameId] = symbol;
+        return symbol;
+    }
+
+    /**
+     * Declares a variable for a value the optimizer introduces, in a frame that was entered before. It gets a slot
+     * of its own above all locals of that frame and a name that no source variable can have, and no scope, so no
+     * name resolves to it.
+     */
+    public Symbol declareTemporary(Type type, int frame) {
+        final String name = "$t" + symbols.size();
+        final Symbol symbol = new Symbol(symbols.size(), intern(name), name, type, frameSlots[frame], null, frame, null);
+        frameSlots[frame] += slotSize(type);
+        symbols.add(symbol);
+        return symbol;
+    }
+
+    // A variable whose type did not resolve still gets a slot, the type checker reports it
+    private static int slotSize(Type type) {
+        return type == null ? 1 : type.getSlotSize();
+    }
+
+    // The declaration a name refers to at this point, or null if there is none in the current frame
+    public Symbol resolve(String name) {
+        final Integer nameId = nameIds.get(name);
+        if (nameId == null) {
+            return null;
+        }
+
+        final Symbol symbol = bindings[nameId];
+        return symbol != null && symbol.frame == frame ? symbol : null;
+    }
+
+    public Symbol getSymbol(int id) {
+        return symbols.get(id);
+    }
+
+    // Number of symbols declared so far, ids are below this
+    public int getSymbolCount() {
+        return symbols.size();
+    }
+
+    static class Scope {
+        private final Scope parent;
+        private final int firstSlot;
+        private final int outerFrame;
+        private final List<Symbol> symbols = new ArrayList<>();
+
+        private Scope(Scope parent, int firstSlot, int outerFrame) {
+            this.parent = parent;
+            this.firstSlot = firstSlot;
+            this.outerFrame = outerFrame;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,19 +0,0 @@
-package parser.variables;
-
-public class VariableInfo {
-    private final String type;
-    private final int index;
-
-    public VariableInfo(String type, int index) {
-        this.type = type;
-        this.index = index;
-    }
-
-    public String getType() {
-        return type;
-    }
-
-    public int getIndex() {
-        return index;
-    }
-}
\ No newline at end of file
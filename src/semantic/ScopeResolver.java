@@ -0,0 +1,167 @@
+package semantic;
+
+import parser.ErrorHandler;
+import parser.nodes.*;
+import parser.variables.Symbol;
+import parser.variables.SymbolTable;
+
+/**
+ * Resolves every variable declaration and use to its {@link Symbol}, following the block, function and
+ * top-level scopes, and reports undeclared variables and names declared twice in one scope. This is also where
+ * local slots are handed out, a slot is free again as soon as the scope of its variable ends.
+ */
+public class ScopeResolver extends ASTWalker {
+    // Slot 0 of main holds its String[] argument
+    private static final int MAIN_FIRST_SLOT = 1;
+
+    private final ErrorHandler errorHandler;
+    private final SymbolTable symbolTable;
+
+    public ScopeResolver(ErrorHandler errorHandler, SymbolTable symbolTable) {
+        this.errorHandler = errorHandler;
+        this.symbolTable = symbolTable;
+        symbolTable.enterFrame(MAIN_FIRST_SLOT);
+    }
+
+    // Resolves a whole program, the statements of the root block share the top-level scope
+    public boolean resolve(ASTNode tree) {
+        final int errorCount = errorHandler.getErrors().size();
+        if (tree instanceof BlockNode root) {
+            for (ASTNode statement : root.getStatements()) {
+                walk(statement);
+            }
+        } else {
+            walk(tree);
+        }
+        return errorHandler.getErrors().size() == errorCount;
+    }
+
+    // Resolves the next top-level statement of a program that is handled one statement at a time
+    public boolean resolveStatement(ASTNode statement) {
+        final int errorCount = errorHandler.getErrors().size();
+        walk(statement);
+        return errorHandler.getErrors().size() == errorCount;
+    }
+
+    @Override
+    public Void visit(BlockNode node) {
+        symbolTable.enterScope();
+        super.visit(node);
+        symbolTable.exitScope();
+        return null;
+    }
+
+    @Override
+    public Void visit(IfStatementNode node) {
+        walk(node.getCondition());
+        walkScoped(node.getTrueBranch());
+        walkScoped(node.getFalseBranch());
+        return null;
+    }
+
+    @Override
+    public Void visit(WhileStatementNode node) {
+        walk(node.getCondition());
+        walkScoped(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Void visit(ForStatementNode node) {
+        // The loop variable belongs to the loop
+        symbolTable.enterScope();
+        super.visit(node);
+        symbolTable.exitScope();
+        return null;
+    }
+
+    @Override
+    public Void visit(FunctionDeclarationNode node) {
+        node.setFrame(symbolTable.enterFrame(0));
+        for (ParameterNode parameter : node.getParameters()) {
+            walk(parameter);
+        }
+
+        // The parameters and the outermost locals share one scope
+        if (node.getBody() instanceof BlockNode body) {
+            for (ASTNode statement : body.getStatements()) {
+                walk(statement);
+            }
+        } else {
+            walk(node.getBody());
+        }
+        symbolTable.exitFrame();
+        return null;
+    }
+
+    @Override
+    public Void visit(ParameterNode node) {
+        declare(node, node.getName(), node.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableDeclarationNode node) {
+        // The initializer cannot see the variable it initializes
+        walk(node.getValue());
+        declare(node, node.getName(), node.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableReferenceNode node) {
+        resolve(node, node.getName());
+        return null;
+    }
+
+    @Override
+    public Void visit(VariableAssignmentNode node) {
+        walk(node.getValue());
+        resolve(node, node.getVariableName());
+        return null;
+    }
+
+    @Override
+    public Void visit(CompoundAssignmentNode node) {
+        walk(node.getValue());
+        resolve(node, node.getVariableName());
+        return null;
+    }
+
+    @Override
+    public Void visit(IncrementDecrementNode node) {
+        resolve(node, node.getVariableName());
+        return null;
+    }
+
+    // A single statement branch or body still gets a scope, `if (c) Int x = 1;` declares nothing outside
+    private void walkScoped(ASTNode node) {
+        if (node == null || node instanceof BlockNode) {
+            walk(node);
+            return;
+        }
+
+        symbolTable.enterScope();
+        walk(node);
+        symbolTable.exitScope();
+    }
+
+    private void declare(ASTNode node, String name, String typeName) {
+        final Type type = Type.fromName(typeName);
+        final Symbol symbol = symbolTable.declare(name, type == Type.VOID ? null : type);
+        if (symbol == null) {
+            errorHandler.logError("Variable already declared in this scope: " + name, node.getLineNumber());
+            node.setSymbol(symbolTable.resolve(name));
+        } else {
+            node.setSymbol(symbol);
+        }
+    }
+
+    private void resolve(ASTNode node, String name) {
+        final Symbol symbol = symbolTable.resolve(name);
+        if (symbol == null) {
+            errorHandler.logError("Undefined variable: " + name, node.getLineNumber());
+        }
+        node.setSymbol(symbol);
+    }
+}
@@ -0,0 +1,94 @@
+package semantic;
+
+/**
+ * The types a Descript value can have, with the JVM descriptor each one is compiled to.
+ */
+public enum Type {
+    INT("Int", "I"),
+    BOOL("Bool", "Z"),
+    STRING("String", "Ljava/lang/String;"),
+    LONG("Long", "J"),
+    DOUBLE("Double", "D"),
+    VOID("Void", "V"),
+    INT_ARRAY("Int[]", "[I"),
+    LONG_ARRAY("Long[]", "[J"),
+    DOUBLE_ARRAY("Double[]", "[D"),
+    BOOL_ARRAY("Bool[]", "[Z"),
+    STRING_ARRAY("String[]", "[Ljava/lang/String;");
+
+    private final String name;
+    private final String descriptor;
+
+    Type(String name, String descriptor) {
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    // The type spelled this way in source, or null if there is none
+    public static Type fromName(String name) {
+        return switch (name) {
+            case "Int" -> INT;
+            case "Bool" -> BOOL;
+            case "String" -> STRING;
+            case "Long" -> LONG;
+            case "Double" -> DOUBLE;
+            case "Void" -> VOID;
+            case "Int[]" -> INT_ARRAY;
+            case "Long[]" -> LONG_ARRAY;
+            case "Double[]" -> DOUBLE_ARRAY;
+            case "Bool[]" -> BOOL_ARRAY;
+            case "String[]" -> STRING_ARRAY;
+            default -> null;
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public boolean isNumeric() {
+        return this == INT || this == LONG || this == DOUBLE;
+    }
+
+    public boolean isArray() {
+        return getElementType() != null;
+    }
+
+    // The type of the elements of an array type, null for the other types
+    public Type getElementType() {
+        return switch (this) {
+            case INT_ARRAY -> INT;
+            case LONG_ARRAY -> LONG;
+            case DOUBLE_ARRAY -> DOUBLE;
+            case BOOL_ARRAY -> BOOL;
+            case STRING_ARRAY -> STRING;
+            default -> null;
+        };
+    }
+
+    // The array type with elements of this type, null if there is none: arrays of arrays and of Void
+    public Type arrayOf() {
+        return switch (this) {
+            case INT -> INT_ARRAY;
+            case LONG -> LONG_ARRAY;
+            case DOUBLE -> DOUBLE_ARRAY;
+            case BOOL -> BOOL_ARRAY;
+            case STRING -> STRING_ARRAY;
+            default -> null;
+        };
+    }
+
+    // Local variable slots a value takes, Long and Double take two
+    public int getSlotSize() {
+        return this == LONG || this == DOUBLE ? 2 : 1;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,562 @@
+package semantic;
+
+import parser.ErrorHandler;
+import parser.nodes.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Infers the type of every expression, stores it on the node and reports type errors through the
+ * {@link ErrorHandler}. Runs after the {@link ScopeResolver}, whose symbols give the variables their types,
+ * and before the code generator, which picks its opcodes from the stored types. An expression whose type is
+ * unknown because of an earlier error gets no type, and nothing more is reported about it.
+ */
+public class TypeChecker implements ASTVisitor<Type> {
+    private final ErrorHandler errorHandler;
+    private final Map<String, FunctionDeclarationNode> functions = new HashMap<>();
+    // Functions compile to methods of the class, so only the ones at the top level can be called
+    private final Set<FunctionDeclarationNode> topLevelFunctions = new HashSet<>();
+    private FunctionDeclarationNode currentFunction;
+    // Number of loops around the node being checked, in the current function
+    private int loopDepth;
+
+    public TypeChecker(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Checks a whole tree, or the next top-level statement of one when called once per statement. Returns
+     * whether the node type checked without errors.
+     */
+    public boolean check(ASTNode node) {
+        final int errorCount = errorHandler.getErrors().size();
+
+        // Functions can be called before they are declared
+        if (node instanceof BlockNode block) {
+            for (ASTNode statement : block.getStatements()) {
+                if (statement instanceof FunctionDeclarationNode function) {
+                    declareFunction(function);
+                }
+            }
+        } else if (node instanceof FunctionDeclarationNode function) {
+            declareFunction(function);
+        }
+
+        node.accept(this);
+        return errorHandler.getErrors().size() == errorCount;
+    }
+
+    private void declareFunction(FunctionDeclarationNode function) {
+        topLevelFunctions.add(function);
+        // Calls of the builtins never reach a function of the program
+        if ("print".equals(function.getName()) || "len".equals(function.getName()) || inputType(function.getName()) != null) {
+            errorHandler.logError("Function name is reserved: " + function.getName(), function.getLineNumber());
+        } else if (functions.putIfAbsent(function.getName(), function) != null) {
+            errorHandler.logError("Function already declared: " + function.getName(), function.getLineNumber());
+        }
+    }
+
+    @Override
+    public Type visit(NumberLiteral node) {
+        return resolve(node, Type.INT);
+    }
+
+    @Override
+    public Type visit(LongLiteral node) {
+        return resolve(node, Type.LONG);
+    }
+
+    @Override
+    public Type visit(DoubleLiteral node) {
+        return resolve(node, Type.DOUBLE);
+    }
+
+    @Override
+    public Type visit(StringLiteral node) {
+        return resolve(node, Type.STRING);
+    }
+
+    @Override
+    public Type visit(BooleanLiteral node) {
+        return resolve(node, Type.BOOL);
+    }
+
+    @Override
+    public Type visit(VariableReferenceNode node) {
+        return resolve(node, variableType(node));
+    }
+
+    @Override
+    public Type visit(BinaryExpressionNode node) {
+        final Type left = checkExpression(node.getLeft());
+        final Type right = checkExpression(node.getRight());
+        if (left == null || right == null) {
+            return null;
+        }
+
+        if (left == right && left.isNumeric()) {
+            return resolve(node, left);
+        }
+        if ("+".equals(node.getOperator()) && isConcatenation(left, right)) {
+            return resolve(node, Type.STRING);
+        }
+        return operatorError(node.getOperator(), left, right, node);
+    }
+
+    @Override
+    public Type visit(ComparisonExpressionNode node) {
+        final Type left = checkExpression(node.getLeft());
+        final Type right = checkExpression(node.getRight());
+        if (left == null || right == null) {
+            return null;
+        }
+
+        // Arrays are not compared, their identity is not something a program can observe otherwise
+        final boolean equality = "==".equals(node.getOperator()) || "!=".equals(node.getOperator());
+        if (left == right && (left.isNumeric() || equality && left != Type.VOID && !left.isArray())) {
+            return resolve(node, Type.BOOL);
+        }
+        return operatorError(node.getOperator(), left, right, node);
+    }
+
+    @Override
+    public Type visit(LogicalExpressionNode node) {
+        final Type left = checkExpression(node.getLeft());
+        final Type right = checkExpression(node.getRight());
+        if (left == null || right == null) {
+            return null;
+        }
+
+        if (left == Type.BOOL && right == Type.BOOL) {
+            return resolve(node, Type.BOOL);
+        }
+        return operatorError(node.getOperator(), left, right, node);
+    }
+
+    @Override
+    public Type visit(UnaryExpressionNode node) {
+        final Type operand = checkExpression(node.getOperand());
+        if (operand == null) {
+            return null;
+        }
+
+        if ("!".equals(node.getOperator()) ? operand == Type.BOOL : operand.isNumeric()) {
+            return resolve(node, operand);
+        }
+        errorHandler.logError(
+            "Operator '" + node.getOperator() + "' cannot be applied to " + operand, node.getLineNumber()
+        );
+        return null;
+    }
+
+    @Override
+    public Type visit(FunctionCallNode node) {
+        final List<ASTNode> arguments = node.getArguments();
+        final Type[] argumentTypes = new Type[arguments.size()];
+        for (int i = 0; i < arguments.size(); i++) {
+            argumentTypes[i] = checkExpression(arguments.get(i));
+        }
+
+        if ("print".equals(node.getFunctionName())) {
+            if (arguments.size() != 1) {
+                errorHandler.logError("print expects 1 argument but got " + arguments.size(), node.getLineNumber());
+            } else if (argumentTypes[0] == Type.VOID) {
+                errorHandler.logError("Cannot print a Void value", node.getLineNumber());
+            }
+            return resolve(node, Type.VOID);
+        }
+        if ("len".equals(node.getFunctionName())) {
+            if (arguments.size() != 1) {
+                errorHandler.logError("len expects 1 argument but got " + arguments.size(), node.getLineNumber());
+            } else if (argumentTypes[0] != null && !argumentTypes[0].isArray()) {
+                errorHandler.logError("len expects an array but got " + argumentTypes[0], node.getLineNumber());
+            }
+            return resolve(node, Type.INT);
+        }
+        final Type inputType = inputType(node.getFunctionName());
+        if (inputType != null) {
+            if (!arguments.isEmpty()) {
+                errorHandler.logError(
+                    node.getFunctionName() + " expects 0 arguments but got " + arguments.size(), node.getLineNumber()
+                );
+            }
+            return resolve(node, inputType);
+        }
+
+        final FunctionDeclarationNode function = functions.get(node.getFunctionName());
+        if (function == null) {
+            errorHandler.logError("Unknown function: " + node.getFunctionName(), node.getLineNumber());
+            return null;
+        }
+
+        final List<ParameterNode> parameters = function.getParameters();
+        if (parameters.size() != arguments.size()) {
+            errorHandler.logError(
+                node.getFunctionName() + " expects " + parameters.size() + " arguments but got " + arguments.size(),
+                node.getLineNumber()
+            );
+        } else {
+            for (int i = 0; i < parameters.size(); i++) {
+                final Type parameterType = Type.fromName(parameters.get(i).getType());
+                if (argumentTypes[i] != null && parameterType != null && argumentTypes[i] != parameterType) {
+                    errorHandler.logError(
+                        "Cannot pass " + argumentTypes[i] + " as " + parameterType + " parameter "
+                            + parameters.get(i).getName() + " of " + node.getFunctionName(),
+                        node.getLineNumber()
+                    );
+                }
+            }
+        }
+        return resolve(node, Type.fromName(function.getReturnType()));
+    }
+
+    // What the input builtin of the name reads from stdin, null for any other name
+    private static Type inputType(String name) {
+        return switch (name) {
+            case "input" -> Type.STRING;
+            case "inputInt" -> Type.INT;
+            case "inputDouble" -> Type.DOUBLE;
+            default -> null;
+        };
+    }
+
+    @Override
+    public Type visit(ArrayCreationNode node) {
+        final Type elementType = declaredType(node.getElementType(), node);
+        expectIndex(node.getLength(), "Array length");
+        if (elementType == null) {
+            return null;
+        }
+        if (elementType.arrayOf() == null) {
+            errorHandler.logError("Cannot create an array of " + elementType, node.getLineNumber());
+            return null;
+        }
+        return resolve(node, elementType.arrayOf());
+    }
+
+    @Override
+    public Type visit(ArrayAccessNode node) {
+        final Type elementType = elementType(node.getArray());
+        expectIndex(node.getIndex(), "Array index");
+        return elementType != null ? resolve(node, elementType) : null;
+    }
+
+    @Override
+    public Type visit(ArrayAssignmentNode node) {
+        final Type type = elementType(node.getArray());
+        expectIndex(node.getIndex(), "Array index");
+        final String operator = node.getOperator();
+        if (node.getValue() == null) {
+            // ++ and --
+            if (type != null && !type.isNumeric()) {
+                errorHandler.logError("Operator '" + operator + "' cannot be applied to " + type, node.getLineNumber());
+            }
+            return null;
+        }
+
+        final Type value = checkExpression(node.getValue());
+        if (type == null || value == null) {
+            return null;
+        }
+        if ("=".equals(operator)) {
+            if (type != value) {
+                errorHandler.logError("Cannot assign " + value + " to an element of " + type.arrayOf(), node.getLineNumber());
+            }
+        } else if (!isCompoundAssignable(operator, type, value)) {
+            operatorError(operator, type, value, node);
+        }
+        return null;
+    }
+
+    // The element type of an expression that must be an array
+    private Type elementType(ASTNode array) {
+        final Type type = checkExpression(array);
+        if (type != null && !type.isArray()) {
+            errorHandler.logError("Cannot index " + type + ", it is not an array", array.getLineNumber());
+            return null;
+        }
+        return type != null ? type.getElementType() : null;
+    }
+
+    private void expectIndex(ASTNode index, String what) {
+        final Type type = checkExpression(index);
+        if (type != null && type != Type.INT) {
+            errorHandler.logError(what + " must be Int but is " + type, index.getLineNumber());
+        }
+    }
+
+    @Override
+    public Type visit(VariableDeclarationNode node) {
+        final Type type = declaredType(node.getType(), node);
+        if (node.getValue() != null) {
+            expectAssignable(type, checkExpression(node.getValue()), node.getName(), node);
+        }
+        return null;
+    }
+
+    @Override
+    public Type visit(VariableAssignmentNode node) {
+        final Type type = variableType(node);
+        expectAssignable(type, checkExpression(node.getValue()), node.getVariableName(), node);
+        return null;
+    }
+
+    @Override
+    public Type visit(CompoundAssignmentNode node) {
+        final Type type = variableType(node);
+        final Type value = checkExpression(node.getValue());
+        if (type == null || value == null) {
+            return null;
+        }
+
+        if (!isCompoundAssignable(node.getCompoundOp(), type, value)) {
+            operatorError(node.getCompoundOp(), type, value, node);
+        }
+        return null;
+    }
+
+    // Numbers are updated with a number of their own type, a String is appended to with anything + can join to it
+    private static boolean isCompoundAssignable(String operator, Type type, Type value) {
+        return type == value && type.isNumeric() || type == Type.STRING && "+=".equals(operator) && isConcatenation(type, value);
+    }
+
+    // + joins a String with another String, a number or a Bool, on either side
+    private static boolean isConcatenation(Type left, Type right) {
+        return (left == Type.STRING || right == Type.STRING) && isShown(left) && isShown(right);
+    }
+
+    private static boolean isShown(Type type) {
+        return type != Type.VOID && !type.isArray();
+    }
+
+    @Override
+    public Type visit(IncrementDecrementNode node) {
+        final Type type = variableType(node);
+        if (type != null && !type.isNumeric()) {
+            errorHandler.logError("Operator '" + node.getOp() + "' cannot be applied to " + type, node.getLineNumber());
+        }
+        return null;
+    }
+
+    @Override
+    public Type visit(IfStatementNode node) {
+        expectCondition(node.getCondition());
+        checkStatement(node.getTrueBranch());
+        checkStatement(node.getFalseBranch());
+        return null;
+    }
+
+    @Override
+    public Type visit(WhileStatementNode node) {
+        expectCondition(node.getCondition());
+        checkLoopBody(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Type visit(ForStatementNode node) {
+        checkStatement(node.getInitialization());
+        if (node.getCondition() != null) {
+            expectCondition(node.getCondition());
+        }
+        checkStatement(node.getUpdate());
+        checkLoopBody(node.getBody());
+        return null;
+    }
+
+    @Override
+    public Type visit(BlockNode node) {
+        for (ASTNode statement : node.getStatements()) {
+            checkStatement(statement);
+        }
+        return null;
+    }
+
+    @Override
+    public Type visit(FunctionDeclarationNode node) {
+        final FunctionDeclarationNode outerFunction = currentFunction;
+        final int outerLoopDepth = loopDepth;
+        currentFunction = node;
+        loopDepth = 0;
+
+        if (!topLevelFunctions.contains(node)) {
+            errorHandler.logError("Functions can only be declared at the top level: " + node.getName(), node.getLineNumber());
+        }
+        final Type returnType = declaredType(node.getReturnType(), node);
+        for (ParameterNode parameter : node.getParameters()) {
+            declaredType(parameter.getType(), parameter);
+        }
+        checkStatement(node.getBody());
+        if (returnType != null && returnType != Type.VOID && canCompleteNormally(node.getBody())) {
+            errorHandler.logError("Missing return in function " + node.getName(), node.getLineNumber());
+        }
+
+        currentFunction = outerFunction;
+        loopDepth = outerLoopDepth;
+        return null;
+    }
+
+    @Override
+    public Type visit(ParameterNode node) {
+        return null;
+    }
+
+    @Override
+    public Type visit(ReturnNode node) {
+        final Type value = node.getReturnValue() != null ? checkExpression(node.getReturnValue()) : Type.VOID;
+        if (currentFunction == null) {
+            errorHandler.logError("Return outside of a function", node.getLineNumber());
+            return null;
+        }
+
+        final Type returnType = Type.fromName(currentFunction.getReturnType());
+        if (value != null && returnType != null && value != returnType) {
+            errorHandler.logError(
+                "Cannot return " + value + " from " + currentFunction.getName() + ", which returns " + returnType,
+                node.getLineNumber()
+            );
+        }
+        return null;
+    }
+
+    @Override
+    public Type visit(BreakNode node) {
+        if (loopDepth == 0) {
+            errorHandler.logError("'break' outside of a loop", node.getLineNumber());
+        }
+        return null;
+    }
+
+    @Override
+    public Type visit(ContinueNode node) {
+        if (loopDepth == 0) {
+            errorHandler.logError("'continue' outside of a loop", node.getLineNumber());
+        }
+        return null;
+    }
+
+    @Override
+    public Type visit(NewLineNode node) {
+        return null;
+    }
+
+    @Override
+    public Type visit(ErrorNode node) {
+        return null;
+    }
+
+    private Type checkExpression(ASTNode node) {
+        return node.accept(this);
+    }
+
+    private void checkStatement(ASTNode node) {
+        if (node != null) {
+            node.accept(this);
+        }
+    }
+
+    private void checkLoopBody(ASTNode body) {
+        loopDepth++;
+        checkStatement(body);
+        loopDepth--;
+    }
+
+    private void expectCondition(ASTNode condition) {
+        final Type type = checkExpression(condition);
+        if (type != null && type != Type.BOOL) {
+            errorHandler.logError("Condition must be Bool but is " + type, condition.getLineNumber());
+        }
+    }
+
+    private void expectAssignable(Type variableType, Type valueType, String name, ASTNode node) {
+        if (variableType != null && valueType != null && variableType != valueType) {
+            errorHandler.logError(
+                "Cannot assign " + valueType + " to " + variableType + " variable " + name, node.getLineNumber()
+            );
+        }
+    }
+
+    private Type declaredType(String name, ASTNode node) {
+        final Type type = Type.fromName(name);
+        if (type == null || type == Type.VOID && !(node instanceof FunctionDeclarationNode)) {
+            errorHandler.logError("Unknown type: " + name, node.getLineNumber());
+            return null;
+        }
+        return type;
+    }
+
+    // Whether running the statement can get past its end, a function that returns a value must not get past its body
+    private static boolean canCompleteNormally(ASTNode statement) {
+        if (statement instanceof ReturnNode || statement instanceof BreakNode || statement instanceof ContinueNode) {
+            return false;
+        }
+        if (statement instanceof BlockNode block) {
+            for (ASTNode inner : block.getStatements()) {
+                if (!canCompleteNormally(inner)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (statement instanceof IfStatementNode ifStatement) {
+            return ifStatement.getFalseBranch() == null || canCompleteNormally(ifStatement.getTrueBranch())
+                || canCompleteNormally(ifStatement.getFalseBranch());
+        }
+        // A loop only runs forever when its condition is missing or true and nothing breaks out of it
+        if (statement instanceof WhileStatementNode loop) {
+            return !isTrue(loop.getCondition()) || breaksOut(loop.getBody());
+        }
+        if (statement instanceof ForStatementNode loop) {
+            return loop.getCondition() != null && !isTrue(loop.getCondition()) || breaksOut(loop.getBody());
+        }
+        return true;
+    }
+
+    private static boolean isTrue(ASTNode condition) {
+        return condition instanceof BooleanLiteral literal && literal.getValue();
+    }
+
+    // Whether a loop body has a break of its own, the breaks of nested loops end those
+    private static boolean breaksOut(ASTNode body) {
+        final boolean[] found = {false};
+        new ASTWalker() {
+            @Override
+            public Void visit(BreakNode node) {
+                found[0] = true;
+                return null;
+            }
+
+            @Override
+            public Void visit(WhileStatementNode node) {
+                return null;
+            }
+
+            @Override
+            public Void visit(ForStatementNode node) {
+                return null;
+            }
+        }.walk(body);
+        return found[0];
+    }
+
+    // Undefined variables have no symbol, the scope resolver already reported them
+    private static Type variableType(ASTNode node) {
+        return node.getSymbol() != null ? node.getSymbol().getType() : null;
+    }
+
+    private Type operatorError(String operator, Type left, Type right, ASTNode node) {
+        errorHandler.logError(
+            "Operator '" + operator + "' cannot be applied to " + left + " and " + right, node.getLineNumber()
+        );
+        return null;
+    }
+
+    private static Type resolve(ASTNode node, Type type) {
+        node.setResolvedType(type);
+        return type;
+    }
+}
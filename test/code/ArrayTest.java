@@ -0,0 +1,195 @@
+package code;
+
+import compiler.Programs;
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Arrays run the same at every level, compiled from the tree and from the IR: allocation and the values elements
+ * start with, len, updates of elements, and the exception an index out of bounds throws in a counted loop, which
+ * no pass may drop, move or turn into another one.
+ */
+class ArrayTest {
+    @Test
+    void allocatesArraysOfEveryType() throws IOException, InterruptedException {
+        assertPrints("""
+            func halves(Int n) Double[] {
+                Double[] values = Double[n];
+                Double half = 0.0;
+                for (Int i = 0; i < len(values); i++) {
+                    values[i] = half;
+                    half += 0.5;
+                }
+                return values;
+            }
+            Int[] ints = Int[3];
+            Long[] longs = Long[2];
+            Double[] doubles = Double[2];
+            Bool[] bools = Bool[2];
+            String[] strings = String[2];
+            Int[] empty;
+            print(ints);
+            print(longs);
+            print(doubles);
+            print(bools);
+            print(strings);
+            print(empty);
+            print(halves(4));
+            print(halves(0));
+            ints = Int[1 + len(ints)];
+            print(ints);
+            """, """
+            [0, 0, 0]
+            [0, 0]
+            [0.0, 0.0]
+            [false, false]
+            [, ]
+            []
+            [0.0, 0.5, 1.0, 1.5]
+            []
+            [0, 0, 0, 0]
+            """);
+    }
+
+    @Test
+    void measuresArrays() throws IOException, InterruptedException {
+        assertPrints("""
+            func count(String[] words) Int {
+                return len(words);
+            }
+            Int[] values = Int[4];
+            Int total = 0;
+            for (Int i = 0; i < len(values); i++) {
+                values[i] = len(values) - i;
+                total += values[i];
+            }
+            print(total);
+            print(len(Int[7]) * 2);
+            print(count(String[5]) + len(values));
+            if (len(Bool[0]) == 0) {
+                print("empty");
+            }
+            Int shrinking = 0;
+            while (len(values) > 1) {
+                values = Int[len(values) - 1];
+                shrinking++;
+            }
+            print(shrinking);
+            """, """
+            10
+            14
+            9
+            empty
+            3
+            """);
+    }
+
+    @Test
+    void updatesElements() throws IOException, InterruptedException {
+        assertPrints("""
+            func next(Int[] counter) Int {
+                counter[0] += 1;
+                print("index " + counter[0]);
+                return counter[0];
+            }
+            Int[] ints = Int[3];
+            for (Int i = 0; i < len(ints); i++) {
+                ints[i] += i * 10;
+                ints[i] -= 1;
+                ints[i] *= 3;
+                ints[i] /= 2;
+                ints[i]++;
+            }
+            print(ints);
+            Long[] longs = Long[2];
+            longs[1] += 5000000000L;
+            longs[1]--;
+            print(longs);
+            Double[] doubles = Double[2];
+            doubles[0] += 1.5;
+            doubles[0] *= doubles[0];
+            print(doubles);
+            String[] strings = String[2];
+            strings[1] += "a";
+            strings[1] += "b" + len(strings);
+            print(strings);
+            Int[] counter = Int[1];
+            Int[] sums = Int[4];
+            sums[next(counter)] += 5;
+            sums[next(counter)] += sums[1] + 1;
+            print(sums);
+            """, """
+            [0, 14, 29]
+            [0, 4999999999]
+            [2.25, 0.0]
+            [, ab2]
+            index 1
+            index 2
+            [0, 5, 6, 0]
+            """);
+    }
+
+    @Test
+    void throwsOutOfBoundsInCountedLoops() throws IOException, InterruptedException {
+        // Writing one past the end, after the elements before it were written
+        assertThrowsAfter("""
+            Int[] values = Int[3];
+            for (Int i = 0; i <= len(values); i++) {
+                values[i] = i;
+                print(i);
+            }
+            print("unreachable");
+            """, "0\n1\n2\n", "java.lang.ArrayIndexOutOfBoundsException: Index 3 out of bounds for length 3");
+        // A read whose value is never used still checks its index
+        assertThrowsAfter("""
+            Double[] values = Double[2];
+            for (Int i = 0; i < len(values) + 1; i++) {
+                Double unused = values[i];
+                print(i);
+            }
+            """, "0\n1\n", "java.lang.ArrayIndexOutOfBoundsException: Index 2 out of bounds for length 2");
+        assertThrowsAfter("""
+            Int[] values = Int[2];
+            for (Int i = -1; i < len(values); i++) {
+                values[i] += 1;
+            }
+            """, "", "java.lang.ArrayIndexOutOfBoundsException: Index -1 out of bounds for length 2");
+        // An invariant access in a loop that does not run must not be hoisted in front of it
+        assertPrints("""
+            Int[] values = Int[2];
+            Int total = 0;
+            for (Int i = 0; i < len(values) - 2; i++) {
+                total += values[5];
+            }
+            print(total);
+            """, "0\n");
+    }
+
+    private static void assertPrints(String program, String expected) throws IOException, InterruptedException {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final String output = Programs.run(Programs.compile(program, level, ir));
+                assertEquals(expected, output, "-O" + level + (ir ? " --ir" : ""));
+            }
+        }
+    }
+
+    private static void assertThrowsAfter(String program, String printed, String exception)
+        throws IOException, InterruptedException {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final String output = Programs.fail(Programs.compile(program, level, ir));
+                final List<String> lines = output.lines().toList();
+                final int thrown = printed.lines().toList().size();
+                final String at = "-O" + level + (ir ? " --ir" : "") + "\n" + output;
+                assertEquals(printed.lines().toList(), lines.subList(0, thrown), at);
+                assertEquals("Exception in thread \"main\" " + exception, lines.get(thrown), at);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package code;
+
+import compiler.Programs;
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Expressions used as statements, inside loops where the stack must be as high at the back edge as at the header,
+ * and at the top level. Their values are dropped, one or two words wide, at -O0 where nothing removes them first.
+ */
+class ExpressionStatementTest {
+    private static final String PROGRAM = """
+        func twice(Int x) Int {
+            return x * 2;
+        }
+        Int[] values = Int[3];
+        Long wide = 5L;
+        Double real = 1.5;
+        Int i = 0;
+        while (i < 3) {
+            (i * 2);
+            (i);
+            7;
+            (wide + 1L);
+            2.0 * real;
+            "item " + i;
+            (i > 1 and wide > 2L);
+            (values[i]);
+            (Int[2]);
+            twice(i);
+            values[i] = twice(i) + 1;
+            i++;
+        }
+        for (Int j = 0; j < 2; j++) {
+            -real;
+            !(j == 1);
+            (wide);
+        }
+        2L * wide;
+        print(values[0] + values[1] + values[2]);
+        print(wide);
+        """;
+
+    @Test
+    void dropsTheValuesOfExpressionStatements() throws IOException, InterruptedException {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final String output = Programs.run(Programs.compile(PROGRAM, level, ir));
+                assertEquals("9\n5\n", output, "-O" + level + (ir ? " --ir" : ""));
+            }
+        }
+    }
+}
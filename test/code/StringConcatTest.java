@@ -0,0 +1,130 @@
+package code;
+
+import compiler.Programs;
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import semantic.Type;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Values joined at run time show as the constant folder shows them, at every level and on both paths, constants
+ * holding the recipe's tag characters reach the output unchanged, and arrays are not concatenated at all.
+ */
+class StringConcatTest {
+    @Test
+    void joinsValuesAsTheyAreFolded() throws IOException, InterruptedException {
+        // Elements are read at run time, the literals of the second line of each pair are folded at -O1
+        assertPrints("""
+            Long[] longs = Long[2];
+            longs[0] = 5000000000L * 2L;
+            longs[1] = -7L;
+            print("long " + longs[0] + " " + longs[1]);
+            print("long " + 5000000000L * 2L + " " + -7L);
+            Double[] doubles = Double[5];
+            doubles[0] = -0.0;
+            doubles[1] = 0.0 * -1.0;
+            doubles[2] = 0.0 / 0.0;
+            doubles[3] = 1.0 / 0.0;
+            doubles[4] = 10000000000.0;
+            print("double " + doubles[0] + " " + doubles[1] + " " + doubles[2] + " " + doubles[3] + " " + doubles[4]);
+            print("double " + -0.0 + " " + 0.0 * -1.0 + " " + 0.0 / 0.0 + " " + 1.0 / 0.0 + " " + 10000000000.0);
+            print(doubles[2] + "" + doubles[0]);
+            print(0.0 / 0.0 + "" + -0.0);
+            Bool[] bools = Bool[2];
+            bools[1] = 1 < 2;
+            print("bool " + bools[0] + " " + bools[1] + " " + !bools[1]);
+            print("bool " + false + " " + (1 < 2) + " " + !(1 < 2));
+            Int[] ints = Int[1];
+            ints[0] = 2147483647 + 1;
+            print(ints[0] + "" + longs[1] + doubles[4] + bools[1]);
+            print(2147483647 + 1 + "" + -7L + 10000000000.0 + (1 < 2));
+            """, """
+            long 10000000000 -7
+            long 10000000000 -7
+            double -0.0 -0.0 NaN Infinity 1.0E10
+            double -0.0 -0.0 NaN Infinity 1.0E10
+            NaN-0.0
+            NaN-0.0
+            bool false true false
+            bool false true false
+            -2147483648-71.0E10true
+            -2147483648-71.0E10true
+            """);
+    }
+
+    @Test
+    void keepsTagCharactersOfConstants() throws IOException, InterruptedException {
+        final String program = """
+            Int[] ints = Int[1];
+            ints[0] = 7;
+            print("\1" + ints[0] + "\2");
+            print("a\1b\2c" + ints[0] + "\2\1" + ints[0] + "\1");
+            print("\1\1" + "\2" + ints[0]);
+            """;
+        assertPrints(program, "\1" + "7\2\na\1b\2c7\2\1" + "7\1\n\1\1\2" + "7\n");
+    }
+
+    // More arguments than one call takes are joined in pieces, constants with tags may sit where a piece ends
+    @Test
+    void keepsTagCharactersAcrossPieces() throws IOException, InterruptedException {
+        final StringBuilder program = new StringBuilder("Long[] longs = Long[1];\nlongs[0] = 3L;\nprint(\"\"");
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            final String constant = i % 2 == 0 ? "\1" : "\2" + i;
+            program.append(" + \"").append(constant).append("\" + longs[0]");
+            expected.append(constant).append(3);
+        }
+        assertPrints(program.append(");\n").toString(), expected.append('\n').toString());
+    }
+
+    @Test
+    void passesConstantsWithTagsSeparately() {
+        final List<Object> call = new ArrayList<>();
+        final MethodVisitor method = new MethodVisitor(Opcodes.ASM9) {
+            @Override
+            public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrap, Object... arguments) {
+                call.add(descriptor);
+                call.addAll(List.of(arguments));
+            }
+        };
+        final StringConcat concat = new StringConcat(method);
+        concat.constant("a\1");
+        concat.argument(Type.LONG);
+        concat.constant("plain");
+        concat.constant("\2b");
+        concat.argument(Type.BOOL);
+        concat.finish();
+        assertEquals(List.of("(JZ)Ljava/lang/String;", "\2\1plain\2\1", "a\1", "\2b"), call);
+    }
+
+    @Test
+    void rejectsArrays() {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final List<String> errors = Programs.errors("Int[] a = Int[2];\nprint(\"a \" + a);", level, ir);
+                assertTrue(errors.stream().anyMatch(error -> error.endsWith(" at: 2")), errors::toString);
+            }
+        }
+        final StringConcat concat = new StringConcat(new MethodVisitor(Opcodes.ASM9) { });
+        assertThrows(UnsupportedOperationException.class, () -> concat.argument(Type.INT.arrayOf()));
+    }
+
+    private static void assertPrints(String program, String expected) throws IOException, InterruptedException {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final String output = Programs.run(Programs.compile(program, level, ir));
+                assertEquals(expected, output, "-O" + level + (ir ? " --ir" : ""));
+            }
+        }
+    }
+}
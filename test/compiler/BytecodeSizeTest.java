@@ -0,0 +1,117 @@
+package compiler;
+
+import org.junit.jupiter.api.Test;
+import org.objectweb.asm.ClassReader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles sample programs at -O0 and -O1 and compares the bytes of code of their methods. At -O1 a program whose
+ * expressions fold to constants is as large as the same program written with those constants, and smaller than
+ * itself at -O0.
+ */
+class BytecodeSizeTest {
+    @Test
+    void foldsArithmetic() {
+        final String program = "Int seconds = 60 * 60 * 24;\nprint(seconds);";
+        assertEquals(mainSize("print(86400);", 1), mainSize(program, 1));
+        assertTrue(mainSize(program, 1) < mainSize(program, 0));
+    }
+
+    @Test
+    void foldsComparisonsAndLogic() {
+        final String program = "print(3 < 4 and !(2 == 3) or false);";
+        assertEquals(mainSize("print(true);", 1), mainSize(program, 1));
+        assertTrue(mainSize(program, 1) < mainSize(program, 0));
+    }
+
+    @Test
+    void foldsStrings() {
+        final String program = "String name = \"Des\" + \"cript\";\nprint(name + \" \" + 2);";
+        assertEquals(mainSize("print(\"Descript 2\");", 1), mainSize(program, 1));
+        assertTrue(mainSize(program, 1) < mainSize(program, 0));
+    }
+
+    @Test
+    void propagatesConstantConditions() {
+        final String program = """
+            Bool debug = false;
+            Int limit = 10 * 10;
+            if (debug) {
+                print("debugging");
+            }
+            print(limit);
+            """;
+        assertEquals(mainSize("print(100);", 1), mainSize(program, 1));
+        assertTrue(mainSize(program, 1) < mainSize(program, 0));
+    }
+
+    @Test
+    void foldsInFunctions() {
+        final String program = """
+            func area(Int side) Int {
+                Int unit = 2 * 5;
+                return side * side * unit;
+            }
+            print(area(3));
+            """;
+        final String folded = """
+            func area(Int side) Int {
+                return side * side * 10;
+            }
+            print(area(3));
+            """;
+        assertEquals(codeSizes(folded, 1).get("area"), codeSizes(program, 1).get("area"));
+        assertTrue(codeSizes(program, 1).get("area") < codeSizes(program, 0).get("area"));
+    }
+
+    private static int mainSize(String program, int level) {
+        return codeSizes(program, level).get("main");
+    }
+
+    // Bytes of code of every method of the compiled class, by name
+    private static Map<String, Integer> codeSizes(String program, int level) {
+        final byte[] bytecode = Programs.compile(program, level, false);
+
+        // Walks the class file from the access flags after the constant pool to the methods' Code attributes
+        final ClassReader reader = new ClassReader(bytecode);
+        final char[] buffer = new char[reader.getMaxStringLength()];
+        int offset = reader.header + 6;
+        offset += 2 + 2 * reader.readUnsignedShort(offset);
+        final int fieldCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            offset = skipAttributes(reader, offset + 6);
+        }
+
+        final Map<String, Integer> sizes = new HashMap<>();
+        final int methodCount = reader.readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < methodCount; i++) {
+            final String name = reader.readUTF8(offset + 2, buffer);
+            int attribute = offset + 8;
+            for (int j = reader.readUnsignedShort(offset + 6); j > 0; j--) {
+                if (reader.readUTF8(attribute, buffer).equals("Code")) {
+                    // After the attribute's name and length come max_stack, max_locals and code_length
+                    sizes.put(name, reader.readInt(attribute + 10));
+                }
+                attribute += 6 + reader.readInt(attribute + 2);
+            }
+            offset = attribute;
+        }
+        return sizes;
+    }
+
+    // Skips the attribute count and attributes starting at the offset
+    private static int skipAttributes(ClassReader reader, int offset) {
+        int attribute = offset + 2;
+        for (int j = reader.readUnsignedShort(offset); j > 0; j--) {
+            attribute += 6 + reader.readInt(attribute + 2);
+        }
+        return attribute;
+    }
+}
@@ -0,0 +1,32 @@
+package compiler;
+
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Expressions nested 10,000 deep. The parser takes them on the test's own stack, the passes after it recurse and
+ * get through them on the compiler's stack, at every level and on the IR path, and the class they make loads.
+ */
+class DeepExpressionTest {
+    private static final int DEPTH = 10_000;
+
+    @Test
+    void compilesDeeplyNestedExpressions() throws ReflectiveOperationException {
+        final List<String> programs = List.of(
+            "Int x = " + "1 + ".repeat(DEPTH) + "1;\nprint(x);",
+            "Bool b = " + "!".repeat(DEPTH) + "true;\nprint(b);",
+            "Int y = " + "- ".repeat(DEPTH) + "1;\nprint(y);",
+            "Int z = " + "(".repeat(DEPTH) + "1" + ")".repeat(DEPTH) + ";\nprint(z);",
+            "Bool c = " + "true and ".repeat(DEPTH) + "false;\nprint(c);"
+        );
+        for (String program : programs) {
+            for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+                for (boolean ir : new boolean[]{false, true}) {
+                    Programs.load(Programs.compile(program, level, ir)).getMethod("main", String[].class);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package compiler;
+
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * A program parsed into the flat tree goes through the same passes as one parsed into the object tree, at every
+ * optimization level and on the IR path too, and compiles to the same class.
+ */
+class FlatAstCompileTest {
+    // Calls a function declared after it and one the optimizer inlines
+    private static final String PROGRAM = """
+        Int total = 0;
+        for (Int i = 0; i < 10; i++) {
+            total += twice(i) + later(i);
+        }
+        print(total);
+        func twice(Int x) Int {
+            return x * 2;
+        }
+        func later(Int x) Int {
+            if (x > 5) {
+                return later(x - 1);
+            }
+            return x;
+        }
+        """;
+
+    @Test
+    void compilesTheSameClassAsTheTree() {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                assertArrayEquals(
+                    Programs.compile(PROGRAM, level, ir),
+                    Programs.compile(PROGRAM, level, ir, parser -> parser.parseFlat().toTree()),
+                    "-O" + level + (ir ? " --ir" : "")
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package compiler;
+
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Building a program of many functions with --parallel-lex, --parallel-parse and --parallel-codegen makes a jar
+ * whose entries hold the same bytes as the sequential build, at every level and on the IR path, build after build.
+ */
+class ParallelBuildTest {
+    private static final int FUNCTIONS = 200;
+    private static final int PARALLEL_BUILDS = 3;
+    // Each function calls the one before it and some declared after it, so the order of the methods matters
+    private static final String FUNCTION = """
+        func f%1$d(Int x) Int {
+            Int total = x;
+            for (Int i = 0; i < %4$d; i++) {
+                total += i * %1$d;
+            }
+            if (x > 1000) {
+                return total;
+            }
+            return f%2$d(total + 1) - f%3$d(x / 2);
+        }
+        Int v%1$d = f%1$d(%1$d);
+        print("f%1$d " + v%1$d);
+        """;
+
+    @Test
+    void parallelBuildsMatchTheSequentialBuild() throws IOException {
+        final Path directory = Files.createTempDirectory("descript-parallel");
+        try {
+            final Path source = directory.resolve("program.ds");
+            Files.writeString(source, program());
+            for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+                for (boolean ir : new boolean[]{false, true}) {
+                    final Map<String, byte[]> sequential = build(directory, source, "sequential", level, ir);
+                    for (int i = 0; i < PARALLEL_BUILDS; i++) {
+                        final Map<String, byte[]> parallel = build(
+                            directory, source, "parallel" + i, level, ir,
+                            "--parallel-lex", "--parallel-parse", "--parallel-codegen"
+                        );
+                        assertEquals(sequential.keySet(), parallel.keySet());
+                        for (String entry : sequential.keySet()) {
+                            assertArrayEquals(
+                                sequential.get(entry), parallel.get(entry), entry + " at -O" + level + (ir ? " --ir" : "")
+                            );
+                        }
+                    }
+                }
+            }
+        } finally {
+            DescriptCompiler.deleteDirectory(directory);
+        }
+    }
+
+    // Only compiled, never run
+    private static String program() {
+        final StringBuilder program = new StringBuilder();
+        for (int i = 0; i < FUNCTIONS; i++) {
+            final int earlier = Math.max(i - 1, 0);
+            final int later = Math.min(i + 3, FUNCTIONS - 1);
+            program.append(FUNCTION.formatted(i, earlier, later, i % 7 + 1));
+        }
+        return program.toString();
+    }
+
+    // The contents of the jar's entries by name, what a build cache would compare
+    private static Map<String, byte[]> build(
+        Path directory, Path source, String name, int level, boolean ir, String... parallel
+    ) throws IOException {
+        final List<String> args = new ArrayList<>(List.of("build", "-O" + level));
+        if (ir) {
+            args.add("--ir");
+        }
+        args.addAll(List.of(parallel));
+        args.add(source.toString());
+        args.add(directory.resolve(name).toString());
+        DescriptCompiler.run(args.toArray(String[]::new));
+
+        final Map<String, byte[]> entries = new TreeMap<>();
+        try (JarFile jar = new JarFile(directory.resolve(name + ".jar").toFile())) {
+            for (JarEntry entry : jar.stream().toList()) {
+                try (InputStream contents = jar.getInputStream(entry)) {
+                    entries.put(entry.getName(), contents.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,121 @@
+package compiler;
+
+import lexer.Lexer;
+import optimizer.Optimizer;
+import parser.ErrorHandler;
+import parser.Parser;
+import parser.nodes.ASTNode;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Compiles Descript programs for the tests and benchmarks, and loads, calls or runs the classes they compile to.
+ */
+public final class Programs {
+    private Programs() { }
+
+    // Compiles the program on the compiler's stack as the compiler does, failing with its errors if it has any
+    public static byte[] compile(String program, int level, boolean ir) {
+        return compile(program, level, ir, Parser::parse);
+    }
+
+    public static byte[] compile(String program, int level, boolean ir, Function<Parser, ASTNode> parse) {
+        return compile(program, new Optimizer(level), ir, parse);
+    }
+
+    // For an inline limit or the optimizer's explanations
+    public static byte[] compile(String program, Optimizer optimizer, boolean ir) {
+        return compile(program, optimizer, ir, Parser::parse);
+    }
+
+    private static byte[] compile(String program, Optimizer optimizer, boolean ir, Function<Parser, ASTNode> parse) {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final ASTNode tree = parse.apply(new Parser(new Lexer(program), errorHandler));
+        final byte[] bytecode = DescriptCompiler.onCompilerStack(
+            () -> DescriptCompiler.compile(tree, errorHandler, optimizer, false, ir, false)
+        );
+        assertNotNull(bytecode, errorHandler.getErrors()::toString);
+        return bytecode;
+    }
+
+    // What the compiler reports for a program it must reject, it must not throw
+    public static List<String> errors(String program, int level, boolean ir) {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final ASTNode tree = new Parser(new Lexer(program), errorHandler).parse();
+        final byte[] bytecode = DescriptCompiler.onCompilerStack(
+            () -> DescriptCompiler.compile(tree, errorHandler, new Optimizer(level), false, ir, false)
+        );
+        assertNull(bytecode, "The program compiled");
+        return errorHandler.getErrors();
+    }
+
+    // Defines the class in a loader of its own, linking it verifies its bytecode
+    public static Class<?> load(byte[] bytecode) throws ClassNotFoundException {
+        final ClassLoader loader = new ClassLoader(Programs.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                if (!name.equals("GeneratedClass")) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytecode, 0, bytecode.length);
+            }
+        };
+        return Class.forName("GeneratedClass", true, loader);
+    }
+
+    // Functions compile to private static methods
+    public static MethodHandle function(Class<?> generated, String name, Class<?>... parameters)
+        throws ReflectiveOperationException {
+        final Method method = generated.getDeclaredMethod(name, parameters);
+        method.setAccessible(true);
+        return MethodHandles.lookup().unreflect(method);
+    }
+
+    public static String run(byte[] bytecode) throws IOException, InterruptedException {
+        return run(bytecode, "");
+    }
+
+    /**
+     * Runs the class in a JVM started with -Xverify:all next to the runtime classes, with the input as its stdin, and
+     * returns what it printed. Printing goes to the file descriptor, it can only be read from another process. Fails
+     * when the JVM rejects the class or the program does not exit normally.
+     */
+    public static String run(byte[] bytecode, String input) throws IOException, InterruptedException {
+        return run(bytecode, input, true);
+    }
+
+    // For programs that must end in an exception, what they printed is followed by its stack trace
+    public static String fail(byte[] bytecode) throws IOException, InterruptedException {
+        return run(bytecode, "", false);
+    }
+
+    private static String run(byte[] bytecode, String input, boolean exits) throws IOException, InterruptedException {
+        final Path directory = Files.createTempDirectory("descript-run");
+        try {
+            Files.write(directory.resolve("GeneratedClass.class"), bytecode);
+            DescriptCompiler.writeRuntime(directory);
+            final Path stdin = Files.writeString(directory.resolve("stdin.txt"), input);
+            final Process process = new ProcessBuilder(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xverify:all", "-cp", directory.toString(), "GeneratedClass"
+            ).redirectInput(stdin.toFile()).redirectErrorStream(true).start();
+            final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(exits, process.waitFor() == 0, output);
+            return output;
+        } finally {
+            DescriptCompiler.deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package compiler;
+
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Self-recursive calls in tail position run in constant stack space at every optimization level, from the tree and
+ * from the IR, a million calls deep on the test's own stack.
+ */
+class TailCallTest {
+    private static final int DEPTH = 1_000_000;
+    // The arguments read the parameters they replace
+    private static final String PROGRAM = """
+        func sum(Int n, Long total) Long {
+            if (n == 0) {
+                return total;
+            }
+            return sum(n - 1, total + 1L);
+        }
+        func walk(Int a, Int b, Int steps) Int {
+            if (steps == 0) {
+                return a - b;
+            }
+            return walk(b, a + 1, steps - 1);
+        }
+        print(sum(10, 0L));
+        """;
+
+    @Test
+    void tailCallsDoNotGrowTheStack() throws Throwable {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final Class<?> generated = Programs.load(Programs.compile(PROGRAM, level, ir));
+                final MethodHandle sum = Programs.function(generated, "sum", int.class, long.class);
+                final MethodHandle walk = Programs.function(generated, "walk", int.class, int.class, int.class);
+                final String where = "-O" + level + (ir ? " --ir" : "");
+                assertEquals((long) DEPTH, (long) sum.invokeExact(DEPTH, 0L), where);
+                assertEquals(0, (int) walk.invokeExact(0, 0, DEPTH), where);
+            }
+        }
+    }
+}
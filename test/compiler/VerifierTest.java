@@ -0,0 +1,107 @@
+package compiler;
+
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Programs compiled at -O1, where the peephole optimizer rewrites every method, run in a JVM started with
+ * -Xverify:all next to the runtime classes, from the tree and from the IR. They must pass the verifier and print
+ * what the same program compiled at -O0 prints.
+ */
+class VerifierTest {
+    private static final List<String> PROGRAMS = List.of(
+        // Constants of every size, increments and decrements, multiplying and dividing by powers of two
+        """
+        func scale(Int x) Int {
+            Int y = x * 2 + 4 * x - x * 1 + x / 4 + x / 1 + 0;
+            y = y + 1;
+            y = y - 3;
+            y += 200;
+            y -= 40000;
+            y = y * 1024;
+            y = y + 70000;
+            return y - 0;
+        }
+        Int total = 0;
+        for (Int i = -130; i < 130; i++) {
+            total += scale(i) + 5 - 128 + 32767 - 32768;
+        }
+        print(total);
+        print(scale(-7) / 8);
+        """,
+        // Branches that end in jumps and returns, loops with break and continue
+        """
+        func classify(Int v) Int {
+            if (v < 0) {
+                if (v < -100) {
+                    return -2;
+                } else {
+                    return -1;
+                }
+            } else if (v == 0) {
+                return 0;
+            }
+            return 1;
+        }
+        Int sum = 0;
+        Int i = -200;
+        while (i < 200) {
+            i += 7;
+            if (i > 150) {
+                break;
+            }
+            if (i / 3 * 3 == i) {
+                continue;
+            }
+            sum += classify(i);
+        }
+        print(sum);
+        Bool found = false;
+        for (Int j = 0; j < 10 and !found; j++) {
+            found = j * 4 > 20 or classify(j - 5) < 0 and j > 8;
+        }
+        print(found);
+        """,
+        // Long and Double constants, locals stored back into themselves, results that are dropped
+        """
+        func mix(Long a, Double b) Double {
+            Long c = a * 1L + 0L;
+            Double d = b * 1.0 + 0.0 - -0.0;
+            c = c;
+            d = d;
+            return d + 1.0;
+        }
+        func noisy(Int v) Int {
+            print(v);
+            return v;
+        }
+        Long big = 0L;
+        Double real = 0.0;
+        for (Int i = 0; i < 5; i++) {
+            big = big + 1L;
+            real = mix(big, real);
+            noisy(i);
+        }
+        print(big);
+        print(real);
+        Int x = noisy(3);
+        x = x;
+        print(x);
+        """
+    );
+
+    @Test
+    void optimizedClassesPassTheVerifier() throws IOException, InterruptedException {
+        for (String program : PROGRAMS) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final String optimized = Programs.run(Programs.compile(program, Optimizer.MAX_LEVEL, ir));
+                assertEquals(Programs.run(Programs.compile(program, 0, ir)), optimized, ir ? "--ir" : "tree");
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package descript.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reads given input through In the way compiled programs do: negative numbers, whitespace around them, the end of
+ * the input and input that is not a number. Each case runs in a JVM of its own, In reads the file descriptor of
+ * stdin and keeps what it buffered for the life of the process.
+ */
+class InTest {
+    @Test
+    void readsNegativeNumbers() throws IOException, InterruptedException {
+        assertReads("-5 -2147483648 +7 -0\n", List.of("-5", "-2147483648", "7", "0"), "int", "int", "int", "int");
+        // Parsed as Double.parseDouble parses them, on the exact path and off it
+        final List<String> doubles = List.of("-2.5", "-0.0", "-1e3", "-.5", "-0.000123", "-123456789012345678");
+        assertReads(
+            String.join(" ", doubles) + "\n",
+            doubles.stream().map(text -> String.valueOf(Double.parseDouble(text))).toList(),
+            doubles.stream().map(text -> "double").toArray(String[]::new)
+        );
+    }
+
+    @Test
+    void skipsWhitespaceAroundNumbers() throws IOException, InterruptedException {
+        assertReads(
+            "  \t 42  \n\n  3.5\t\r\n rest of line \r\n12\r\nnext\n",
+            List.of("42", "3.5", "[]", "[ rest of line ]", "12", "[next]"),
+            "int", "double", "line", "line", "int", "line"
+        );
+        // A number on a line of its own leaves the next input at the next line
+        assertReads("7\n\nthird\n", List.of("7", "[]", "[third]"), "int", "line", "line");
+        assertReads("0.1\n1e400\nNaN -Infinity\n", List.of("0.1", "Infinity", "NaN", "-Infinity"),
+            "double", "double", "double", "double");
+    }
+
+    @Test
+    void endsTheInput() throws IOException, InterruptedException {
+        assertReads(
+            "",
+            List.of("[]", "NumberFormatException: No Int left in the input",
+                "NumberFormatException: No Double left in the input", "[]"),
+            "line", "int", "double", "line"
+        );
+        assertReads("8", List.of("8", "[]"), "int", "line");
+        assertReads("2.5", List.of("2.5"), "double");
+        assertReads("last line", List.of("[last line]", "[]"), "line", "line");
+        assertReads(
+            "9 \n  \t\n",
+            List.of("9", "NumberFormatException: No Int left in the input"),
+            "int", "int"
+        );
+    }
+
+    // Longer than the buffer, so the line and the number after it are read across refills
+    @Test
+    void readsAcrossRefills() throws IOException, InterruptedException {
+        final String line = "x".repeat(100_000);
+        final String padding = " ".repeat(70_000);
+        assertReads(
+            line + "\n" + padding + "-31\n",
+            List.of("[" + line + "]", "-31"),
+            "line", "int"
+        );
+    }
+
+    @Test
+    void rejectsMalformedNumbers() throws IOException, InterruptedException {
+        assertRejects("abc\n", "int", "Expected an Int in the input");
+        assertRejects("-\n", "int", "Expected an Int in the input");
+        assertRejects("12abc\n", "int", "Expected a whitespace after the Int in the input");
+        assertRejects("1.5\n", "int", "Expected a whitespace after the Int in the input");
+        assertRejects("2147483648\n", "int", "Int out of range in the input");
+        assertRejects("-2147483649\n", "int", "Int out of range in the input");
+        assertRejects("99999999999\n", "int", "Int out of range in the input");
+        assertRejects("1.2.3\n", "double", "Expected a Double in the input but got 1.2.3");
+        assertRejects("x\n", "double", "Expected a Double in the input but got x");
+        assertRejects("-\n", "double", "Expected a Double in the input but got -");
+        assertRejects("1e\n", "double", "Expected a Double in the input but got 1e");
+    }
+
+    private static void assertRejects(String input, String read, String message)
+        throws IOException, InterruptedException {
+        assertReads(input, List.of("NumberFormatException: " + message), read);
+    }
+
+    private static void assertReads(String input, List<String> expected, String... reads)
+        throws IOException, InterruptedException {
+        final Path stdin = Files.createTempFile("descript-in", ".txt");
+        try {
+            Files.writeString(stdin, input);
+            final List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), Reader.class.getName()
+            ));
+            command.addAll(List.of(reads));
+            final Process process = new ProcessBuilder(command)
+                .redirectInput(stdin.toFile()).redirectErrorStream(true).start();
+            final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(0, process.waitFor(), output);
+            assertEquals(expected, output.lines().toList(), () -> "reading " + List.of(reads) + " from " + input);
+        } finally {
+            Files.delete(stdin);
+        }
+    }
+
+    // Prints what each read returned, lines in brackets, or the exception it threw
+    static final class Reader {
+        public static void main(String[] args) {
+            for (String read : args) {
+                try {
+                    System.out.println(switch (read) {
+                        case "int" -> String.valueOf(In.inputInt());
+                        case "double" -> String.valueOf(In.inputDouble());
+                        default -> "[" + In.input() + "]";
+                    });
+                } catch (NumberFormatException e) {
+                    System.out.println("NumberFormatException: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
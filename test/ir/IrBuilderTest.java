@@ -0,0 +1,63 @@
+package ir;
+
+import compiler.Programs;
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+import semantic.Type;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Returns of `and` and `or`, whose lowering ends in another block than it started in, compile from the IR to what
+ * they compile to from the tree.
+ */
+class IrBuilderTest {
+    private static final String PROGRAM = """
+        func outside(Int q) Bool {
+            return q > 1 or q < 0;
+        }
+        func both(Bool a, Bool b) Bool {
+            return a and b;
+        }
+        func label(Bool a, Bool b) String {
+            return (a and b) + "x";
+        }
+        func mixed(Int q, Bool c) Bool {
+            if (q == 0) {
+                return !(q > 5 or q < -5) and c;
+            }
+            return c or q > 3 and q < 10;
+        }
+        func describe(Int q) String {
+            return "q " + (q > 0 and q < 10) + " " + (q < 0 or q == 5);
+        }
+        for (Int i = -1; i <= 2; i++) {
+            print(outside(i));
+            print(both(i > 0, i < 2));
+            print(label(i >= 0, i != 1));
+            print(mixed(i, i == 1));
+            print(describe(i * 5));
+        }
+        """;
+
+    @Test
+    void returnsLogicalExpressions() throws IOException, InterruptedException {
+        final String expected = Programs.run(Programs.compile(PROGRAM, 0, false));
+        assertEquals(List.of("true", "false", "falsex", "false", "q false true"), expected.lines().limit(5).toList());
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            assertEquals(expected, Programs.run(Programs.compile(PROGRAM, level, true)), "-O" + level + " --ir");
+        }
+    }
+
+    @Test
+    void blocksEndOnce() {
+        final IrFunction function = new IrFunction("f", List.of(), Type.VOID, false);
+        final BasicBlock block = function.newBlock();
+        block.terminate(new Instruction(Opcode.RETURN, Type.VOID));
+        assertThrows(IllegalStateException.class, () -> block.terminate(new Instruction(Opcode.RETURN, Type.VOID)));
+    }
+}
@@ -0,0 +1,90 @@
+package lexer;
+
+import lexer.token.Token;
+import lexer.token.TokenType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Lexes a corpus of random programs with the scanner and with the regex lexer it replaced, and expects the same
+ * tokens with the same values and lines. The programs only use tokens the old lexer knew: words it read as
+ * identifiers that are keywords now, like return or and, and the L suffix of Long literals are left out, and so are
+ * comments, which it rejected.
+ */
+class LexerCorpusTest {
+    private static final int PROGRAMS = 20_000;
+    private static final String[] TOKENS = {
+        "x", "y", "total", "_tmp", "a1", "print", "input", "foo_bar", "If", "whilex",
+        "if", "else", "while", "for", "Int", "String", "Bool", "Double", "func",
+        "true", "false",
+        "0", "7", "42", "123456", "3.14", "0.5",
+        "\"\"", "\"hi\"", "\"a b\"", "\"with // slash\"", "\"x+y;\"", "\"two\nlines\"",
+        "==", "!=", "<=", ">=", "<", ">", "+=", "-=", "*=", "/=", "++", "--",
+        "+", "-", "*", "/", "=", "!", ",", ".", "(", ")", "{", "}", ";",
+    };
+    private static final String[] SEPARATORS = {" ", " ", "  ", "\t", "\n", "\n\n"};
+
+    @Test
+    void matchesTheRegexLexerOnRandomPrograms() {
+        final Random random = new Random(20_000);
+        for (int i = 0; i < PROGRAMS; i++) {
+            final String program = randomProgram(random);
+            assertSameTokens(program, new BaselineLexer(program).tokenize(), new Lexer(program).tokenize());
+        }
+    }
+
+    @Test
+    void matchesTheRegexLexerOnAProgram() {
+        final String program = """
+            Int limit = 10;
+            Int sum = 0;
+            while (i < limit) {
+                if (i / 2 * 2 == i != false) {
+                    sum += i;
+                }
+                i++;
+            }
+            print("sum: " + sum);
+            """;
+        assertSameTokens(program, new BaselineLexer(program).tokenize(), new Lexer(program).tokenize());
+    }
+
+    // The old lexer matched comments but then failed on them, the scanner skips them, at the end of the input too
+    @Test
+    void commentsAreSkipped() {
+        for (String program : List.of("print(1); // done", "print(1); // done\n", "print(/* one */ 1);")) {
+            assertThrows(RuntimeException.class, () -> new BaselineLexer(program).tokenize());
+            final List<Token> tokens = new Lexer(program).tokenize();
+            assertEquals(5, tokens.size(), program);
+            assertEquals(TokenType.NUMBER_LITERAL, tokens.get(2).getType(), program);
+            assertEquals(TokenType.SEMICOLON, tokens.get(4).getType(), program);
+        }
+    }
+
+    private static String randomProgram(Random random) {
+        final StringBuilder program = new StringBuilder();
+        final int length = random.nextInt(40);
+        for (int i = 0; i < length; i++) {
+            program.append(TOKENS[random.nextInt(TOKENS.length)]);
+            program.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+        }
+        return program.toString();
+    }
+
+    private static void assertSameTokens(String program, List<Token> expected, List<Token> actual) {
+        final String where = "in program <" + program.replace("\n", "\\n") + ">";
+        assertEquals(expected.size(), actual.size(), "token count " + where);
+        for (int i = 0; i < expected.size(); i++) {
+            final Token want = expected.get(i);
+            final Token got = actual.get(i);
+            assertEquals(want.getType(), got.getType(), "type of token " + i + " " + where);
+            assertEquals(want.getValue(), got.getValue(), "value of token " + i + " " + where);
+            assertEquals(want.getLine(), got.getLine(), "line of token " + i + " " + where);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package optimizer;
+
+import compiler.Programs;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inlined calls print what the calls print at -O0, on the tree and the IR path. Bodies of up to --inline-limit
+ * nodes are inlined, recursive functions never are, arguments are evaluated once and in order, and a callee
+ * assigning its parameters leaves the caller's variables alone.
+ */
+class FunctionInlinerTest {
+    @Test
+    void inlinesBodiesUpToTheLimit() throws IOException, InterruptedException {
+        // The return, the multiplication and its two operands
+        final String program = """
+            func twice(Int x) Int {
+                return x * 2;
+            }
+            print(twice(4));
+            """;
+        assertEquals(List.of("Inlined twice at: 4"), explanations(program, 4, "8\n"));
+        assertEquals(
+            List.of("Not inlined twice at: 4, its body has 4 nodes, the limit is 3"), explanations(program, 3, "8\n")
+        );
+        assertEquals(List.of(), explanations(program, 0, "8\n"));
+    }
+
+    @Test
+    void recursiveFunctionsStayCalls() throws IOException, InterruptedException {
+        final String program = """
+            func factorial(Int n) Int {
+                if (n <= 1) {
+                    return 1;
+                }
+                return n * factorial(n - 1);
+            }
+            func isEven(Int n) Bool {
+                if (n == 0) {
+                    return true;
+                }
+                return isOdd(n - 1);
+            }
+            func isOdd(Int n) Bool {
+                if (n == 0) {
+                    return false;
+                }
+                return isEven(n - 1);
+            }
+            print(factorial(5));
+            print(isEven(7));
+            print(isOdd(7));
+            """;
+        assertEquals(
+            List.of(
+                "Not inlined factorial at: 5, it calls itself",
+                "Not inlined isOdd at: 11, it calls itself through isEven",
+                "Not inlined isEven at: 17, it calls itself through isOdd",
+                "Not inlined factorial at: 19, it calls itself",
+                "Not inlined isEven at: 20, it calls itself through isOdd",
+                "Not inlined isOdd at: 21, it calls itself through isEven"
+            ),
+            explanations(program, 1000, "120\nfalse\ntrue\n")
+        );
+    }
+
+    @Test
+    void evaluatesArgumentsOnceInOrder() throws IOException, InterruptedException {
+        final String program = """
+            func next(Int[] counter) Int {
+                counter[0] += 1;
+                print("next " + counter[0]);
+                return counter[0];
+            }
+            func second(Int a, Int b) Int {
+                return b;
+            }
+            func square(Int x) Int {
+                return x * x;
+            }
+            func ignore(Int a) Int {
+                return 7;
+            }
+            Int[] counter = Int[1];
+            print(second(next(counter), next(counter)));
+            print(square(next(counter)));
+            print(ignore(next(counter)));
+            print(counter[0]);
+            """;
+        final List<String> explanations = explanations(
+            program, Optimizer.DEFAULT_INLINE_LIMIT, "next 1\nnext 2\n2\nnext 3\n9\nnext 4\n7\n4\n"
+        );
+        for (String function : List.of("next", "second", "square", "ignore")) {
+            assertTrue(explanations.stream().anyMatch(line -> line.startsWith("Inlined " + function)), function);
+        }
+    }
+
+    @Test
+    void parametersBelongToTheCopy() throws IOException, InterruptedException {
+        final String program = """
+            func bump(Int x) Int {
+                x += 1;
+                x = x * 2;
+                x++;
+                return x;
+            }
+            func store(Int[] values, Int n) Int {
+                values[0] = n;
+                n = 0;
+                return n;
+            }
+            Int x = 5;
+            print(bump(x));
+            print(x);
+            print(bump(bump(x)));
+            Int[] values = Int[2];
+            print(store(values, x));
+            print(values[0] + " " + x);
+            """;
+        assertEquals(
+            List.of("Inlined bump at: 13", "Inlined bump at: 15", "Inlined bump at: 15", "Inlined store at: 17"),
+            explanations(program, Optimizer.DEFAULT_INLINE_LIMIT, "13\n5\n29\n0\n5 5\n")
+        );
+    }
+
+    /**
+     * Compiles the program at -O1 with the inline limit on both paths, checks that it prints the expected output
+     * as it does at -O0, and returns what the optimizer explained, which must not depend on the path.
+     */
+    private static List<String> explanations(String program, int inlineLimit, String expected)
+        throws IOException, InterruptedException {
+        assertEquals(expected, Programs.run(Programs.compile(program, 0, false)), "-O0");
+        final List<List<String>> explanations = new ArrayList<>();
+        for (boolean ir : new boolean[]{false, true}) {
+            final List<String> lines = new ArrayList<>();
+            final byte[] bytecode = Programs.compile(program, new Optimizer(1, inlineLimit, lines::add), ir);
+            assertEquals(expected, Programs.run(bytecode), "--inline-limit=" + inlineLimit + (ir ? " --ir" : ""));
+            explanations.add(lines);
+        }
+        assertEquals(explanations.get(0), explanations.get(1));
+        return explanations.get(0);
+    }
+}
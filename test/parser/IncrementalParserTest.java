@@ -0,0 +1,160 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.TokenBuffer;
+import org.junit.jupiter.api.Test;
+import parser.nodes.ASTNode;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static parser.flat.FlatAssertions.assertSameTree;
+
+/**
+ * After every edit the incremental parser holds the tree and the errors a full parse of the edited source gives,
+ * lines included, whether the edit is one of the cases below or random.
+ */
+class IncrementalParserTest {
+    private static final String PROGRAM = """
+        Int total = 0;
+        func add(Int a, Int b) Int {
+            return a + b;
+        }
+        if (total > 1) {
+            print("big");
+        } else {
+            print("small");
+        }
+        /* a comment
+           over two lines */
+        while (total < 10) {
+            total = add(total, 3);
+        }
+        String name = "incremental";
+        for (Int i = 0; i < 3; i++) {
+            print(name + i);
+        }
+        // the end
+        print(total);
+        """;
+    // What random edits insert, whole tokens and the pieces that tear statements apart or join them
+    private static final String[] INSERTIONS = {
+        "", "", "x", "total", "1", "42", " ", "\n", "\n\n", ";", "{", "}", "(", ")", "+ 2", " * ", "==", "=",
+        "else", "else {", "if (x > 1) {", "func f() {", "return 3;", "Int y = 3;\n", "print(y);", "/*", "*/", "//",
+        "\"", "\"text\"", "and", "Int[2]", "[0]", ",", "!", "-",
+    };
+    private static final int SEEDS = 20;
+    private static final int EDITS = 400;
+
+    @Test
+    void editsAtTheEnd() {
+        final Edited edited = new Edited(PROGRAM);
+        edited.insert(edited.length(), "Int last = 1;");
+        edited.insert(edited.length(), "\nprint(last)");
+        // The missing `;` is reported on the line of the end of input, which moves
+        edited.insert(edited.length(), "\n\n");
+        edited.replace(edited.length() - 2, edited.length(), ";\n");
+        edited.replace(edited.length() - 2, edited.length(), "");
+        edited.replace(edited.source.lastIndexOf("print"), edited.length(), "");
+        edited.insert(edited.length(), "if (total > 2) { print(1); }");
+        edited.insert(edited.length(), " else");
+    }
+
+    @Test
+    void removingAClosingBrace() {
+        final Edited edited = new Edited(PROGRAM);
+        final int brace = edited.source.indexOf("}\nif");
+        edited.replace(brace, brace + 1, "");
+        edited.insert(brace, "}");
+        // Without the brace of the last block everything after it is part of the loop body
+        final int last = edited.source.lastIndexOf('}');
+        edited.replace(last, last + 1, "");
+        edited.insert(last, "}");
+    }
+
+    @Test
+    void elseAfterAStatementEnd() {
+        final Edited edited = new Edited("if (x > 1) {\n    print(1);\n}\nprint(2);\n");
+        final int end = edited.source.indexOf("}\n") + 1;
+        edited.insert(end, " else {\n    print(3);\n}");
+        edited.replace(end, edited.source.indexOf("print(2)"), "\n");
+        edited.insert(end, " else");
+        edited.replace(end, end + " else".length(), "");
+        // The token the `if` looked at for its `else` becomes one
+        final int next = edited.source.indexOf("print(2)");
+        edited.replace(next, next + "print(2);".length(), "else {\n    print(2);\n}");
+        edited.insert(edited.length(), "if (y) { print(4); }");
+        edited.insert(edited.length(), " else { print(5); }");
+    }
+
+    @Test
+    void errorsMoveWithTheirStatements() {
+        final Edited edited = new Edited("Int a = 1;\nprint(a);\nInt b = ;\nprint(b)\nInt c = 2;\n");
+        edited.insert(0, "\n\n");
+        edited.insert(edited.source.indexOf("print(a)"), "Int d = 4;\n");
+        edited.replace(0, 1, "");
+        edited.insert(edited.source.indexOf("Int c"), "\n");
+        edited.replace(0, edited.source.indexOf("print(a)"), "");
+    }
+
+    @Test
+    void randomEditsMatchAFullParse() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            final Random random = new Random(seed);
+            final Edited edited = new Edited(PROGRAM);
+            for (int i = 0; i < EDITS; i++) {
+                final int start = random.nextInt(edited.length() + 1);
+                final int end = Math.min(edited.length(), start + (random.nextInt(4) == 0 ? random.nextInt(30) : 0));
+                final String replacement = INSERTIONS[random.nextInt(INSERTIONS.length)];
+                // The lexer stops at characters it does not know, no parse can be compared then
+                if (lexes(edited.source.substring(0, start) + replacement + edited.source.substring(end))) {
+                    edited.replace(start, end, replacement);
+                }
+            }
+        }
+    }
+
+    private static boolean lexes(String source) {
+        try {
+            TokenBuffer.of(source);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // A source kept in an incremental parser, checked against a full parse after every edit
+    private static final class Edited {
+        private String source;
+        private final IncrementalParser parser;
+
+        private Edited(String source) {
+            this.source = source;
+            parser = new IncrementalParser(source);
+            check("the start");
+        }
+
+        private int length() {
+            return source.length();
+        }
+
+        private void insert(int at, String text) {
+            replace(at, at, text);
+        }
+
+        private void replace(int start, int end, String replacement) {
+            final String before = source;
+            source = source.substring(0, start) + replacement + source.substring(end);
+            parser.edit(start, end, replacement);
+            check("replacing [" + start + ", " + end + ") of\n" + before + "\nwith \"" + replacement + "\"");
+        }
+
+        private void check(String edit) {
+            assertEquals(source, parser.getSource().toString(), edit);
+            final ErrorHandler errorHandler = new ErrorHandler();
+            final ASTNode tree = new Parser(new Lexer(source), errorHandler).parse();
+            assertEquals(errorHandler.getErrors(), parser.getErrors(), edit);
+            assertSameTree(tree, parser.getTree());
+        }
+    }
+}
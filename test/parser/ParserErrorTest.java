@@ -0,0 +1,35 @@
+package parser;
+
+import compiler.Programs;
+import optimizer.Optimizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tokens no expression can start with are reported with their line, at every level and on the IR path, instead of
+ * reaching the code generator as error nodes.
+ */
+class ParserErrorTest {
+    @Test
+    void reportsUnexpectedTokens() {
+        assertReported(") ;", "Unexpected token: ) at: 1");
+        assertReported("Int x = ;", "Unexpected token: ; at: 1");
+        assertReported("print(1);\nprint(]);", "Unexpected token: ] at: 2");
+        assertReported("Int y = 1 +\n;", "Unexpected token: ; at: 2");
+        assertReported("func f() Int {\n    return * 3;\n}", "Unexpected token: * at: 2");
+        assertReported("Bool b = !Int;", "Unexpected token: Int at: 1");
+        assertReported("Int z = 2 *", "Unexpected end of input at: 1");
+    }
+
+    private static void assertReported(String program, String error) {
+        for (int level = 0; level <= Optimizer.MAX_LEVEL; level++) {
+            for (boolean ir : new boolean[]{false, true}) {
+                final List<String> errors = Programs.errors(program, level, ir);
+                assertTrue(errors.contains(error), () -> program + " reported " + errors);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package parser.flat;
+
+import parser.nodes.ASTNode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Nodes have no equality of their own, two trees are compared by their flat copies, node by node.
+ */
+public final class FlatAssertions {
+    private FlatAssertions() { }
+
+    public static void assertSameTree(ASTNode expected, ASTNode actual) {
+        assertSameNodes(FlatAst.of(expected), FlatAst.of(actual));
+    }
+
+    public static void assertSameNodes(FlatAst expected, FlatAst actual) {
+        assertEquals(expected.size(), actual.size(), "node count");
+        assertEquals(expected.getRoot(), actual.getRoot(), "root");
+        for (int node = 0; node < expected.size(); node++) {
+            final String where = "node " + node;
+            assertEquals(expected.kind(node), actual.kind(node), where);
+            assertEquals(expected.line(node), actual.line(node), where);
+            assertEquals(expected.name(node), actual.name(node), where);
+            assertEquals(expected.firstChild(node), actual.firstChild(node), where);
+            assertEquals(expected.nextSibling(node), actual.nextSibling(node), where);
+            // Pool indexes may differ, what they stand for may not
+            switch (expected.kind(node)) {
+                case VARIABLE_DECLARATION, FUNCTION_DECLARATION, PARAMETER ->
+                    assertEquals(expected.string(expected.value(node)), actual.string(actual.value(node)), where);
+                default -> assertEquals(expected.value(node), actual.value(node), where);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package parser.flat;
+
+import lexer.Lexer;
+import org.junit.jupiter.api.Test;
+import parser.ErrorHandler;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static parser.flat.FlatAssertions.assertSameNodes;
+
+/**
+ * Converts programs between the object tree and the flat tree.
+ */
+class FlatAstTest {
+    private static final String PROGRAM = """
+        Int total = square(3) + 1;
+        Long big = 12345678901L;
+        Double half = 0.5;
+        String name = "flat";
+        Bool done = !false and total >= 10 or -total < 0;
+        Int[] values = Int[4];
+        values[0] += 2;
+        total -= values[0] * len(values);
+        total++;
+        if (done) {
+            print(name + total);
+        } else if (total != 3) {
+            print(big);
+        }
+        while (total > 0) {
+            total--;
+            if (total == 5) {
+                break;
+            }
+            continue;
+        }
+        for (Int i = 0; i < 3; i++) {
+            print(half * i);
+        }
+        func square(Int x) Int {
+            return x * x;
+        }
+        func none() {
+            print("done");
+        }
+        none();
+        """;
+
+    @Test
+    void parsingFlatMatchesFlatteningTheTree() {
+        assertSameNodes(FlatAst.of(parse(PROGRAM)), parseFlat(PROGRAM));
+    }
+
+    @Test
+    void treeSurvivesARoundTrip() {
+        final FlatAst flat = FlatAst.of(parse(PROGRAM));
+        assertSameNodes(flat, FlatAst.of(flat.toTree()));
+        assertSameNodes(flat, FlatAst.of(parseFlat(PROGRAM).toTree()));
+    }
+
+    @Test
+    void linesAreKept() {
+        final FlatAst flat = parseFlat(PROGRAM);
+        int function = flat.firstChild(flat.getRoot());
+        while (flat.kind(function) != NodeKind.FUNCTION_DECLARATION) {
+            function = flat.nextSibling(function);
+        }
+        assertEquals(25, flat.line(function));
+        assertEquals(25, flat.toNode(function).getLineNumber());
+    }
+
+    private static parser.nodes.ASTNode parse(String program) {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final parser.nodes.ASTNode tree = new Parser(new Lexer(program), errorHandler).parse();
+        assertFalse(errorHandler.hasErrors(), errorHandler.getErrors()::toString);
+        return tree;
+    }
+
+    private static FlatAst parseFlat(String program) {
+        final ErrorHandler errorHandler = new ErrorHandler();
+        final FlatAst ast = new Parser(new Lexer(program), errorHandler).parseFlat();
+        assertFalse(errorHandler.hasErrors(), errorHandler.getErrors()::toString);
+        return ast;
+    }
+}